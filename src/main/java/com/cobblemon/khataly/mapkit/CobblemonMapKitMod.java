@@ -7,16 +7,21 @@ import com.cobblemon.khataly.mapkit.config.*;
 import com.cobblemon.khataly.mapkit.entity.BicycleEntity;
 import com.cobblemon.khataly.mapkit.entity.ModEntities;
 import com.cobblemon.khataly.mapkit.event.server.ServerEventHandler;
+import com.cobblemon.khataly.mapkit.event.server.custom.GrassEncounterTelemetry;
 import com.cobblemon.khataly.mapkit.event.server.custom.GrassEncounterTicker;
+import com.cobblemon.khataly.mapkit.event.server.custom.GrassZoneTracker;
+import com.cobblemon.khataly.mapkit.event.server.custom.WildEncounterTracker;
 import com.cobblemon.khataly.mapkit.item.ModItemGroups;
 import com.cobblemon.khataly.mapkit.item.ModItems;
 import com.cobblemon.khataly.mapkit.networking.ModNetworking;
 import com.cobblemon.khataly.mapkit.networking.handlers.BadgeTagUseHandler;
+import com.cobblemon.khataly.mapkit.networking.manager.GrassEditJobManager;
 import com.cobblemon.khataly.mapkit.networking.manager.TeleportAnimationManager;
 import com.cobblemon.khataly.mapkit.screen.ModScreenHandlers;
 import com.cobblemon.khataly.mapkit.sound.ModSounds;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.event.player.UseItemCallback;
 import net.minecraft.util.Identifier;
@@ -32,9 +37,14 @@ public class CobblemonMapKitMod implements ModInitializer {
     public void onInitialize() {
         // 🔧 Config
         HMConfig.load();
+        GrassZonesSettings.load();
+        SpawnPoolLibrary.load();
         GrassZonesConfig.load();
         FlyTargetConfig.load();
         LevelCapConfig.load();
+        // 🌿 Ciclo di vita di forme delle zone nei chunk e specie pre-risolte
+        ChunkZoneStore.register();
+        SpeciesResolver.register();
 
         // 🔊 Suoni, item, blocchi, GUI, ecc.
         ModSounds.registerSounds();
@@ -49,8 +59,15 @@ public class CobblemonMapKitMod implements ModInitializer {
         CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
             ModCommands.register(dispatcher);
         });
+        GrassZoneTracker.register();
         GrassEncounterTicker.register();
+        WildEncounterTracker.register();
+        GrassEncounterTelemetry.register();
         ServerTickEvents.END_SERVER_TICK.register(ModNetworking::tick);
+        // 💾 Scritture zone ancora in coda (asyncSave) su disco prima dello stop
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> GrassZonesConfig.flush());
+        // 🌱 Lavori di posa/rimozione erba non finiti: non sopravvivono alla sessione
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> GrassEditJobManager.get().clear());
         ModEntities.register();
         TeleportAnimationManager.register();
         // 🚲 Switch gear with right-click while riding (works with or without an item in hand)
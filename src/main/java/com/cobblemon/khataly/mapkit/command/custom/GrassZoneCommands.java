@@ -1,33 +1,37 @@
 package com.cobblemon.khataly.mapkit.command.custom;
 
+import com.cobblemon.khataly.mapkit.config.ChunkZoneStore;
 import com.cobblemon.khataly.mapkit.config.GrassZonesConfig;
 import com.cobblemon.khataly.mapkit.config.GrassZonesConfig.Zone;
 import com.cobblemon.khataly.mapkit.config.GrassZonesConfig.SpawnEntry;
+import com.cobblemon.khataly.mapkit.config.SpawnPoolLibrary;
+import com.cobblemon.khataly.mapkit.config.GrassZonesSettings;
+import com.cobblemon.khataly.mapkit.config.SpeciesResolver;
+import com.cobblemon.khataly.mapkit.event.server.custom.GrassEncounterAdmission;
+import com.cobblemon.khataly.mapkit.event.server.custom.GrassEncounterTelemetry;
+import com.cobblemon.khataly.mapkit.item.ModItems;
+import com.cobblemon.khataly.mapkit.item.custom.GrassWandItem;
+import com.cobblemon.khataly.mapkit.networking.manager.GrassEditJobManager;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.suggestion.SuggestionProvider;
-import net.minecraft.block.Block;
-import net.minecraft.block.BlockState;
-import net.minecraft.block.Blocks;
-import net.minecraft.block.enums.DoubleBlockHalf;
 import net.minecraft.command.CommandSource;
-import net.minecraft.registry.Registries;
+import net.minecraft.item.ItemStack;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.state.property.Properties;
 import net.minecraft.text.Text;
-import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
 
 import static net.minecraft.server.command.CommandManager.literal;
 
@@ -49,6 +53,11 @@ public class GrassZoneCommands {
             return builder.buildFuture();
         };
 
+        SuggestionProvider<ServerCommandSource> poolIdSuggest = (ctx, builder) -> {
+            CommandSource.suggestMatching(SpawnPoolLibrary.getAll().stream().map(SpawnPoolLibrary.Pool::id), builder);
+            return builder.buildFuture();
+        };
+
         d.register(
                 literal("grasszone")
                         // --- PUBLIC (everyone) ---
@@ -144,11 +153,13 @@ public class GrassZoneCommands {
                                                 return 1;
                                             }
 
-                                            int removed = clearGrassInZone(world, zone);
-                                            boolean ok = GrassZonesConfig.removeZone(zone.id());
-                                            src.sendFeedback(() -> Text.literal(
-                                                    (ok ? "§aZone removed. " : "§cRemoval error. ") + "§7Grass removed: §f" + removed
-                                            ), false);
+                                            // prima l'erba (la forma può vivere nei chunk), poi la zona
+                                            clearGrassInZone(world, zone, removed -> {
+                                                boolean ok = GrassZonesConfig.removeZone(zone.id());
+                                                src.sendFeedback(() -> Text.literal(
+                                                        (ok ? "§aZone removed. " : "§cRemoval error. ") + "§7Grass removed: §f" + removed
+                                                ), false);
+                                            });
                                             return 1;
                                         })
                                 )
@@ -166,11 +177,12 @@ public class GrassZoneCommands {
                                         return 1;
                                     }
 
-                                    int removed = clearGrassInZone(p.getWorld(), z);
-                                    boolean ok = GrassZonesConfig.removeZone(z.id());
-                                    src.sendFeedback(() -> Text.literal(
-                                            (ok ? "§aZone removed. " : "§cRemoval error. ") + "§7Grass removed: §f" + removed
-                                    ), false);
+                                    clearGrassInZone(p.getWorld(), z, removed -> {
+                                        boolean ok = GrassZonesConfig.removeZone(z.id());
+                                        src.sendFeedback(() -> Text.literal(
+                                                (ok ? "§aZone removed. " : "§cRemoval error. ") + "§7Grass removed: §f" + removed
+                                        ), false);
+                                    });
                                     return 1;
                                 })
                         )
@@ -235,6 +247,13 @@ public class GrassZoneCommands {
                                         return 1;
                                     }
 
+                                    if (target.poolId() != null) {
+                                        src.sendFeedback(() -> Text.literal("§e" + target.name() + "§c uses shared pool §e" + target.poolId()
+                                                + "§c. Edit the pool with §f/grasszone pool paste " + target.poolId()
+                                                + "§c or detach the zone with §f/grasszone pool detach§c first."), false);
+                                        return 1;
+                                    }
+
                                     List<SpawnEntry> clip = POOL_CLIPBOARD.get(p.getUuid());
                                     if (clip == null) {
                                         src.sendFeedback(() -> Text.literal("§cNessuna pool copiata. Usa §f/grasszone copypool§c prima."), false);
@@ -256,11 +275,376 @@ public class GrassZoneCommands {
                                     return 1;
                                 })
                         )
+                        // ===== POOL CONDIVISE (config/cobblemonmapkit/pools) =====
+                        .then(literal("pool").requires(src -> src.hasPermissionLevel(2))
+                                // /grasszone pool list
+                                .then(literal("list")
+                                        .executes(ctx -> {
+                                            var src = ctx.getSource();
+                                            var pools = SpawnPoolLibrary.getAll();
+                                            if (pools.isEmpty()) {
+                                                src.sendFeedback(() -> Text.literal("§7No shared pools."), false);
+                                                return 1;
+                                            }
+                                            src.sendFeedback(() -> Text.literal("§6— Shared pools —"), false);
+                                            for (SpawnPoolLibrary.Pool pool : pools) {
+                                                int refs = GrassZonesConfig.poolRefCount(pool.id());
+                                                src.sendFeedback(() -> Text.literal(" §e" + pool.id() + " §7entries: §f" + pool.spawns().size()
+                                                        + " §7zones: §f" + refs), false);
+                                            }
+                                            return 1;
+                                        })
+                                )
+                                // /grasszone pool save <id> (salva gli spawn della zona dove sei come pool)
+                                .then(literal("save")
+                                        .then(CommandManager.argument("id", StringArgumentType.word()).suggests(poolIdSuggest)
+                                                .executes(ctx -> {
+                                                    var src = ctx.getSource();
+                                                    ServerPlayerEntity p = src.getPlayer();
+                                                    if (p == null) return 0;
+
+                                                    Zone z = findZoneUnderPlayer(p);
+                                                    if (z == null) {
+                                                        src.sendFeedback(() -> Text.literal("§7No grass zone here."), false);
+                                                        return 1;
+                                                    }
+                                                    String id = SpawnPoolLibrary.normalizeId(StringArgumentType.getString(ctx, "id"));
+                                                    boolean ok = SpawnPoolLibrary.put(id, z.spawns());
+                                                    src.sendFeedback(() -> Text.literal(
+                                                            ok
+                                                                    ? ("§aPool §e" + id + "§a saved from §e" + z.name() + "§a. §7Entries: §f" + z.spawns().size())
+                                                                    : "§cError while saving the pool."
+                                                    ), false);
+                                                    return 1;
+                                                })
+                                        )
+                                )
+                                // /grasszone pool paste <id> (sostituisce la pool con la clipboard: aggiorna tutte le zone collegate)
+                                .then(literal("paste")
+                                        .then(CommandManager.argument("id", StringArgumentType.word()).suggests(poolIdSuggest)
+                                                .executes(ctx -> {
+                                                    var src = ctx.getSource();
+                                                    ServerPlayerEntity p = src.getPlayer();
+                                                    if (p == null) return 0;
+
+                                                    List<SpawnEntry> clip = POOL_CLIPBOARD.get(p.getUuid());
+                                                    if (clip == null) {
+                                                        src.sendFeedback(() -> Text.literal("§cNessuna pool copiata. Usa §f/grasszone copypool§c prima."), false);
+                                                        return 1;
+                                                    }
+                                                    String id = SpawnPoolLibrary.normalizeId(StringArgumentType.getString(ctx, "id"));
+                                                    boolean ok = SpawnPoolLibrary.put(id, clip);
+                                                    src.sendFeedback(() -> Text.literal(
+                                                            ok
+                                                                    ? ("§aPool §e" + id + "§a updated. §7Entries: §f" + clip.size()
+                                                                    + " §7zones: §f" + GrassZonesConfig.poolRefCount(id))
+                                                                    : "§cError while saving the pool."
+                                                    ), false);
+                                                    return 1;
+                                                })
+                                        )
+                                )
+                                // /grasszone pool use <id> (collega la zona dove sei alla pool)
+                                .then(literal("use")
+                                        .then(CommandManager.argument("id", StringArgumentType.word()).suggests(poolIdSuggest)
+                                                .executes(ctx -> {
+                                                    var src = ctx.getSource();
+                                                    ServerPlayerEntity p = src.getPlayer();
+                                                    if (p == null) return 0;
+
+                                                    Zone z = findZoneUnderPlayer(p);
+                                                    if (z == null) {
+                                                        src.sendFeedback(() -> Text.literal("§7No grass zone here."), false);
+                                                        return 1;
+                                                    }
+                                                    String id = StringArgumentType.getString(ctx, "id");
+                                                    SpawnPoolLibrary.Pool pool = SpawnPoolLibrary.get(id);
+                                                    if (pool == null) {
+                                                        src.sendFeedback(() -> Text.literal("§cPool not found: §f" + id), false);
+                                                        return 1;
+                                                    }
+                                                    boolean ok = GrassZonesConfig.setZonePool(z.id(), pool.id());
+                                                    src.sendFeedback(() -> Text.literal(
+                                                            ok
+                                                                    ? ("§e" + z.name() + "§a now uses pool §e" + pool.id() + "§a.")
+                                                                    : "§cPool deleted meanwhile or error while saving the zone."
+                                                    ), false);
+                                                    return 1;
+                                                })
+                                        )
+                                )
+                                // /grasszone pool detach (la zona dove sei torna ad avere una copia propria degli spawn)
+                                .then(literal("detach")
+                                        .executes(ctx -> {
+                                            var src = ctx.getSource();
+                                            ServerPlayerEntity p = src.getPlayer();
+                                            if (p == null) return 0;
+
+                                            Zone z = findZoneUnderPlayer(p);
+                                            if (z == null) {
+                                                src.sendFeedback(() -> Text.literal("§7No grass zone here."), false);
+                                                return 1;
+                                            }
+                                            if (z.poolId() == null) {
+                                                src.sendFeedback(() -> Text.literal("§7This zone does not use a shared pool."), false);
+                                                return 1;
+                                            }
+                                            boolean ok = GrassZonesConfig.setZonePool(z.id(), null);
+                                            src.sendFeedback(() -> Text.literal(
+                                                    ok ? ("§e" + z.name() + "§a detached from pool §e" + z.poolId() + "§a.")
+                                                            : "§cError while saving the zone."
+                                            ), false);
+                                            return 1;
+                                        })
+                                )
+                                // /grasszone pool delete <id> (solo se nessuna zona la usa)
+                                .then(literal("delete")
+                                        .then(CommandManager.argument("id", StringArgumentType.word()).suggests(poolIdSuggest)
+                                                .executes(ctx -> {
+                                                    var src = ctx.getSource();
+                                                    String id = StringArgumentType.getString(ctx, "id");
+                                                    SpawnPoolLibrary.DeleteResult res = SpawnPoolLibrary.delete(id);
+                                                    src.sendFeedback(() -> Text.literal(switch (res) {
+                                                        case OK -> "§aPool deleted: §f" + id;
+                                                        case NOT_FOUND -> "§cPool not found: §f" + id;
+                                                        case IN_USE -> "§cPool §f" + id + "§c is used by §f"
+                                                                + GrassZonesConfig.poolRefCount(id) + "§c zones. Detach them first.";
+                                                    }), false);
+                                                    return 1;
+                                                })
+                                        )
+                                )
+                        )
+                        // /grasszone validate (ri-risolve species/aspect di zone e pool e mostra le specie non valide)
+                        .then(literal("validate").requires(src -> src.hasPermissionLevel(2))
+                                .executes(ctx -> {
+                                    var src = ctx.getSource();
+                                    List<SpeciesResolver.Issue> report = SpeciesResolver.reloadAll("command");
+                                    if (report.isEmpty()) {
+                                        src.sendFeedback(() -> Text.literal("§aAll spawn species resolved."), false);
+                                        return 1;
+                                    }
+                                    src.sendFeedback(() -> Text.literal("§6— Unknown species (" + report.size() + ") —"), false);
+                                    for (SpeciesResolver.Issue i : report) {
+                                        src.sendFeedback(() -> Text.literal(" §c" + i.species() + " §7in §f" + i.owner()), false);
+                                    }
+                                    return 1;
+                                })
+                        )
+                        // /grasszone wandshape <box|mask> (forma delle zone create con la Grass Wand in mano)
+                        .then(literal("wandshape").requires(src -> src.hasPermissionLevel(2))
+                                .then(CommandManager.argument("shape", StringArgumentType.word())
+                                        .suggests((ctx, b) -> CommandSource.suggestMatching(List.of("box", "mask"), b))
+                                        .executes(ctx -> {
+                                            var src = ctx.getSource();
+                                            ServerPlayerEntity p = src.getPlayer();
+                                            if (p == null) return 0;
+                                            String shape = StringArgumentType.getString(ctx, "shape").toLowerCase(Locale.ROOT);
+                                            if (!shape.equals("box") && !shape.equals("mask")) {
+                                                src.sendFeedback(() -> Text.literal("§cShape must be §fbox§c or §fmask§c."), false);
+                                                return 0;
+                                            }
+                                            ItemStack wand = p.getMainHandStack().isOf(ModItems.GRASS_WAND) ? p.getMainHandStack()
+                                                    : p.getOffHandStack().isOf(ModItems.GRASS_WAND) ? p.getOffHandStack() : ItemStack.EMPTY;
+                                            if (wand.isEmpty()) {
+                                                src.sendFeedback(() -> Text.literal("§cHold a Grass Wand."), false);
+                                                return 0;
+                                            }
+                                            GrassWandItem.setMaskShape(wand, shape.equals("mask"));
+                                            src.sendFeedback(() -> Text.literal("§aGrass Wand shape: §f" + shape), false);
+                                            return 1;
+                                        })
+                                )
+                        )
+                        // /grasszone encounters (contatori dell'admission controller)
+                        .then(literal("encounters").requires(src -> src.hasPermissionLevel(2))
+                                .executes(ctx -> {
+                                    var src = ctx.getSource();
+                                    src.sendFeedback(() -> Text.literal("§6— Encounter admission —"), false);
+                                    src.sendFeedback(() -> Text.literal(" §7Limits:§f " + GrassZonesSettings.getMaxEncounterStartsPerTick()
+                                            + "/tick, " + GrassZonesSettings.getMaxEncounterStartsPerSecond() + "/s"), false);
+                                    src.sendFeedback(() -> Text.literal(" §7In queue:§f " + GrassEncounterAdmission.queueSize()), false);
+                                    src.sendFeedback(() -> Text.literal(" §7Queued:§f " + GrassEncounterAdmission.queuedTotal()
+                                            + " §7Admitted:§f " + GrassEncounterAdmission.admittedTotal()
+                                            + " §7Dropped:§f " + GrassEncounterAdmission.droppedTotal()), false);
+                                    return 1;
+                                })
+                        )
+                        .then(literal("telemetry").requires(src -> src.hasPermissionLevel(2))
+                                // /grasszone telemetry (totali per esito e zone più attive)
+                                .executes(ctx -> {
+                                    sendTelemetrySummary(ctx.getSource());
+                                    return 1;
+                                })
+                                // /grasszone telemetry zone <name> (esiti, latenze e heatmap della zona)
+                                .then(literal("zone")
+                                        .then(CommandManager.argument("name", StringArgumentType.greedyString()).suggests(zoneNameSuggest)
+                                                .executes(ctx -> {
+                                                    var src = ctx.getSource();
+                                                    String name = StringArgumentType.getString(ctx, "name");
+                                                    Zone zone = getZoneByName(name);
+                                                    if (zone == null) {
+                                                        src.sendFeedback(() -> Text.literal("§cZone not found: §f" + name), false);
+                                                        return 1;
+                                                    }
+                                                    sendZoneTelemetry(src, zone);
+                                                    return 1;
+                                                })
+                                        )
+                                )
+                                // /grasszone telemetry dump (scrive subito il file JSON/Prometheus)
+                                .then(literal("dump")
+                                        .executes(ctx -> {
+                                            var src = ctx.getSource();
+                                            GrassEncounterTelemetry.dump(src.getServer(), f -> src.sendFeedback(() -> Text.literal(f == null
+                                                    ? "§cTelemetry dump failed (see log)."
+                                                    : "§aTelemetry written to §f" + f.getPath()), false));
+                                            return 1;
+                                        })
+                                )
+                                .then(literal("reset")
+                                        .executes(ctx -> {
+                                            GrassEncounterTelemetry.reset();
+                                            ctx.getSource().sendFeedback(() -> Text.literal("§aTelemetry reset."), false);
+                                            return 1;
+                                        })
+                                )
+                        )
+                        .then(literal("storage").requires(src -> src.hasPermissionLevel(2))
+                                // /grasszone storage export (scrive tutte le zone in zones/*.json)
+                                .then(literal("export")
+                                        .executes(ctx -> {
+                                            var src = ctx.getSource();
+                                            int n = GrassZonesConfig.exportJson();
+                                            src.sendFeedback(() -> Text.literal("§aExported §f" + n + "§a zones to JSON."), false);
+                                            return 1;
+                                        })
+                                )
+                                // /grasszone storage import (rilegge zones/*.json e salva nel formato attivo)
+                                .then(literal("import")
+                                        .executes(ctx -> {
+                                            var src = ctx.getSource();
+                                            int n = GrassZonesConfig.importJson();
+                                            src.sendFeedback(() -> Text.literal(
+                                                    n < 0
+                                                            ? "§cNo valid JSON zones found, nothing imported."
+                                                            : ("§aImported §f" + n + "§a zones from JSON.")
+                                            ), false);
+                                            return 1;
+                                        })
+                                )
+                                // /grasszone storage status (formato e zone con forma salvata nei chunk)
+                                .then(literal("status")
+                                        .executes(ctx -> {
+                                            var src = ctx.getSource();
+                                            src.sendFeedback(() -> Text.literal("§6— Grass zone storage —"), false);
+                                            src.sendFeedback(() -> Text.literal(" §7Format:§f " + (GrassZonesSettings.isBinaryStorage() ? "binary" : "json")
+                                                    + " §7Shapes:§f " + (GrassZonesSettings.isChunkShapeStorage() ? "chunk" : "config")), false);
+                                            src.sendFeedback(() -> Text.literal(" §7Zones:§f " + GrassZonesConfig.getAll().size()
+                                                    + " §7In chunks:§f " + ChunkZoneStore.catalogSize()
+                                                    + " §7(masked:§f " + ChunkZoneStore.maskedCount() + "§7)"
+                                                    + " §7Chunks awaiting load:§f " + ChunkZoneStore.queuedChunks()), false);
+                                            return 1;
+                                        })
+                                )
+                        )
         );
     }
 
     // ===== Helpers =====
 
+    private static void sendTelemetrySummary(ServerCommandSource src) {
+        src.sendFeedback(() -> Text.literal("§6— Encounter telemetry —"), false);
+        StringBuilder line = new StringBuilder();
+        for (GrassEncounterTelemetry.Outcome o : GrassEncounterTelemetry.Outcome.values()) {
+            long n = GrassEncounterTelemetry.total(o);
+            if (n == 0) continue;
+            line.append(" §7").append(o.name().toLowerCase(Locale.ROOT)).append(":§f ").append(n);
+        }
+        String totals = line.isEmpty() ? " §7No encounters recorded." : line.toString();
+        src.sendFeedback(() -> Text.literal(totals), false);
+
+        List<Map.Entry<UUID, GrassEncounterTelemetry.ZoneStats>> top = GrassEncounterTelemetry.zones().entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().count(GrassEncounterTelemetry.Outcome.STARTED),
+                        a.getValue().count(GrassEncounterTelemetry.Outcome.STARTED)))
+                .limit(5)
+                .toList();
+        for (var e : top) {
+            var st = e.getValue();
+            var start = st.startAll();
+            src.sendFeedback(() -> Text.literal(" §e" + GrassEncounterTelemetry.zoneLabel(e.getKey())
+                    + " §7started:§f " + st.count(GrassEncounterTelemetry.Outcome.STARTED)
+                    + " §7start p50/p95:§f " + formatMs(start.quantileMs(0.5)) + "/" + formatMs(start.quantileMs(0.95))), false);
+        }
+    }
+
+    private static void sendZoneTelemetry(ServerCommandSource src, Zone zone) {
+        GrassEncounterTelemetry.ZoneStats st = GrassEncounterTelemetry.zone(zone.id());
+        src.sendFeedback(() -> Text.literal("§6— Telemetry: §e" + zone.name() + " §6—"), false);
+        if (st == null) {
+            src.sendFeedback(() -> Text.literal(" §7No encounters recorded."), false);
+            return;
+        }
+        for (GrassEncounterTelemetry.Outcome o : GrassEncounterTelemetry.Outcome.values()) {
+            long n = st.count(o);
+            if (n == 0) continue;
+            var h = st.start(o);
+            String lat = h.count() == 0 ? "" : " §7start p50/p95/p99:§f " + formatMs(h.quantileMs(0.5))
+                    + "/" + formatMs(h.quantileMs(0.95)) + "/" + formatMs(h.quantileMs(0.99));
+            src.sendFeedback(() -> Text.literal(" §7" + o.name().toLowerCase(Locale.ROOT) + ":§f " + n + lat), false);
+        }
+        var prep = st.prepare();
+        if (prep.count() > 0) {
+            src.sendFeedback(() -> Text.literal(" §7prepare p50/p95:§f " + formatMs(prep.quantileMs(0.5))
+                    + "/" + formatMs(prep.quantileMs(0.95))), false);
+        }
+        for (String row : heatmapRows(st.heat(), 32, 12)) {
+            src.sendFeedback(() -> Text.literal(row), false);
+        }
+    }
+
+    /** Heatmap testuale (nord in alto), celle accorpate per stare in maxCols x maxRows. */
+    private static List<String> heatmapRows(Map<Long, Long> heat, int maxCols, int maxRows) {
+        if (heat.isEmpty()) return List.of();
+        int x0 = Integer.MAX_VALUE, z0 = Integer.MAX_VALUE, x1 = Integer.MIN_VALUE, z1 = Integer.MIN_VALUE;
+        for (long k : heat.keySet()) {
+            int cx = GrassEncounterTelemetry.cellX(k), cz = GrassEncounterTelemetry.cellZ(k);
+            x0 = Math.min(x0, cx); x1 = Math.max(x1, cx);
+            z0 = Math.min(z0, cz); z1 = Math.max(z1, cz);
+        }
+        int stepX = Math.max(1, (x1 - x0 + maxCols) / maxCols);
+        int stepZ = Math.max(1, (z1 - z0 + maxRows) / maxRows);
+        int cols = (x1 - x0) / stepX + 1, rows = (z1 - z0) / stepZ + 1;
+        long[][] grid = new long[rows][cols];
+        long max = 0;
+        for (var e : heat.entrySet()) {
+            int c = (GrassEncounterTelemetry.cellX(e.getKey()) - x0) / stepX;
+            int r = (GrassEncounterTelemetry.cellZ(e.getKey()) - z0) / stepZ;
+            grid[r][c] += e.getValue();
+            max = Math.max(max, grid[r][c]);
+        }
+        String[] shades = {"§8·", "§2█", "§a█", "§e█", "§6█", "§c█"};
+        List<String> out = new ArrayList<>(rows + 1);
+        int cell = GrassEncounterTelemetry.CELL_SIZE;
+        out.add(" §7Heatmap from §f" + (x0 * cell) + "," + (z0 * cell) + " §7(" + (stepX * cell) + "x" + (stepZ * cell)
+                + " blocks per cell, max §f" + max + "§7)");
+        for (long[] row : grid) {
+            StringBuilder sb = new StringBuilder(" ");
+            for (long v : row) {
+                int level = v == 0 ? 0 : 1 + (int) Math.min(shades.length - 2, (v * (shades.length - 1) - 1) / max);
+                sb.append(shades[level]);
+            }
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+    private static String formatMs(double ms) {
+        if (Double.isNaN(ms)) return "-";
+        if (Double.isInfinite(ms)) return ">100ms";
+        return (ms < 1 ? String.format(Locale.ROOT, "%.2f", ms) : String.format(Locale.ROOT, "%.1f", ms)) + "ms";
+    }
+
     private static Zone getZoneByName(String name) {
         if (name == null) return null;
         String needle = name.trim().toLowerCase(Locale.ROOT);
@@ -283,70 +667,29 @@ public class GrassZoneCommands {
     }
 
     private static Zone findZoneUnderPlayer(ServerPlayerEntity p) {
-        var wk = p.getWorld().getRegistryKey();
+        var world = p.getServerWorld();
         BlockPos bp = p.getBlockPos();
-        var zones = GrassZonesConfig.findAt(wk, bp.getX(), bp.getY(), bp.getZ());
+        var zones = ChunkZoneStore.findAt(world, bp.getX(), bp.getY(), bp.getZ());
         if (zones.isEmpty()) {
-            zones = GrassZonesConfig.findAt(wk, bp.getX(), bp.getY() - 1, bp.getZ());
+            zones = ChunkZoneStore.findAt(world, bp.getX(), bp.getY() - 1, bp.getZ());
         }
         return zones.isEmpty() ? null : zones.getFirst();
     }
 
-    /** Rimuove short_grass / grass e tall_grass su TUTTO il volume verticale della zona. */
-    private static int clearGrassInZone(World world, GrassZonesConfig.Zone zone) {
-        int removed = 0;
-        Block shortGrass = resolveShortGrass();
-
-        for (int y = zone.minY(); y <= zone.maxY(); y++) {
-            for (int x = zone.minX(); x <= zone.maxX(); x++) {
-                for (int zed = zone.minZ(); zed <= zone.maxZ(); zed++) {
-                    BlockPos pos = new BlockPos(x, y, zed);
-                    BlockState st = world.getBlockState(pos);
-
-                    // Short grass (o legacy grass)
-                    if (shortGrass != null && st.isOf(shortGrass)) {
-                        world.setBlockState(pos, Blocks.AIR.getDefaultState(), 3);
-                        removed++;
-                        continue;
-                    }
-
-                    // Tall grass: gestisce upper/lower e rimuove entrambe le metà
-                    if (st.isOf(Blocks.TALL_GRASS)) {
-                        var half = st.get(Properties.DOUBLE_BLOCK_HALF);
-                        if (half == DoubleBlockHalf.LOWER) {
-                            BlockPos up = pos.up();
-                            if (world.getBlockState(up).isOf(Blocks.TALL_GRASS)) {
-                                world.setBlockState(up, Blocks.AIR.getDefaultState(), 3);
-                            }
-                            world.setBlockState(pos, Blocks.AIR.getDefaultState(), 3);
-                        } else {
-                            BlockPos down = pos.down();
-                            if (world.getBlockState(down).isOf(Blocks.TALL_GRASS)) {
-                                world.setBlockState(down, Blocks.AIR.getDefaultState(), 3);
-                            }
-                            world.setBlockState(pos, Blocks.AIR.getDefaultState(), 3);
-                        }
-                        removed++;
-                        continue;
-                    }
-
-                    // Caso edge: tall_grass sotto (rimozione a coppia)
-                    BlockState below = world.getBlockState(pos.down());
-                    if (below.isOf(Blocks.TALL_GRASS)) {
-                        world.setBlockState(pos, Blocks.AIR.getDefaultState(), 3);
-                        world.setBlockState(pos.down(), Blocks.AIR.getDefaultState(), 3);
-                        removed++;
-                    }
-                }
-            }
+    /**
+     * Rimuove short_grass / grass e tall_grass su TUTTO il volume verticale della zona
+     * (solo sui voxel della mask, se la zona ne ha una; se vive nei chunk la slice è letta da ogni chunk raggiunto).
+     * Eseguito a section per tick (GrassEditJobManager); onDone riceve il numero di piante rimosse.
+     */
+    private static void clearGrassInZone(World world, GrassZonesConfig.Zone zone, IntConsumer onDone) {
+        var shape = ChunkZoneStore.chunkShape(zone);
+        if (shape != null) {
+            GrassEditJobManager.get().submit(world, GrassEditJobManager.Mode.CLEAR,
+                    zone.minX(), zone.minY(), zone.minZ(), zone.maxX(), zone.maxY(), zone.maxZ(), shape, onDone);
+            return;
         }
-        return removed;
-    }
-
-    private static Block resolveShortGrass() {
-        Optional<Block> a = Registries.BLOCK.getOrEmpty(Identifier.of("minecraft", "short_grass"));
-        if (a.isPresent()) return a.get();
-        Optional<Block> b = Registries.BLOCK.getOrEmpty(Identifier.of("minecraft", "grass"));
-        return b.orElse(Blocks.AIR);
+        GrassEditJobManager.get().submit(world, GrassEditJobManager.Mode.CLEAR,
+                zone.minX(), zone.minY(), zone.minZ(), zone.maxX(), zone.maxY(), zone.maxZ(),
+                zone.mask(), null, onDone);
     }
 }
@@ -2,6 +2,9 @@ package com.cobblemon.khataly.mapkit.command.custom;
 
 import com.cobblemon.khataly.mapkit.config.LevelCapConfig;
 import com.cobblemon.khataly.mapkit.config.PlayerLevelCapProgress;
+import com.cobblemon.khataly.mapkit.event.server.custom.LevelCapEnforcer;
+import com.cobblemon.khataly.mapkit.event.server.custom.MasterBallDetector;
+import com.cobblemon.khataly.mapkit.util.ExpiringSet;
 import com.cobblemon.khataly.mapkit.util.LevelCapService;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.BoolArgumentType;
@@ -169,6 +172,27 @@ public class LevelCapCommands {
                 })
         );
 
+        // /levelcap stats
+        root.then(CommandManager.literal("stats")
+                .requires(src -> src.hasPermissionLevel(2))
+                .executes(ctx -> {
+                    var src = ctx.getSource();
+                    src.sendMessage(Text.literal("§6-- LevelCap Stats --"));
+                    src.sendMessage(Text.literal("§7Cached effective caps: §f" + LevelCapService.cachedCount()));
+                    for (ExpiringSet<?> t : LevelCapEnforcer.stateTables()) {
+                        src.sendMessage(Text.literal("§7" + t.name() + ": §f" + t.size()
+                                + " §7| expired: §f" + t.expiredTotal()
+                                + " §7| evicted: §f" + t.evictedTotal()));
+                    }
+                    src.sendMessage(Text.literal("§7Master Ball checks: §f" + MasterBallDetector.hits()
+                            + " §7| slow fallback: §f" + MasterBallDetector.slowHits()));
+                    for (String cls : MasterBallDetector.slowClasses()) {
+                        src.sendMessage(Text.literal("  §8slow: §7" + cls));
+                    }
+                    return 1;
+                })
+        );
+
         // ===== Admin: PLAYER tools (input = label, internamente usa key) =====
         var playerRoot = CommandManager.literal("player").requires(src -> src.hasPermissionLevel(2));
 
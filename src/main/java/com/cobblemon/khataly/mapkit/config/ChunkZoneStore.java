@@ -0,0 +1,677 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.DataResult;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.fabricmc.fabric.api.attachment.v1.AttachmentRegistry;
+import net.fabricmc.fabric.api.attachment.v1.AttachmentTarget;
+import net.fabricmc.fabric.api.attachment.v1.AttachmentType;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Uuids;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Forma delle zone salvata nei chunk (GrassZonesSettings.zoneShapeStorage = "chunk"):
+ *  - ogni chunk toccato da una zona porta un attachment persistente (data attachment API di Fabric) con una Slice
+ *    per zona: box ritagliato sul chunk + eventuale porzione di ZoneMask; viene salvato e caricato col chunk;
+ *  - GrassZonesConfig resta il catalogo globale (nome, box, spawn/pool) e GrassZoneIndex indicizza ancora tutte
+ *    le zone di tutte le dimensioni: solo le mask smettono di stare in memoria e pesano per i chunk caricati;
+ *  - findAt/contains leggono l'attachment del chunk del punto (chunk non caricato = nessuna zona);
+ *  - le modifiche alle zone vengono applicate a ogni tick leggendo il delta di GrassZonesConfig: subito nei chunk
+ *    caricati, in coda (applicata al CHUNK_LOAD) per gli altri; nessun chunk viene caricato da qui.
+ *    La mask lascia la config solo quando la coda della zona è vuota, cioè dopo che ogni chunk con una slice
+ *    è stato caricato almeno una volta: fino ad allora la mask resta in memoria (le slice in coda ne condividono i bitset);
+ *  - un piccolo indice (zones_chunk_catalog.json) ricorda quali zone sono già nei chunk, con quale box e se
+ *    hanno ancora operazioni in coda (riscritte dopo un riavvio); le zone eliminate restano come tombstone:
+ *    solo le loro slice vengono potate, mai quelle di zone semplicemente assenti dalla config (es. regione in quarantena);
+ *  - tornando a "config" le mask vengono ricostruite dai chunk caricati e dal salvataggio su disco degli altri;
+ *    finché una forma non è tornata in config, i lookup di quella zona continuano a leggere le slice.
+ * Thread server.
+ */
+public final class ChunkZoneStore {
+    private ChunkZoneStore() {}
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final File CATALOG_FILE = new File("config/cobblemonmapkit/zones_chunk_catalog.json");
+
+    // ======== DATI NEL CHUNK ========
+
+    /**
+     * Porzione di una zona dentro un chunk; mask null = tutto il box.
+     * gen = scrittura della zona a cui appartiene: slice di una scrittura precedente sono scadute.
+     */
+    public record Slice(UUID zoneId, long gen, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, ZoneMask mask) {
+        public boolean contains(int x, int y, int z) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ
+                    && (mask == null || mask.contains(x, y, z));
+        }
+    }
+
+    public record ChunkZones(List<Slice> slices) {
+        static final ChunkZones EMPTY = new ChunkZones(List.of());
+    }
+
+    private static final Codec<ZoneMask> MASK_CODEC = Codec.BYTE_BUFFER.comapFlatMap(buf -> {
+        byte[] bytes = new byte[buf.remaining()];
+        buf.duplicate().get(bytes);
+        try {
+            return DataResult.success(ZoneMask.decode(bytes));
+        } catch (IOException e) {
+            return DataResult.error(() -> "invalid zone mask: " + e.getMessage());
+        }
+    }, m -> ByteBuffer.wrap(m.encode()));
+
+    private static final Codec<Slice> SLICE_CODEC = RecordCodecBuilder.create(i -> i.group(
+            Uuids.CODEC.fieldOf("zone").forGetter(Slice::zoneId),
+            Codec.LONG.optionalFieldOf("gen", 0L).forGetter(Slice::gen),
+            Codec.INT.fieldOf("minX").forGetter(Slice::minX),
+            Codec.INT.fieldOf("minY").forGetter(Slice::minY),
+            Codec.INT.fieldOf("minZ").forGetter(Slice::minZ),
+            Codec.INT.fieldOf("maxX").forGetter(Slice::maxX),
+            Codec.INT.fieldOf("maxY").forGetter(Slice::maxY),
+            Codec.INT.fieldOf("maxZ").forGetter(Slice::maxZ),
+            MASK_CODEC.optionalFieldOf("mask").forGetter(s -> Optional.ofNullable(s.mask()))
+    ).apply(i, (id, gen, x0, y0, z0, x1, y1, z1, mask) -> new Slice(id, gen, x0, y0, z0, x1, y1, z1, mask.orElse(null))));
+
+    private static final Codec<ChunkZones> CODEC = SLICE_CODEC.listOf()
+            .xmap(l -> new ChunkZones(List.copyOf(l)), ChunkZones::slices);
+
+    public static final AttachmentType<ChunkZones> ATTACHMENT = AttachmentRegistry.<ChunkZones>builder()
+            .persistent(CODEC)
+            .buildAndRegister(Identifier.of(CobblemonMapKitMod.MOD_ID, "grass_zones"));
+
+    // ======== CATALOGO DELLE ZONE GIÀ NEI CHUNK ========
+
+    /**
+     * Box con cui la zona è stata scritta nei chunk; masked = la forma vive solo nei chunk;
+     * pending = slice ancora in coda per chunk non caricati (da riscrivere dopo un riavvio);
+     * gen = scrittura corrente (le slice con gen diversa sono scadute e vengono potate al caricamento);
+     * removed = zona eliminata (tombstone): le sue slice vengono potate al caricamento dei chunk.
+     */
+    private static final class Entry {
+        String world;
+        int minX, minY, minZ, maxX, maxY, maxZ;
+        boolean masked;
+        boolean pending;
+        long gen;
+        boolean removed;
+        transient ZoneMask stamped; // mask della config già scritta/accodata (stessa istanza = niente da rifare)
+
+        boolean sameBox(GrassZonesConfig.Zone z) {
+            return world.equals(z.worldKey().getValue().toString())
+                    && minX == z.minX() && maxX == z.maxX() && minZ == z.minZ() && maxZ == z.maxZ()
+                    && minY == z.minY() && maxY == z.maxY();
+        }
+    }
+
+    private static final Map<UUID, Entry> CATALOG = new HashMap<>();
+    private static MinecraftServer server;
+    private static long revision = -1;
+    private static boolean catalogDirty;
+    private static long lastGen;
+    /** Zone con la forma ancora solo nei chunk mentre si è in "config" (ritorno in corso o fallito). */
+    private static int chunkOnlyShapes;
+    private static long nextRestoreTick;
+    /** Intervallo tra due tentativi di riportare in config le forme rimaste nei chunk. */
+    private static final int RESTORE_RETRY_TICKS = 1200;
+
+    // ======== OPERAZIONI IN CODA PER CHUNK NON CARICATI ========
+
+    /** world -> chunk -> zona -> slice da scrivere; applicate al CHUNK_LOAD. */
+    private static final Map<RegistryKey<World>, Long2ObjectOpenHashMap<Map<UUID, Slice>>> PENDING = new HashMap<>();
+    /** Slice in coda per zona. */
+    private static final Map<UUID, Integer> PENDING_BY_ZONE = new HashMap<>();
+    /** Zone le cui slice in coda sono state tutte scritte: la mask può lasciare la config. */
+    private static final Set<UUID> SETTLED = new HashSet<>();
+
+    /** Zone di cui si stanno rileggendo le slice (ritorno a "config"). */
+    private static final Set<UUID> RESTORING = new HashSet<>();
+
+    public static void register() {
+        // prima dei chunk di spawn: la potatura al CHUNK_LOAD legge il catalogo
+        ServerLifecycleEvents.SERVER_STARTING.register(srv -> {
+            loadCatalog();
+            recountChunkOnly();
+        });
+        ServerLifecycleEvents.SERVER_STARTED.register(srv -> {
+            server = srv;
+            revision = -1;
+        });
+        ServerLifecycleEvents.SERVER_STOPPED.register(srv -> {
+            server = null;
+            CATALOG.clear();
+            clearQueue();
+            RESTORING.clear();
+            chunkOnlyShapes = 0;
+            nextRestoreTick = 0;
+        });
+        ServerTickEvents.END_SERVER_TICK.register(ChunkZoneStore::tick);
+        // Scritture rimandate e slice scadute (zona eliminata o riscritta mentre il chunk era scarico)
+        ServerChunkEvents.CHUNK_LOAD.register((world, chunk) -> {
+            if (!GrassZonesSettings.isChunkShapeStorage()) return;
+            applyQueued(world, chunk);
+            pruneStale(chunk);
+        });
+    }
+
+    // ======== LOOKUP ========
+
+    /**
+     * Zone che contengono il punto: attachment del chunk in modalità "chunk", altrimenti l'indice globale
+     * (più le slice delle zone la cui forma non è ancora tornata in config).
+     */
+    public static List<GrassZonesConfig.Zone> findAt(ServerWorld world, int x, int y, int z) {
+        boolean chunkMode = GrassZonesSettings.isChunkShapeStorage();
+        if (!chunkMode && chunkOnlyShapes == 0) return GrassZonesConfig.findAt(world.getRegistryKey(), x, y, z);
+        List<GrassZonesConfig.Zone> out = null;
+        if (!chunkMode) {
+            for (GrassZonesConfig.Zone zone : GrassZonesConfig.findAt(world.getRegistryKey(), x, y, z)) {
+                if (shapeInChunks(zone)) continue; // il box da solo sarebbe troppo largo: vale la slice
+                if (out == null) out = new ArrayList<>(2);
+                out.add(zone);
+            }
+        }
+        ChunkZones data = loadedData(world, x >> 4, z >> 4);
+        if (data != null) {
+            for (Slice s : data.slices()) {
+                if (!s.contains(x, y, z) || !isCurrent(s)) continue;
+                GrassZonesConfig.Zone zone = GrassZonesConfig.get(s.zoneId());
+                if (zone == null || (!chunkMode && !shapeInChunks(zone))) continue;
+                if (out == null) out = new ArrayList<>(2);
+                out.add(zone);
+            }
+        }
+        return out == null ? List.of() : out;
+    }
+
+    /** Appartenenza del punto alla zona (tramite la slice del chunk se la forma vive nei chunk). */
+    public static boolean contains(ServerWorld world, GrassZonesConfig.Zone zone, int x, int y, int z) {
+        if (!zone.contains(x, y, z, world.getRegistryKey())) return false; // box del catalogo (= bounding box)
+        if (!GrassZonesSettings.isChunkShapeStorage() && !shapeInChunks(zone)) return true;
+        ChunkZones data = loadedData(world, x >> 4, z >> 4);
+        if (data == null) return false;
+        for (Slice s : data.slices()) {
+            if (s.zoneId().equals(zone.id()) && isCurrent(s)) return s.contains(x, y, z);
+        }
+        return false;
+    }
+
+    /** La forma della zona è solo nelle slice dei chunk (la config ha solo il bounding box). */
+    private static boolean shapeInChunks(GrassZonesConfig.Zone zone) {
+        if (zone.mask() != null) return false;
+        Entry e = CATALOG.get(zone.id());
+        return e != null && !e.removed && e.masked;
+    }
+
+    /**
+     * Forma della zona per i world-edit che caricano comunque i chunk (GrassEditJobManager):
+     * null se la mask è in config (o la zona è solo un box), altrimenti la slice letta da ogni chunk raggiunto.
+     */
+    public static Function<WorldChunk, ZoneMask> chunkShape(GrassZonesConfig.Zone zone) {
+        if (!shapeInChunks(zone)) return null;
+        Entry e = CATALOG.get(zone.id());
+        UUID id = zone.id();
+        long gen = e.gen;
+        return chunk -> {
+            for (Slice s : dataOf(chunk).slices()) {
+                if (s.zoneId().equals(id) && s.gen() == gen) return s.mask();
+            }
+            return EMPTY_MASK;
+        };
+    }
+
+    private static final ZoneMask EMPTY_MASK = new ZoneMask.Builder().build();
+
+    public static int catalogSize() {
+        int n = 0;
+        for (Entry e : CATALOG.values()) if (!e.removed) n++;
+        return n;
+    }
+
+    public static int maskedCount() {
+        int n = 0;
+        for (Entry e : CATALOG.values()) if (e.masked && !e.removed) n++;
+        return n;
+    }
+
+    /** Chunk con slice in attesa di caricamento. */
+    public static int queuedChunks() {
+        int n = 0;
+        for (var byChunk : PENDING.values()) n += byChunk.size();
+        return n;
+    }
+
+    // ======== APPLICAZIONE DELLE MODIFICHE ========
+
+    private static void tick(MinecraftServer srv) {
+        if (server == null) return;
+        if (!GrassZonesSettings.isChunkShapeStorage()) {
+            // subito al cambio di modalità, poi a intervalli per le forme non ancora tornate (lettura fallita)
+            if (srv.getTicks() >= nextRestoreTick && (!CATALOG.isEmpty() || !PENDING.isEmpty())) {
+                nextRestoreTick = srv.getTicks() + RESTORE_RETRY_TICKS;
+                restoreToConfig();
+            }
+            return;
+        }
+        nextRestoreTick = 0;
+        List<UUID> strip = new ArrayList<>();
+
+        if (revision != GrassZonesConfig.revision()) {
+            GrassZonesConfig.Delta delta = GrassZonesConfig.changesSince(revision);
+            revision = delta.revision();
+
+            if (delta.reset()) {
+                for (var en : CATALOG.entrySet()) {
+                    Entry e = en.getValue();
+                    if (e.removed || GrassZonesConfig.get(en.getKey()) != null) continue;
+                    // assente dalla config ma mai eliminata: la forma nei chunk resta (nessuna potatura)
+                    CobblemonMapKitMod.LOGGER.warn("[ChunkZoneStore] Zone {} is stored in chunks but missing from config: its slices are kept.",
+                            en.getKey());
+                }
+            }
+            for (UUID id : delta.removed()) catalogDirty |= unstamp(id);
+
+            for (GrassZonesConfig.Zone z : delta.upserts()) {
+                Entry e = CATALOG.get(z.id());
+                if (e != null && e.removed) e = null; // zona ricreata con lo stesso id
+                boolean needed = e == null                                   // zona non ancora scritta
+                        || (z.mask() != null && z.mask() != e.stamped)       // nuova forma da spostare nei chunk
+                        || (!e.masked && !e.sameBox(z))                      // box modificato
+                        || (e.pending && e.stamped == null);                 // coda persa (riavvio)
+                if (!needed) continue;
+                if (stamp(z)) {
+                    catalogDirty = true;
+                    if (z.mask() != null && !PENDING_BY_ZONE.containsKey(z.id())) strip.add(z.id());
+                }
+            }
+        }
+
+        // zone completate al caricamento dei loro ultimi chunk
+        for (UUID id : SETTLED) {
+            Entry e = CATALOG.get(id);
+            if (e == null || e.removed || PENDING_BY_ZONE.containsKey(id)) continue;
+            e.pending = false;
+            catalogDirty = true;
+            GrassZonesConfig.Zone z = GrassZonesConfig.get(id);
+            if (z != null && z.mask() != null && z.mask() == e.stamped) strip.add(id);
+        }
+        SETTLED.clear();
+
+        if (catalogDirty) {
+            catalogDirty = false;
+            saveCatalog();
+        }
+        // la mask ora vive nei chunk: il catalogo tiene solo il bounding box
+        for (UUID id : strip) GrassZonesConfig.setZoneMask(id, null);
+    }
+
+    /**
+     * Scrive le slice della zona nei chunk del suo box (sostituendo quelle precedenti):
+     * subito nei chunk caricati, in coda per gli altri (nessun caricamento forzato).
+     * Le slice precedenti rimaste nei chunk scarichi hanno una gen vecchia e vengono potate al caricamento.
+     */
+    private static boolean stamp(GrassZonesConfig.Zone z) {
+        ServerWorld world = server.getWorld(z.worldKey());
+        if (world == null) {
+            CobblemonMapKitMod.LOGGER.warn("[ChunkZoneStore] Dimension {} not loaded, zone {} kept in config", z.worldKey().getValue(), z.name());
+            return false;
+        }
+        Entry old = CATALOG.get(z.id());
+        if (old != null && !old.removed) dropOutside(z.id(), old, z);
+
+        ZoneMask mask = z.mask();
+        long gen = nextGen();
+        Long2ObjectOpenHashMap<ZoneMask> columns = mask == null ? null : mask.splitByColumn();
+        RegistryKey<World> wk = world.getRegistryKey();
+        for (int cx = z.minX() >> 4; cx <= z.maxX() >> 4; cx++) {
+            for (int cz = z.minZ() >> 4; cz <= z.maxZ() >> 4; cz++) {
+                Slice slice = null;
+                if (columns != null) {
+                    ZoneMask col = columns.get(ChunkPos.toLong(cx, cz));
+                    if (col != null) {
+                        slice = new Slice(z.id(), gen, col.minX(), col.minY(), col.minZ(), col.maxX(), col.maxY(), col.maxZ(), col);
+                    }
+                } else {
+                    slice = new Slice(z.id(), gen,
+                            Math.max(z.minX(), cx << 4), z.minY(), Math.max(z.minZ(), cz << 4),
+                            Math.min(z.maxX(), (cx << 4) + 15), z.maxY(), Math.min(z.maxZ(), (cz << 4) + 15), null);
+                }
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz);
+                if (chunk != null) putSlice(chunk, z.id(), slice);
+                else if (slice != null) queue(wk, cx, cz, slice);
+                else dequeue(wk, cx, cz, z.id());
+            }
+        }
+
+        Entry e = new Entry();
+        e.world = z.worldKey().getValue().toString();
+        e.minX = z.minX(); e.minY = z.minY(); e.minZ = z.minZ();
+        e.maxX = z.maxX(); e.maxY = z.maxY(); e.maxZ = z.maxZ();
+        e.masked = mask != null;
+        e.pending = PENDING_BY_ZONE.containsKey(z.id());
+        e.gen = gen;
+        e.stamped = mask;
+        CATALOG.put(z.id(), e);
+        return true;
+    }
+
+    /** Box cambiato: toglie la zona dai chunk caricati del vecchio box fuori dal nuovo e ne scarta le slice in coda. */
+    private static void dropOutside(UUID id, Entry old, GrassZonesConfig.Zone z) {
+        ServerWorld world = worldOf(old);
+        if (world == null) return;
+        boolean sameWorld = old.world.equals(z.worldKey().getValue().toString());
+        for (int cx = old.minX >> 4; cx <= old.maxX >> 4; cx++) {
+            for (int cz = old.minZ >> 4; cz <= old.maxZ >> 4; cz++) {
+                if (sameWorld && cx >= z.minX() >> 4 && cx <= z.maxX() >> 4 && cz >= z.minZ() >> 4 && cz <= z.maxZ() >> 4) continue;
+                dequeue(world.getRegistryKey(), cx, cz, id);
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz);
+                if (chunk != null) putSlice(chunk, id, null);
+            }
+        }
+    }
+
+    private static long nextGen() {
+        lastGen = Math.max(System.currentTimeMillis(), lastGen + 1);
+        return lastGen;
+    }
+
+    /**
+     * Zona eliminata: rimuove le slice dai chunk caricati; la voce resta come tombstone
+     * così le slice nei chunk scarichi vengono potate al loro caricamento.
+     */
+    private static boolean unstamp(UUID id) {
+        Entry e = CATALOG.get(id);
+        if (e == null || e.removed) return false;
+        e.removed = true;
+        e.masked = false;
+        e.pending = false;
+        e.stamped = null;
+        ServerWorld world = worldOf(e);
+        if (world == null) return true;
+        for (int cx = e.minX >> 4; cx <= e.maxX >> 4; cx++) {
+            for (int cz = e.minZ >> 4; cz <= e.maxZ >> 4; cz++) {
+                dequeue(world.getRegistryKey(), cx, cz, id);
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz);
+                if (chunk != null) putSlice(chunk, id, null);
+            }
+        }
+        return true;
+    }
+
+    private static void queue(RegistryKey<World> wk, int cx, int cz, Slice slice) {
+        Map<UUID, Slice> ops = PENDING.computeIfAbsent(wk, k -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(ChunkPos.toLong(cx, cz), k -> new HashMap<>());
+        if (ops.put(slice.zoneId(), slice) == null) PENDING_BY_ZONE.merge(slice.zoneId(), 1, Integer::sum);
+    }
+
+    private static void dequeue(RegistryKey<World> wk, int cx, int cz, UUID id) {
+        Long2ObjectOpenHashMap<Map<UUID, Slice>> byChunk = PENDING.get(wk);
+        if (byChunk == null) return;
+        long key = ChunkPos.toLong(cx, cz);
+        Map<UUID, Slice> ops = byChunk.get(key);
+        if (ops == null || ops.remove(id) == null) return;
+        if (ops.isEmpty()) byChunk.remove(key);
+        if (byChunk.isEmpty()) PENDING.remove(wk);
+        settle(id);
+    }
+
+    private static void applyQueued(ServerWorld world, WorldChunk chunk) {
+        Long2ObjectOpenHashMap<Map<UUID, Slice>> byChunk = PENDING.get(world.getRegistryKey());
+        if (byChunk == null) return;
+        Map<UUID, Slice> ops = byChunk.remove(chunk.getPos().toLong());
+        if (byChunk.isEmpty()) PENDING.remove(world.getRegistryKey());
+        if (ops == null) return;
+
+        List<Slice> slices = new ArrayList<>(dataOf(chunk).slices());
+        for (Slice slice : ops.values()) {
+            slices.removeIf(s -> s.zoneId().equals(slice.zoneId()));
+            slices.add(slice);
+            settle(slice.zoneId());
+        }
+        write(chunk, slices);
+    }
+
+    private static void settle(UUID id) {
+        if (PENDING_BY_ZONE.merge(id, -1, Integer::sum) <= 0) {
+            PENDING_BY_ZONE.remove(id);
+            SETTLED.add(id);
+        }
+    }
+
+    private static void clearQueue() {
+        PENDING.clear();
+        PENDING_BY_ZONE.clear();
+        SETTLED.clear();
+    }
+
+    /**
+     * Ritorno a "config": le mask tornano nelle zone, gli attachment dei chunk caricati vengono rimossi.
+     * Le slice dei chunk scarichi vengono lette dal salvataggio su disco in modo asincrono (niente caricamento
+     * dei chunk) e restano nei file: in "config" vengono ignorate e al prossimo passaggio a "chunk" riscritte o potate.
+     */
+    private static void restoreToConfig() {
+        clearQueue();
+        revision = -1; // al ritorno in "chunk" tutte le zone vengono riscritte
+        MinecraftServer srv = server;
+        boolean changed = false;
+        for (var it = CATALOG.entrySet().iterator(); it.hasNext(); ) {
+            var en = it.next();
+            UUID id = en.getKey();
+            Entry e = en.getValue();
+            if (e.removed || RESTORING.contains(id)) continue; // i tombstone servono ancora al ritorno in "chunk"
+            ServerWorld world = worldOf(e);
+            GrassZonesConfig.Zone zone = GrassZonesConfig.get(id);
+            if (e.masked && (zone == null || zone.mask() == null)) {
+                // zona assente o dimensione non caricata: la forma resta nei chunk, si riprova più tardi
+                if (world == null || zone == null) continue;
+                RESTORING.add(id);
+                gather(world, id, e).whenComplete((mask, err) -> srv.execute(() -> finishRestore(srv, id, e, mask, err)));
+                continue;
+            }
+            if (world != null) clearLoaded(world, id, e);
+            it.remove();
+            changed = true;
+        }
+        if (changed) saveCatalog();
+        recountChunkOnly();
+    }
+
+    private static void recountChunkOnly() {
+        int n = 0;
+        for (var en : CATALOG.entrySet()) {
+            GrassZonesConfig.Zone zone = GrassZonesConfig.get(en.getKey());
+            if (zone != null && shapeInChunks(zone)) n++;
+        }
+        chunkOnlyShapes = n;
+    }
+
+    private static void finishRestore(MinecraftServer srv, UUID id, Entry e, ZoneMask mask, Throwable err) {
+        if (server != srv) return;
+        RESTORING.remove(id);
+        // di nuovo in "chunk" (o zona riscritta): le slice restano valide
+        if (GrassZonesSettings.isChunkShapeStorage() || CATALOG.get(id) != e) return;
+        if (err != null) {
+            // la forma resta nelle slice (i lookup la leggono da lì); nuovo tentativo dopo RESTORE_RETRY_TICKS
+            CobblemonMapKitMod.LOGGER.error("[ChunkZoneStore] Could not read the shape of zone {} from saved chunks, kept in chunks: {}",
+                    id, err.getMessage(), err);
+            return;
+        }
+        if (mask == null || GrassZonesConfig.get(id) == null || !GrassZonesConfig.setZoneMask(id, mask)) {
+            CobblemonMapKitMod.LOGGER.warn("[ChunkZoneStore] Zone {} shape not moved back to config, kept in chunks.", id);
+            return;
+        }
+        ServerWorld world = worldOf(e);
+        if (world != null) clearLoaded(world, id, e);
+        CATALOG.remove(id);
+        saveCatalog();
+        recountChunkOnly();
+        CobblemonMapKitMod.LOGGER.info("[ChunkZoneStore] Zone {} shape moved back to config ({} voxels).", id, mask == null ? 0 : mask.count());
+    }
+
+    /** Riunisce le slice della zona: chunk caricati subito, gli altri letti dal disco (thread IO). */
+    private static CompletableFuture<ZoneMask> gather(ServerWorld world, UUID id, Entry e) {
+        Queue<ZoneMask> parts = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<?>> reads = new ArrayList<>();
+        for (int cx = e.minX >> 4; cx <= e.maxX >> 4; cx++) {
+            for (int cz = e.minZ >> 4; cz <= e.maxZ >> 4; cz++) {
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz);
+                if (chunk != null) {
+                    collect(dataOf(chunk), id, e.gen, parts);
+                    continue;
+                }
+                reads.add(world.getChunkManager().chunkLoadingManager.getNbt(new ChunkPos(cx, cz))
+                        .thenAccept(nbt -> nbt.ifPresent(n -> collect(readSaved(n), id, e.gen, parts))));
+            }
+        }
+        return CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            ZoneMask.Builder b = new ZoneMask.Builder();
+            for (ZoneMask m : parts) b.addAll(m);
+            return b.isEmpty() ? null : b.build();
+        });
+    }
+
+    private static void collect(ChunkZones data, UUID id, long gen, Queue<ZoneMask> out) {
+        for (Slice s : data.slices()) {
+            if (s.zoneId().equals(id) && s.gen() == gen && s.mask() != null) out.add(s.mask());
+        }
+    }
+
+    /** Attachment dal NBT salvato del chunk (stesso formato scritto dalla data attachment API). */
+    private static ChunkZones readSaved(NbtCompound chunkNbt) {
+        NbtElement el = chunkNbt.getCompound(AttachmentTarget.NBT_ATTACHMENT_KEY).get(ATTACHMENT.identifier().toString());
+        if (el == null) return ChunkZones.EMPTY;
+        return CODEC.parse(NbtOps.INSTANCE, el).getOrThrow(msg -> new IllegalStateException("invalid grass_zones attachment: " + msg));
+    }
+
+    private static void clearLoaded(ServerWorld world, UUID id, Entry e) {
+        for (int cx = e.minX >> 4; cx <= e.maxX >> 4; cx++) {
+            for (int cz = e.minZ >> 4; cz <= e.maxZ >> 4; cz++) {
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz);
+                if (chunk != null) putSlice(chunk, id, null);
+            }
+        }
+    }
+
+    /**
+     * Slice di zone eliminate (tombstone) o di scritture precedenti (modifiche avvenute col chunk scarico).
+     * Una zona solo assente dalla config non viene toccata: la slice può essere l'unica copia della forma.
+     */
+    private static void pruneStale(WorldChunk chunk) {
+        ChunkZones data = chunk.getAttached(ATTACHMENT);
+        if (data == null) return;
+        List<Slice> kept = new ArrayList<>(data.slices());
+        if (kept.removeIf(s -> !isCurrent(s))) write(chunk, kept);
+    }
+
+    /** Slice della scrittura corrente; zona non nel catalogo = nessun confronto (verrà riscritta). */
+    private static boolean isCurrent(Slice s) {
+        Entry e = CATALOG.get(s.zoneId());
+        return e == null || (!e.removed && e.gen == s.gen());
+    }
+
+    /** Sostituisce (slice != null) o rimuove la slice della zona in un chunk caricato. */
+    private static void putSlice(WorldChunk chunk, UUID id, Slice slice) {
+        ChunkZones data = chunk.getAttached(ATTACHMENT);
+        if (data == null && slice == null) return;
+        List<Slice> slices = new ArrayList<>(dataOf(chunk).slices());
+        boolean removed = slices.removeIf(s -> s.zoneId().equals(id));
+        if (slice != null) slices.add(slice);
+        else if (!removed) return;
+        write(chunk, slices);
+    }
+
+    private static void write(WorldChunk chunk, List<Slice> slices) {
+        if (slices.isEmpty()) chunk.removeAttached(ATTACHMENT);
+        else chunk.setAttached(ATTACHMENT, new ChunkZones(List.copyOf(slices)));
+        chunk.setNeedsSaving(true);
+    }
+
+    private static ChunkZones dataOf(WorldChunk chunk) {
+        ChunkZones data = chunk.getAttached(ATTACHMENT);
+        return data == null ? ChunkZones.EMPTY : data;
+    }
+
+    /** Attachment del chunk solo se già caricato (nessun caricamento sincrono nei lookup). */
+    private static ChunkZones loadedData(ServerWorld world, int cx, int cz) {
+        WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz);
+        return chunk == null ? null : chunk.getAttached(ATTACHMENT);
+    }
+
+    private static ServerWorld worldOf(Entry e) {
+        Identifier wid = Identifier.tryParse(e.world);
+        return wid == null || server == null ? null : server.getWorld(RegistryKey.of(RegistryKeys.WORLD, wid));
+    }
+
+    // ======== PERSISTENZA DEL CATALOGO ========
+
+    private static void loadCatalog() {
+        CATALOG.clear();
+        if (!CATALOG_FILE.exists()) return;
+        try (Reader r = new FileReader(CATALOG_FILE)) {
+            Map<String, Entry> raw = GSON.fromJson(r, new TypeToken<Map<String, Entry>>() {}.getType());
+            if (raw == null) return;
+            for (var en : raw.entrySet()) {
+                try {
+                    if (en.getValue() != null && en.getValue().world != null) CATALOG.put(UUID.fromString(en.getKey()), en.getValue());
+                } catch (IllegalArgumentException ignored) {}
+            }
+        } catch (JsonParseException | IOException e) {
+            CobblemonMapKitMod.LOGGER.error("[ChunkZoneStore] Catalog load error: {}", e.getMessage(), e);
+        }
+    }
+
+    private static void saveCatalog() {
+        try {
+            if (CATALOG.isEmpty()) {
+                Files.deleteIfExists(CATALOG_FILE.toPath());
+                return;
+            }
+            File dir = CATALOG_FILE.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                CobblemonMapKitMod.LOGGER.warn("[ChunkZoneStore] Could not create config dir: {}", dir.getAbsolutePath());
+            }
+            Map<String, Entry> out = new TreeMap<>();
+            for (var en : CATALOG.entrySet()) out.put(en.getKey().toString(), en.getValue());
+
+            File tmp = new File(CATALOG_FILE.getParent(), CATALOG_FILE.getName() + ".tmp");
+            try (Writer w = new FileWriter(tmp)) {
+                GSON.toJson(out, w);
+            }
+            try {
+                Files.move(tmp.toPath(), CATALOG_FILE.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException atomicNotSupported) {
+                Files.move(tmp.toPath(), CATALOG_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            CobblemonMapKitMod.LOGGER.error("[ChunkZoneStore] Catalog save error: {}", e.getMessage(), e);
+        }
+    }
+}
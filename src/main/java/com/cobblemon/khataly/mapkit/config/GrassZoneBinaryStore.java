@@ -0,0 +1,199 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Formato binario compatto per le Grass Zones: un file "regione" per dimensione.
+ * Layout (big-endian):
+ *  - header: magic "MKZR", versione, id dimensione (UTF), numero stringhe/zone/spawn, offset delle sezioni record;
+ *  - tabella stringhe (UTF) condivisa: nomi zona, species e aspect sono scritti una volta sola;
+ *  - record zona a larghezza fissa (ZONE_RECORD_BYTES) con range nella sezione spawn e pool condivisa opzionale;
+ *  - record spawn a larghezza fissa (SPAWN_RECORD_BYTES);
+ *  - blob delle mask (ZoneMask.encode) referenziati per offset/lunghezza dal record zona.
+ * I record a larghezza fissa permettono di decodificare le zone in parallelo con letture assolute sul buffer.
+ * Il JSON resta il formato leggibile/modificabile a mano (vedi /grasszone storage export|import).
+ */
+final class GrassZoneBinaryStore {
+
+    static final String EXTENSION = ".mkzr";
+
+    private static final int MAGIC = 0x4D4B5A52; // "MKZR"
+    private static final int VERSION = 1;
+
+    /** uuid(16) + name(4) + box(24) + timeCreated(8) + shinyOdds(4) + spawnStart(4) + spawnCount(4) + pool(4)
+     *  + maskStart(4) + maskLength(4) */
+    private static final int ZONE_RECORD_BYTES = 76;
+    /** species(4) + aspect(4) + minLevel(4) + maxLevel(4) + weight(4) + time(1) + padding(3) */
+    private static final int SPAWN_RECORD_BYTES = 24;
+
+    private GrassZoneBinaryStore() {}
+
+    static File regionFile(File dir, RegistryKey<World> wk) {
+        Identifier id = wk.getValue();
+        String base = (id.getNamespace() + "__" + id.getPath()).replaceAll("[^a-z0-9_.-]", "_");
+        return new File(dir, base + EXTENSION);
+    }
+
+    static void writeRegion(File target, RegistryKey<World> wk, Collection<GrassZonesConfig.Zone> zones) throws IOException {
+        // tabella stringhe internata
+        LinkedHashMap<String, Integer> strings = new LinkedHashMap<>();
+        int spawnTotal = 0;
+        for (GrassZonesConfig.Zone z : zones) {
+            intern(strings, z.name());
+            if (z.poolId() != null) intern(strings, z.poolId());
+            for (GrassZonesConfig.SpawnEntry e : z.ownSpawns()) {
+                intern(strings, e.species);
+                if (e.aspect != null) intern(strings, e.aspect);
+                spawnTotal++;
+            }
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(headerBytes)) {
+            out.writeUTF(wk.getValue().toString());
+            out.writeInt(strings.size());
+            out.writeInt(zones.size());
+            out.writeInt(spawnTotal);
+            for (String s : strings.keySet()) out.writeUTF(s);
+        }
+        byte[] head = headerBytes.toByteArray();
+
+        List<byte[]> masks = new ArrayList<>(zones.size());
+        int maskTotal = 0;
+        for (GrassZonesConfig.Zone z : zones) {
+            byte[] m = z.mask() == null ? null : z.mask().encode();
+            masks.add(m);
+            if (m != null) maskTotal += m.length;
+        }
+
+        // magic + version + offsets(2) + head
+        int zoneOffset = 16 + head.length;
+        int spawnOffset = zoneOffset + zones.size() * ZONE_RECORD_BYTES;
+        int maskOffset = spawnOffset + spawnTotal * SPAWN_RECORD_BYTES;
+        ByteBuffer buf = ByteBuffer.allocate(maskOffset + maskTotal);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(zoneOffset).putInt(spawnOffset).put(head);
+
+        int spawnIdx = 0, maskPos = 0, zi = 0;
+        for (GrassZonesConfig.Zone z : zones) {
+            buf.putLong(z.id().getMostSignificantBits()).putLong(z.id().getLeastSignificantBits());
+            buf.putInt(strings.get(z.name()));
+            buf.putInt(z.minX()).putInt(z.minZ()).putInt(z.maxX()).putInt(z.maxZ()).putInt(z.minY()).putInt(z.maxY());
+            buf.putLong(z.timeCreated());
+            buf.putInt(z.shinyOdds());
+            buf.putInt(spawnIdx).putInt(z.ownSpawns().size());
+            buf.putInt(z.poolId() == null ? -1 : strings.get(z.poolId()));
+            byte[] m = masks.get(zi++);
+            buf.putInt(maskPos).putInt(m == null ? 0 : m.length);
+            if (m != null) maskPos += m.length;
+            spawnIdx += z.ownSpawns().size();
+        }
+        for (GrassZonesConfig.Zone z : zones) {
+            for (GrassZonesConfig.SpawnEntry e : z.ownSpawns()) {
+                buf.putInt(strings.get(e.species));
+                buf.putInt(e.aspect == null ? -1 : strings.get(e.aspect));
+                buf.putInt(e.minLevel).putInt(e.maxLevel).putInt(e.weight);
+                buf.put((byte) e.time.ordinal()).put((byte) 0).putShort((short) 0);
+            }
+        }
+        for (byte[] m : masks) {
+            if (m != null) buf.put(m);
+        }
+
+        File tmp = new File(target.getParentFile(), target.getName() + ".tmp");
+        Files.write(tmp.toPath(), buf.array());
+        try {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException atomicNotSupported) {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Legge una regione; le zone vengono decodificate in parallelo sul pool indicato, in ordine di file. */
+    static List<GrassZonesConfig.Zone> readRegion(File f, ForkJoinPool pool) throws IOException {
+        byte[] bytes = Files.readAllBytes(f.toPath());
+        ByteBuffer buf = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        if (bytes.length < 16 || buf.getInt(0) != MAGIC) throw new IOException("not a zone region file");
+        int version = buf.getInt(4);
+        if (version != VERSION) throw new IOException("unsupported region version " + version);
+        int zoneOffset = buf.getInt(8);
+        int spawnOffset = buf.getInt(12);
+
+        RegistryKey<World> wk;
+        String[] strings;
+        int zoneCount, spawnCount;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 16, zoneOffset - 16))) {
+            Identifier wid = Identifier.tryParse(in.readUTF());
+            if (wid == null) throw new IOException("bad dimension id");
+            wk = RegistryKey.of(RegistryKeys.WORLD, wid);
+            int stringCount = in.readInt();
+            zoneCount = in.readInt();
+            spawnCount = in.readInt();
+            strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) strings[i] = in.readUTF();
+        }
+        if (spawnOffset != zoneOffset + zoneCount * ZONE_RECORD_BYTES
+                || bytes.length < spawnOffset + spawnCount * SPAWN_RECORD_BYTES) {
+            throw new IOException("truncated region file");
+        }
+
+        int maskOffset = spawnOffset + spawnCount * SPAWN_RECORD_BYTES;
+        GrassZonesConfig.TimeBand[] bands = GrassZonesConfig.TimeBand.values();
+        return pool.submit(() -> IntStream.range(0, zoneCount).parallel()
+                .mapToObj(i -> decodeZone(buf, zoneOffset + i * ZONE_RECORD_BYTES, spawnOffset, maskOffset, strings, bands, wk))
+                .toList()).join();
+    }
+
+    private static GrassZonesConfig.Zone decodeZone(ByteBuffer buf, int at, int spawnOffset, int maskOffset, String[] strings,
+                                                    GrassZonesConfig.TimeBand[] bands, RegistryKey<World> wk) {
+        UUID id = new UUID(buf.getLong(at), buf.getLong(at + 8));
+        String name = strings[buf.getInt(at + 16)];
+        int minX = buf.getInt(at + 20), minZ = buf.getInt(at + 24), maxX = buf.getInt(at + 28), maxZ = buf.getInt(at + 32);
+        int minY = buf.getInt(at + 36), maxY = buf.getInt(at + 40);
+        long timeCreated = buf.getLong(at + 44);
+        int shinyOdds = buf.getInt(at + 52);
+        int spawnStart = buf.getInt(at + 56);
+        int spawnCount = buf.getInt(at + 60);
+        int poolIdx = buf.getInt(at + 64);
+        ZoneMask mask = readMask(buf, maskOffset + buf.getInt(at + 68), buf.getInt(at + 72));
+
+        List<GrassZonesConfig.SpawnEntry> spawns = new ArrayList<>(spawnCount);
+        for (int s = 0; s < spawnCount; s++) {
+            int p = spawnOffset + (spawnStart + s) * SPAWN_RECORD_BYTES;
+            int aspectIdx = buf.getInt(p + 4);
+            spawns.add(new GrassZonesConfig.SpawnEntry(
+                    strings[buf.getInt(p)],
+                    buf.getInt(p + 8), buf.getInt(p + 12), buf.getInt(p + 16),
+                    bands[buf.get(p + 20)],
+                    aspectIdx < 0 ? null : strings[aspectIdx]
+            ));
+        }
+        return new GrassZonesConfig.Zone(id, name, wk, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, spawns, shinyOdds,
+                poolIdx < 0 ? null : strings[poolIdx], mask);
+    }
+
+    private static ZoneMask readMask(ByteBuffer buf, int at, int length) {
+        if (length <= 0) return null;
+        byte[] m = new byte[length];
+        buf.get(at, m);
+        try {
+            return ZoneMask.decode(m);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void intern(Map<String, Integer> table, String s) {
+        table.putIfAbsent(s, table.size());
+    }
+}
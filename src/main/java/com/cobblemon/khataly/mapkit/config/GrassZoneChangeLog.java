@@ -0,0 +1,58 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Registro circolare delle modifiche alle Grass Zones (revisione -> id zona), usato per la sync delta ai client.
+ *  - Ogni modifica pubblicata incrementa la revisione globale e registra l'id toccato;
+ *  - Le revisioni più vecchie di "floor" non sono più coperte: il client riceve uno snapshot completo;
+ *  - Un reload/import azzera il registro (floor = revisione corrente).
+ * Non thread-safe: l'accesso è serializzato da GrassZonesConfig (WRITE_LOCK).
+ */
+final class GrassZoneChangeLog {
+
+    private final long[] revs;
+    private final UUID[] ids;
+    private int head;  // prossima posizione libera
+    private int size;
+    /** Revisione minima da cui si può costruire un delta. */
+    private long floor;
+
+    GrassZoneChangeLog(int capacity) {
+        this.revs = new long[capacity];
+        this.ids = new UUID[capacity];
+    }
+
+    void reset(long revision) {
+        head = 0;
+        size = 0;
+        floor = revision;
+        java.util.Arrays.fill(ids, null);
+    }
+
+    void record(long revision, UUID id) {
+        if (size == revs.length) {
+            // la voce più vecchia esce dal registro: da lì in poi serve uno snapshot
+            floor = revs[head];
+        } else {
+            size++;
+        }
+        revs[head] = revision;
+        ids[head] = id;
+        head = (head + 1) % revs.length;
+    }
+
+    /** Id modificati dopo "since" fino a "current" (ordine cronologico), null se il registro non copre "since". */
+    Set<UUID> changedSince(long since, long current) {
+        if (since < floor || since > current) return null;
+        Set<UUID> out = new LinkedHashSet<>();
+        int start = (head - size + revs.length) % revs.length;
+        for (int i = 0; i < size; i++) {
+            int p = (start + i) % revs.length;
+            if (revs[p] > since && revs[p] <= current) out.add(ids[p]);
+        }
+        return out;
+    }
+}
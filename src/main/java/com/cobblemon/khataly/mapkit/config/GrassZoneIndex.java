@@ -0,0 +1,182 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.util.*;
+
+/**
+ * Indice spaziale delle Grass Zones per dimensione:
+ *  - Bucket per colonna di chunk (chiave = ChunkPos.toLong), ogni bucket contiene le zone il cui box XZ tocca il chunk;
+ *  - Il range minY..maxY viene verificato sul singolo candidato;
+ *  - I bucket sono array immutabili: add/remove sostituiscono il bucket, non lo modificano.
+ * Una query puntuale costa un lookup hash + scansione delle poche zone di quel chunk, a prescindere dal totale.
+ */
+final class GrassZoneIndex {
+
+    private static final GrassZonesConfig.Zone[] EMPTY = new GrassZonesConfig.Zone[0];
+
+    private final Map<RegistryKey<World>, Long2ObjectOpenHashMap<GrassZonesConfig.Zone[]>> byWorld = new HashMap<>();
+
+    void clear() {
+        byWorld.clear();
+    }
+
+    /** Copia superficiale: i bucket sono immutabili, quindi basta duplicare le mappe. */
+    GrassZoneIndex copy() {
+        GrassZoneIndex out = new GrassZoneIndex();
+        for (var e : byWorld.entrySet()) out.byWorld.put(e.getKey(), new Long2ObjectOpenHashMap<>(e.getValue()));
+        return out;
+    }
+
+    void add(GrassZonesConfig.Zone z) {
+        var buckets = byWorld.computeIfAbsent(z.worldKey(), k -> new Long2ObjectOpenHashMap<>());
+        for (int cx = z.minX() >> 4; cx <= z.maxX() >> 4; cx++) {
+            for (int cz = z.minZ() >> 4; cz <= z.maxZ() >> 4; cz++) {
+                long key = ChunkPos.toLong(cx, cz);
+                GrassZonesConfig.Zone[] old = buckets.getOrDefault(key, EMPTY);
+                GrassZonesConfig.Zone[] nb = Arrays.copyOf(old, old.length + 1);
+                nb[old.length] = z;
+                buckets.put(key, nb);
+            }
+        }
+    }
+
+    void remove(GrassZonesConfig.Zone z) {
+        var buckets = byWorld.get(z.worldKey());
+        if (buckets == null) return;
+        for (int cx = z.minX() >> 4; cx <= z.maxX() >> 4; cx++) {
+            for (int cz = z.minZ() >> 4; cz <= z.maxZ() >> 4; cz++) {
+                long key = ChunkPos.toLong(cx, cz);
+                GrassZonesConfig.Zone[] old = buckets.get(key);
+                if (old == null) continue;
+                GrassZonesConfig.Zone[] nb = without(old, z.id());
+                if (nb.length == 0) buckets.remove(key);
+                else buckets.put(key, nb);
+            }
+        }
+        if (buckets.isEmpty()) byWorld.remove(z.worldKey());
+    }
+
+    /** Sostituisce una zona (stesso id, dati aggiornati); se il box non cambia mantiene la posizione nei bucket. */
+    void replace(GrassZonesConfig.Zone oldZone, GrassZonesConfig.Zone newZone) {
+        if (oldZone == null || !sameBox(oldZone, newZone)) {
+            if (oldZone != null) remove(oldZone);
+            add(newZone);
+            return;
+        }
+        var buckets = byWorld.get(newZone.worldKey());
+        if (buckets == null) { add(newZone); return; }
+        for (int cx = newZone.minX() >> 4; cx <= newZone.maxX() >> 4; cx++) {
+            for (int cz = newZone.minZ() >> 4; cz <= newZone.maxZ() >> 4; cz++) {
+                long key = ChunkPos.toLong(cx, cz);
+                GrassZonesConfig.Zone[] old = buckets.get(key);
+                if (old == null) continue;
+                GrassZonesConfig.Zone[] nb = old.clone();
+                for (int i = 0; i < nb.length; i++) {
+                    if (nb[i].id().equals(newZone.id())) nb[i] = newZone;
+                }
+                buckets.put(key, nb);
+            }
+        }
+    }
+
+    private static boolean sameBox(GrassZonesConfig.Zone a, GrassZonesConfig.Zone b) {
+        return a.worldKey().equals(b.worldKey())
+                && a.minX() == b.minX() && a.maxX() == b.maxX()
+                && a.minZ() == b.minZ() && a.maxZ() == b.maxZ()
+                && a.minY() == b.minY() && a.maxY() == b.maxY();
+    }
+
+    /** Zone che contengono il punto, in ordine di inserimento. */
+    List<GrassZonesConfig.Zone> findAt(RegistryKey<World> wk, int x, int y, int z) {
+        var buckets = byWorld.get(wk);
+        if (buckets == null) return List.of();
+        GrassZonesConfig.Zone[] bucket = buckets.get(ChunkPos.toLong(x >> 4, z >> 4));
+        if (bucket == null) return List.of();
+
+        List<GrassZonesConfig.Zone> out = null;
+        for (GrassZonesConfig.Zone zone : bucket) {
+            if (!zone.contains(x, y, z, wk)) continue;
+            if (out == null) out = new ArrayList<>(2);
+            out.add(zone);
+        }
+        return out == null ? List.of() : out;
+    }
+
+    /** Zone il cui box XZ tocca il rettangolo di chunk dato (estremi inclusi), senza duplicati. */
+    List<GrassZonesConfig.Zone> findInChunks(RegistryKey<World> wk, int cMinX, int cMinZ, int cMaxX, int cMaxZ) {
+        var buckets = byWorld.get(wk);
+        if (buckets == null) return List.of();
+
+        Map<UUID, GrassZonesConfig.Zone> out = new LinkedHashMap<>();
+        long area = (long) (cMaxX - cMinX + 1) * (cMaxZ - cMinZ + 1);
+        if (area > buckets.size()) {
+            for (Long2ObjectMap.Entry<GrassZonesConfig.Zone[]> e : buckets.long2ObjectEntrySet()) {
+                int cx = ChunkPos.getPackedX(e.getLongKey()), cz = ChunkPos.getPackedZ(e.getLongKey());
+                if (cx < cMinX || cx > cMaxX || cz < cMinZ || cz > cMaxZ) continue;
+                for (GrassZonesConfig.Zone z : e.getValue()) out.putIfAbsent(z.id(), z);
+            }
+        } else {
+            for (int cx = cMinX; cx <= cMaxX; cx++) {
+                for (int cz = cMinZ; cz <= cMaxZ; cz++) {
+                    GrassZonesConfig.Zone[] bucket = buckets.get(ChunkPos.toLong(cx, cz));
+                    if (bucket == null) continue;
+                    for (GrassZonesConfig.Zone z : bucket) out.putIfAbsent(z.id(), z);
+                }
+            }
+        }
+        return new ArrayList<>(out.values());
+    }
+
+    /** true se almeno una zona interseca il prisma dato (estremi già normalizzati). */
+    boolean anyOverlap(RegistryKey<World> wk, int minX, int minZ, int maxX, int maxZ, int minY, int maxY) {
+        var buckets = byWorld.get(wk);
+        if (buckets == null) return false;
+
+        int cMinX = minX >> 4, cMaxX = maxX >> 4;
+        int cMinZ = minZ >> 4, cMaxZ = maxZ >> 4;
+        long area = (long) (cMaxX - cMinX + 1) * (cMaxZ - cMinZ + 1);
+
+        // Query enorme rispetto all'indice: più economico scorrere i bucket esistenti
+        if (area > buckets.size()) {
+            for (Long2ObjectMap.Entry<GrassZonesConfig.Zone[]> e : buckets.long2ObjectEntrySet()) {
+                if (intersectsAny(e.getValue(), minX, minZ, maxX, maxZ, minY, maxY)) return true;
+            }
+            return false;
+        }
+
+        for (int cx = cMinX; cx <= cMaxX; cx++) {
+            for (int cz = cMinZ; cz <= cMaxZ; cz++) {
+                GrassZonesConfig.Zone[] bucket = buckets.get(ChunkPos.toLong(cx, cz));
+                if (bucket != null && intersectsAny(bucket, minX, minZ, maxX, maxZ, minY, maxY)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean intersectsAny(GrassZonesConfig.Zone[] bucket,
+                                         int minX, int minZ, int maxX, int maxZ, int minY, int maxY) {
+        for (GrassZonesConfig.Zone z : bucket) {
+            if (minX <= z.maxX() && maxX >= z.minX()
+                    && minZ <= z.maxZ() && maxZ >= z.minZ()
+                    && minY <= z.maxY() && maxY >= z.minY()) return true;
+        }
+        return false;
+    }
+
+    private static GrassZonesConfig.Zone[] without(GrassZonesConfig.Zone[] arr, UUID id) {
+        int idx = -1;
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i].id().equals(id)) { idx = i; break; }
+        }
+        if (idx < 0) return arr;
+        GrassZonesConfig.Zone[] out = new GrassZonesConfig.Zone[arr.length - 1];
+        System.arraycopy(arr, 0, out, 0, idx);
+        System.arraycopy(arr, idx + 1, out, idx, arr.length - idx - 1);
+        return out;
+    }
+}
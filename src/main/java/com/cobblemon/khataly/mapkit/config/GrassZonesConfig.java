@@ -13,19 +13,25 @@ import java.nio.file.StandardCopyOption;
 import java.text.Normalizer;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Gestione Grass Zones (3D: X/Z + range verticale Y):
  *  - Una zona per file: config/cobblemonmapkit/zones/<nome>.json
  *  - Nome obbligatorio e persistenza del nome nel filename
  *  - Migrazione da formati legacy (grass_zones.json e/o singolo campo y)
+ *  - Stato in memoria copy-on-write: letture lock-free e sicure da qualsiasi thread
+ *  - Salvataggio incrementale: si riscrivono solo le zone modificate (opzionale su thread I/O, vedi GrassZonesSettings)
+ *  - Formato opzionale "binary": un file regione per dimensione in zones_bin/, letto in parallelo (GrassZoneBinaryStore)
  */
 public class GrassZonesConfig {
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final File ZONES_DIR = new File("config/cobblemonmapkit/zones");
-    /** Bump per minY/maxY e supporto retrocompatibile al precedente campo singolo "y". */
-    private static final int CURRENT_SCHEMA_VERSION = 4;
+    /** storageFormat=binary: un file regione per dimensione. */
+    private static final File REGION_DIR = new File("config/cobblemonmapkit/zones_bin");
+    /** v4: minY/maxY (compat col vecchio campo singolo "y"); v5: poolId e mask nella zona. */
+    private static final int CURRENT_SCHEMA_VERSION = 5;
 
     public enum TimeBand { DAY, NIGHT, BOTH }
 
@@ -38,6 +44,8 @@ public class GrassZonesConfig {
         public final TimeBand time;
         /** Variante opzionale (es. "alola", "hisui", "galar", ...). */
         public final String aspect;
+        /** Species/aspect risolti (vedi SpeciesResolver); null finché il registry non è pronto. */
+        volatile SpeciesResolver.Resolved resolved;
 
         public SpawnEntry(String species, int minLevel, int maxLevel, int weight, TimeBand time, String aspect) {
             this.species = species;
@@ -65,6 +73,12 @@ public class GrassZonesConfig {
         private final List<SpawnEntry> spawns;
         /** Shiny odds specifiche della zona (1 su N). -1 = usa default globale. */
         private final int shinyOdds;
+        /** Campionatori precompilati per fascia oraria (indicizzati per TimeBand.ordinal()). */
+        private final SpawnSampler[] samplers;
+        /** Pool condivisa della SpawnPoolLibrary (null = usa la lista spawns della zona). */
+        private final String poolId;
+        /** Forma a voxel (null = tutto il box); il box è il suo bounding box. */
+        private final ZoneMask mask;
 
         public Zone(UUID id,
                     String name,
@@ -74,6 +88,54 @@ public class GrassZonesConfig {
                     long timeCreated,
                     List<SpawnEntry> spawns,
                     int shinyOdds) {
+            this(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, spawns, shinyOdds, (String) null);
+        }
+
+        public Zone(UUID id,
+                    String name,
+                    RegistryKey<World> worldKey,
+                    int minX, int minZ, int maxX, int maxZ,
+                    int minY, int maxY,
+                    long timeCreated,
+                    List<SpawnEntry> spawns,
+                    int shinyOdds,
+                    String poolId) {
+            this(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, spawns, shinyOdds, poolId, null);
+        }
+
+        /** Con mask non vuota il box viene ricavato dal suo bounding box. */
+        public Zone(UUID id,
+                    String name,
+                    RegistryKey<World> worldKey,
+                    int minX, int minZ, int maxX, int maxZ,
+                    int minY, int maxY,
+                    long timeCreated,
+                    List<SpawnEntry> spawns,
+                    int shinyOdds,
+                    String poolId,
+                    ZoneMask mask) {
+            this(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated,
+                    List.copyOf(spawns == null ? List.of() : spawns), shinyOdds, null, poolId, mask);
+        }
+
+        /** samplers == null => compila dalla lista spawns; altrimenti riusa quelli già compilati. */
+        private Zone(UUID id,
+                     String name,
+                     RegistryKey<World> worldKey,
+                     int minX, int minZ, int maxX, int maxZ,
+                     int minY, int maxY,
+                     long timeCreated,
+                     List<SpawnEntry> spawns,
+                     int shinyOdds,
+                     SpawnSampler[] samplers,
+                     String poolId,
+                     ZoneMask mask) {
+            if (mask != null && mask.isEmpty()) mask = null;
+            if (mask != null) {
+                minX = mask.minX(); maxX = mask.maxX();
+                minZ = mask.minZ(); maxZ = mask.maxZ();
+                minY = mask.minY(); maxY = mask.maxY();
+            }
             this.id = id;
             this.name = (name == null || name.isBlank()) ? ("Zone " + shortId(id)) : name.trim();
             this.worldKey = worldKey;
@@ -84,15 +146,38 @@ public class GrassZonesConfig {
             this.minY = Math.min(minY, maxY);
             this.maxY = Math.max(minY, maxY);
             this.timeCreated = timeCreated;
-            this.spawns = List.copyOf(spawns == null ? List.of() : spawns);
+            this.spawns = spawns;
             this.shinyOdds = (shinyOdds <= 0) ? -1 : shinyOdds;
+            this.samplers = (samplers != null) ? samplers : compileSamplers(spawns);
+            this.poolId = SpawnPoolLibrary.normalizeId(poolId);
+            this.mask = mask;
+        }
+
+        /**
+         * DAY = entry DAY+BOTH, NIGHT = entry NIGHT+BOTH, BOTH = tutte le entry
+         * (usato nelle dimensioni senza ciclo giorno/notte).
+         */
+        static SpawnSampler[] compileSamplers(List<SpawnEntry> spawns) {
+            List<SpawnEntry> day = new ArrayList<>(spawns.size());
+            List<SpawnEntry> night = new ArrayList<>(spawns.size());
+            for (SpawnEntry e : spawns) {
+                if (e == null) continue;
+                if (e.time != TimeBand.NIGHT) day.add(e);
+                if (e.time != TimeBand.DAY) night.add(e);
+            }
+            SpawnSampler[] out = new SpawnSampler[TimeBand.values().length];
+            out[TimeBand.DAY.ordinal()] = SpawnSampler.compile(day);
+            out[TimeBand.NIGHT.ordinal()] = SpawnSampler.compile(night);
+            out[TimeBand.BOTH.ordinal()] = SpawnSampler.compile(spawns);
+            return out;
         }
 
         public boolean contains(int x, int y, int z, RegistryKey<World> w) {
             if (!w.equals(worldKey)) return false;
             return x >= minX && x <= maxX
                     && z >= minZ && z <= maxZ
-                    && y >= minY && y <= maxY;
+                    && y >= minY && y <= maxY
+                    && (mask == null || mask.contains(x, y, z));
         }
 
         // getters
@@ -106,17 +191,40 @@ public class GrassZonesConfig {
         public int minY() { return minY; }
         public int maxY() { return maxY; }
         public long timeCreated() { return timeCreated; }
-        public List<SpawnEntry> spawns() { return spawns; }
+        /** Spawn effettivi: quelli della pool referenziata (se esiste), altrimenti quelli della zona. */
+        public List<SpawnEntry> spawns() {
+            if (poolId == null) return spawns;
+            SpawnPoolLibrary.Pool pool = SpawnPoolLibrary.get(poolId);
+            return pool == null ? List.of() : pool.spawns();
+        }
+        /** Spawn salvati nella zona stessa (vuoti se referenzia una pool). */
+        public List<SpawnEntry> ownSpawns() { return spawns; }
+        public String poolId() { return poolId; }
+        public ZoneMask mask() { return mask; }
         public int shinyOdds() { return shinyOdds; }
+        /** Campionatore pronto per la fascia oraria richiesta (quello condiviso della pool, se referenziata). */
+        public SpawnSampler sampler(TimeBand band) {
+            return poolId == null ? samplers[band.ordinal()] : SpawnPoolLibrary.sampler(poolId, band);
+        }
 
         public Zone withName(String newName) {
-            return new Zone(id, newName, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, spawns, shinyOdds);
+            return new Zone(id, newName, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, spawns, shinyOdds, samplers, poolId, mask);
         }
         public Zone withShinyOdds(int newShinyOdds) {
-            return new Zone(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, spawns, newShinyOdds);
+            return new Zone(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, spawns, newShinyOdds, samplers, poolId, mask);
         }
+        /** Lista propria: stacca la zona da un'eventuale pool condivisa. */
         public Zone withSpawns(List<SpawnEntry> newSpawns) {
-            return new Zone(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, newSpawns, shinyOdds);
+            return new Zone(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated,
+                    List.copyOf(newSpawns == null ? List.of() : newSpawns), shinyOdds, null, null, mask);
+        }
+        /** Referenzia una pool condivisa: la lista propria viene svuotata. */
+        public Zone withPool(String newPoolId) {
+            return new Zone(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, List.of(), shinyOdds, null, newPoolId, mask);
+        }
+        /** Forma a voxel (null = torna al box intero). */
+        public Zone withMask(ZoneMask newMask) {
+            return new Zone(id, name, worldKey, minX, minZ, maxX, maxZ, minY, maxY, timeCreated, spawns, shinyOdds, samplers, poolId, newMask);
         }
     }
 
@@ -145,8 +253,10 @@ public class GrassZonesConfig {
         long timeCreated;
         List<SpawnData> spawns;
         Integer shinyOdds; // 1 su N; <=0 o null -> default globale
+        String poolId;     // opzionale: pool condivisa (config/cobblemonmapkit/pools/<id>.json)
+        String mask;       // opzionale: forma a voxel (ZoneMask.encode in Base64); assente = box intero
     }
-    private static class SpawnData {
+    static class SpawnData {
         String species;
         int minLevel, maxLevel, weight;
         String time;   // "day" | "night" | "both"
@@ -154,117 +264,287 @@ public class GrassZonesConfig {
     }
 
     // ======== IN-MEMORY STATE ========
-    private static final Map<UUID, Zone> ZONES = new LinkedHashMap<>();
-    /** Traccia il file attuale per ogni zona (per rinominare senza cercare). */
-    private static final Map<UUID, File> FILE_BY_ID = new HashMap<>();
+
+    /**
+     * Stato copy-on-write: una volta pubblicato tramite STATE non viene più modificato.
+     * I lettori prendono il riferimento volatile senza lock; gli scrittori (serializzati da WRITE_LOCK)
+     * lavorano su una copia e la pubblicano con una sola scrittura.
+     */
+    private static final class State {
+        static final State EMPTY = new State(new LinkedHashMap<>(), new HashMap<>(), new HashMap<>(), new GrassZoneIndex());
+
+        final LinkedHashMap<UUID, Zone> zones;
+        /** Traccia il file attuale per ogni zona (per rinominare senza cercare). */
+        final HashMap<UUID, File> files;
+        /** Inverso di files: chi possiede un certo file. */
+        final HashMap<File, UUID> owners;
+        /** Indice spaziale per colonna di chunk, allineato a zones. */
+        final GrassZoneIndex index;
+        /** Revisione dell'insieme di zone (sync client); assegnata alla pubblicazione. */
+        long revision;
+        /** Numero di zone che referenziano ciascuna pool condivisa. */
+        final HashMap<String, Integer> poolRefs = new HashMap<>();
+
+        private State(LinkedHashMap<UUID, Zone> zones, HashMap<UUID, File> files, HashMap<File, UUID> owners, GrassZoneIndex index) {
+            this.zones = zones;
+            this.files = files;
+            this.owners = owners;
+            this.index = index;
+        }
+
+        State copy() {
+            State out = new State(new LinkedHashMap<>(zones), new HashMap<>(files), new HashMap<>(owners), index.copy());
+            out.revision = revision;
+            out.poolRefs.putAll(poolRefs);
+            return out;
+        }
+
+        /** Inserisce/aggiorna una zona mantenendo allineato l'indice spaziale. */
+        void put(Zone z) {
+            Zone old = zones.put(z.id(), z);
+            index.replace(old, z);
+            if (old != null) unref(old.poolId());
+            if (z.poolId() != null) poolRefs.merge(z.poolId(), 1, Integer::sum);
+        }
+
+        Zone remove(UUID id) {
+            Zone removed = zones.remove(id);
+            if (removed != null) {
+                index.remove(removed);
+                unref(removed.poolId());
+            }
+            return removed;
+        }
+
+        private void unref(String poolId) {
+            if (poolId != null) poolRefs.computeIfPresent(poolId, (k, n) -> n > 1 ? n - 1 : null);
+        }
+
+        void setFile(UUID id, File f) {
+            File old = files.put(id, f);
+            if (old != null && id.equals(owners.get(old))) owners.remove(old);
+            owners.put(f, id);
+        }
+
+        File removeFile(UUID id) {
+            File old = files.remove(id);
+            if (old != null && id.equals(owners.get(old))) owners.remove(old);
+            return old;
+        }
+    }
+
+    private static volatile State STATE = State.EMPTY;
+    private static final Object WRITE_LOCK = new Object();
+    /** Modifiche recenti per la sync delta; oltre questa finestra il client riceve uno snapshot completo. */
+    private static final GrassZoneChangeLog CHANGES = new GrassZoneChangeLog(1024);
+
+    /** Pubblica una modifica a una singola zona (chiamare sotto WRITE_LOCK). */
+    private static void publish(State next, UUID changed) {
+        next.revision = STATE.revision + 1;
+        CHANGES.record(next.revision, changed);
+        STATE = next;
+        Zone z = next.zones.get(changed);
+        if (z != null) SpeciesResolver.resolveEntries(z.ownSpawns(), SpeciesResolver.ownerOf(z));
+    }
+
+    /** Pubblica un insieme di zone completamente nuovo (load/import): i client ripartono da uno snapshot. */
+    private static void publishReset(State next) {
+        next.revision = STATE.revision + 1;
+        CHANGES.reset(next.revision);
+        STATE = next;
+        SpeciesResolver.resolveZones(next.zones.values());
+    }
 
     // ======== API ========
     public static void load() {
-        ensureDir();
-        ZONES.clear();
-        FILE_BY_ID.clear();
-
-        // Migrazione dal file legacy se presente
-        File legacy = new File("config/cobblemonmapkit/grass_zones.json");
-        if (legacy.exists()) {
-            migrateLegacy(legacy);
-            return;
+        // eventuali scritture in coda vanno su disco prima di rileggere
+        flush();
+        synchronized (WRITE_LOCK) {
+            ensureDir();
+            State next = State.EMPTY.copy();
+
+            // Migrazione dal file legacy se presente
+            File legacy = new File("config/cobblemonmapkit/grass_zones.json");
+            if (legacy.exists()) {
+                migrateLegacy(legacy, next);
+                return;
+            }
+
+            if (GrassZonesSettings.isBinaryStorage()) {
+                loadBinary(next);
+                return;
+            }
+
+            int bad = loadJson(next);
+            publishReset(next);
+            if (next.zones.isEmpty() && bad == 0) CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] No zones found.");
+            else CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] Loaded {} zones ({} invalid).", next.zones.size(), bad);
         }
+    }
 
+    /**
+     * Esporta tutte le zone come file JSON in zones/ (formato leggibile/modificabile a mano).
+     * Ritorna il numero di zone scritte.
+     */
+    public static int exportJson() {
+        flush();
+        synchronized (WRITE_LOCK) {
+            ensureDir();
+            State next = STATE.copy();
+            int written = 0;
+            for (Zone z : next.zones.values()) {
+                assignJsonFile(next, z);
+                try {
+                    writeJson(next.files.get(z.id()), z);
+                    written++;
+                } catch (IOException e) {
+                    CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Export error for zone {}: {}", z.id(), e.getMessage(), e);
+                }
+            }
+            STATE = next;
+            return written;
+        }
+    }
+
+    /**
+     * Importa le zone dai file JSON in zones/ sostituendo quelle in memoria, poi le salva nel formato attivo.
+     * Ritorna il numero di zone importate, -1 se la cartella non contiene zone valide.
+     */
+    public static int importJson() {
+        flush();
+        synchronized (WRITE_LOCK) {
+            State next = State.EMPTY.copy();
+            loadJson(next);
+            if (next.zones.isEmpty()) return -1;
+            State prev = STATE;
+            publishReset(next);
+            synchronized (PENDING_LOCK) {
+                DIRTY.addAll(next.zones.keySet());
+                // le dimensioni rimaste senza zone vanno riscritte (vuote)
+                for (Zone z : prev.zones.values()) DIRTY_DIMENSIONS.add(z.worldKey());
+            }
+        }
+        flush();
+        return STATE.zones.size();
+    }
+
+    /** Lettura parallela dei file JSON (Gson è thread-safe); inserimento in ordine di file. Ritorna i file invalidi. */
+    private static int loadJson(State next) {
         File[] files = ZONES_DIR.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".json"));
-        if (files == null || files.length == 0) {
-            CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] No zones found.");
+        if (files == null || files.length == 0) return 0;
+
+        List<Map.Entry<File, Zone>> read;
+        ForkJoinPool pool = newLoadPool();
+        try {
+            read = pool.submit(() -> Arrays.stream(files).parallel()
+                    .map(f -> {
+                        try {
+                            return Map.entry(f, readZoneFile(f));
+                        } catch (Exception e) {
+                            CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Could not read {}: {}", f.getName(), e.getMessage());
+                            return null;
+                        }
+                    })
+                    .toList()).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        int bad = 0;
+        for (Map.Entry<File, Zone> e : read) {
+            if (e == null) { bad++; continue; }
+            next.put(e.getValue());
+            next.setFile(e.getValue().id(), e.getKey());
+        }
+        return bad;
+    }
+
+    /** storageFormat=binary: legge le regioni; al primo avvio importa automaticamente i JSON esistenti. */
+    private static void loadBinary(State next) {
+        File[] regions = REGION_DIR.listFiles((dir, name) -> name.endsWith(GrassZoneBinaryStore.EXTENSION));
+        if (regions == null || regions.length == 0) {
+            int bad = loadJson(next);
+            publishReset(next);
+            if (!next.zones.isEmpty()) {
+                CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] Binary store empty: imported {} JSON zones ({} invalid).", next.zones.size(), bad);
+                synchronized (PENDING_LOCK) {
+                    DIRTY.addAll(next.zones.keySet());
+                }
+                flush();
+            } else {
+                CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] No zones found.");
+            }
             return;
         }
-        int ok = 0, bad = 0;
-        for (File f : files) {
-            try {
-                Zone z = readZoneFile(f);
-                ZONES.put(z.id(), z);
-                FILE_BY_ID.put(z.id(), f);
-                ok++;
-            } catch (Exception e) {
-                CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Could not read {}: {}", f.getName(), e.getMessage());
-                bad++;
+
+        int bad = 0;
+        ForkJoinPool pool = newLoadPool();
+        try {
+            for (File f : regions) {
+                try {
+                    for (Zone z : GrassZoneBinaryStore.readRegion(f, pool)) next.put(z);
+                } catch (Exception e) {
+                    CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Could not read region {}: {}", f.getName(), e.getMessage(), e);
+                    quarantine(f);
+                    bad++;
+                }
             }
+        } finally {
+            pool.shutdown();
         }
-        CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] Loaded {} zones ({} invalid).", ok, bad);
+        publishReset(next);
+        CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] Loaded {} zones from {} region files ({} invalid).",
+                next.zones.size(), regions.length, bad);
+    }
+
+    /**
+     * Regione illeggibile: la sposta in .bad prima che un flush la riscriva (o cancelli) con le sole zone in memoria.
+     * Se lo spostamento fallisce la regione resta in sola lettura: flushRegions non la tocca.
+     */
+    private static void quarantine(File f) {
+        File aside = new File(f.getParentFile(), f.getName() + "." + System.currentTimeMillis() + ".bad");
+        try {
+            Files.move(f.toPath(), aside.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Region {} moved aside to {}: its zones are not loaded.",
+                    f.getName(), aside.getName());
+        } catch (IOException e) {
+            synchronized (PENDING_LOCK) {
+                READ_ONLY_REGIONS.add(f.getAbsoluteFile());
+            }
+            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Could not move region {} aside ({}): it will not be rewritten.",
+                    f.getName(), e.getMessage());
+        }
+    }
+
+    /** Pool dedicato al caricamento: non occupa il commonPool condiviso con il resto del server. */
+    private static ForkJoinPool newLoadPool() {
+        return new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
     }
 
     /** Overlap 3D con Y puntuale (compat: controlla se la proiezione XY si sovrappone e il punto Y cade nel range della zona). */
     public static boolean overlaps(RegistryKey<World> worldKey, int minX, int minZ, int maxX, int maxZ, int y) {
-        int aMinX = Math.min(minX, maxX);
-        int aMaxX = Math.max(minX, maxX);
-        int aMinZ = Math.min(minZ, maxZ);
-        int aMaxZ = Math.max(minZ, maxZ);
-
-        for (Zone z : ZONES.values()) {
-            if (!z.worldKey().equals(worldKey)) continue;
-            boolean xOverlap = aMinX <= z.maxX() && aMaxX >= z.minX();
-            boolean zOverlap = aMinZ <= z.maxZ() && aMaxZ >= z.minZ();
-            boolean yInside = y >= z.minY() && y <= z.maxY();
-            if (xOverlap && zOverlap && yInside) return true;
-        }
-        return false;
+        return overlaps(worldKey, minX, minZ, maxX, maxZ, y, y);
     }
 
     /** Overlap 3D tra due prismi (range Y completo). */
     public static boolean overlaps(RegistryKey<World> worldKey, int minX, int minZ, int maxX, int maxZ, int minY, int maxY) {
-        int aMinX = Math.min(minX, maxX);
-        int aMaxX = Math.max(minX, maxX);
-        int aMinZ = Math.min(minZ, maxZ);
-        int aMaxZ = Math.max(minZ, maxZ);
-        int aMinY = Math.min(minY, maxY);
-        int aMaxY = Math.max(minY, maxY);
-
-        for (Zone z : ZONES.values()) {
-            if (!z.worldKey().equals(worldKey)) continue;
-            boolean xOverlap = aMinX <= z.maxX() && aMaxX >= z.minX();
-            boolean zOverlap = aMinZ <= z.maxZ() && aMaxZ >= z.minZ();
-            boolean yOverlap = aMinY <= z.maxY() && aMaxY >= z.minY();
-            if (xOverlap && zOverlap && yOverlap) return true;
-        }
-        return false;
+        return STATE.index.anyOverlap(worldKey,
+                Math.min(minX, maxX), Math.min(minZ, maxZ),
+                Math.max(minX, maxX), Math.max(minZ, maxZ),
+                Math.min(minY, maxY), Math.max(minY, maxY));
     }
 
     /** Overlap 2D (ignora Y). */
     public static boolean overlaps(RegistryKey<World> worldKey, int minX, int minZ, int maxX, int maxZ) {
-        int aMinX = Math.min(minX, maxX);
-        int aMaxX = Math.max(minX, maxX);
-        int aMinZ = Math.min(minZ, maxZ);
-        int aMaxZ = Math.max(minZ, maxZ);
-
-        for (Zone z : ZONES.values()) {
-            if (!z.worldKey().equals(worldKey)) continue;
-            boolean xOverlap = aMinX <= z.maxX() && aMaxX >= z.minX();
-            boolean zOverlap = aMinZ <= z.maxZ() && aMaxZ >= z.minZ();
-            if (xOverlap && zOverlap) return true;
-        }
-        return false;
+        return overlaps(worldKey, minX, minZ, maxX, maxZ, Integer.MIN_VALUE, Integer.MAX_VALUE);
     }
 
-    /** Serializza tutte le zone (sincronizza/ripulisce orfani). */
+    /** Riscrive tutte le zone in modo sincrono (le modifiche singole usano già la scrittura incrementale). */
     public static void save() {
-        try {
-            ensureDir();
-            Set<File> keep = new HashSet<>();
-            for (Zone z : ZONES.values()) {
-                File f = writeZoneFile(z);
-                keep.add(f);
-                FILE_BY_ID.put(z.id(), f);
-            }
-            File[] files = ZONES_DIR.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".json"));
-            if (files != null) {
-                for (File f : files) {
-                    if (!keep.contains(f)) {
-                        boolean deleted = f.delete();
-                        if (!deleted) CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Could not delete orphan {}", f.getName());
-                    }
-                }
-            }
-        } catch (IOException e) {
-            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Save error: {}", e.getMessage(), e);
+        synchronized (PENDING_LOCK) {
+            DIRTY.addAll(STATE.zones.keySet());
         }
+        flush();
     }
 
     /** Creazione zona (compat: singolo Y -> minY==maxY==y). */
@@ -311,128 +591,177 @@ public class GrassZonesConfig {
                 spawns == null ? List.of() : spawns,
                 shinyOdds
         );
-        ZONES.put(id, z);
-        try {
-            File f = writeZoneFile(z);
-            FILE_BY_ID.put(id, f);
-        } catch (IOException e) {
-            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error on addZone {}: {}", id, e.getMessage(), e);
+        synchronized (WRITE_LOCK) {
+            State next = STATE.copy();
+            next.put(z);
+            assignFile(next, z);
+            publish(next, id);
+            markDirty(id);
+        }
+        if (!requestFlush()) {
+            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error on addZone {}", id);
         }
         return id;
     }
 
     public static boolean removeZone(UUID id) {
-        Zone removed = ZONES.remove(id);
-        File f = FILE_BY_ID.remove(id);
-        if (removed != null) {
-            if (f == null) f = guessFileByName(removed.name());
-            if (f.exists() && !f.delete()) {
-                CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Could not delete file {}", f.getName());
+        synchronized (WRITE_LOCK) {
+            State next = STATE.copy();
+            Zone removed = next.remove(id);
+            if (removed == null) return false;
+            File f = next.removeFile(id);
+            if (f == null && !GrassZonesSettings.isBinaryStorage()) f = guessFileByName(removed.name());
+            publish(next, id);
+            if (f != null && !next.owners.containsKey(f)) markDeleted(f);
+            synchronized (PENDING_LOCK) {
+                DIRTY_DIMENSIONS.add(removed.worldKey());
             }
-            return true;
         }
-        return false;
+        requestFlush();
+        return true;
     }
 
     /** Trova tutte le zone che contengono un punto. */
     public static List<Zone> findAt(RegistryKey<World> wk, int x, int y, int z) {
-        List<Zone> out = new ArrayList<>();
-        for (Zone z0 : ZONES.values()) if (z0.contains(x, y, z, wk)) out.add(z0);
-        return out;
+        return STATE.index.findAt(wk, x, y, z);
+    }
+
+    /** Zone della dimensione che toccano il rettangolo di chunk dato (estremi inclusi). */
+    public static List<Zone> findInChunks(RegistryKey<World> wk, int cMinX, int cMinZ, int cMaxX, int cMaxZ) {
+        return STATE.index.findInChunks(wk, cMinX, cMinZ, cMaxX, cMaxZ);
     }
 
-    /** Aggiunge uno spawn a una zona. */
+    // Modifiche a una zona: true solo se applicate E scritte (o accodate) su disco.
+    // false = zona inesistente, modifica rifiutata oppure errore di scrittura (in quel caso la memoria è già aggiornata).
+
+    /** Aggiunge uno spawn a una zona (false se la zona usa una pool condivisa: si modifica la pool). */
     public static boolean addSpawn(UUID zoneId, SpawnEntry entry) {
-        Zone z = ZONES.get(zoneId); if (z == null) return false;
-        List<SpawnEntry> ns = new ArrayList<>(z.spawns()); ns.add(entry);
-        Zone nz = z.withSpawns(ns);
-        ZONES.put(zoneId, nz);
-        try {
-            File f = writeZoneFile(nz);
-            FILE_BY_ID.put(zoneId, f);
-        } catch (IOException e) {
-            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error on addSpawn {}: {}", zoneId, e.getMessage(), e);
-        }
-        return true;
+        return updateZone(zoneId, "addSpawn", z -> {
+            if (z.poolId() != null) return null;
+            List<SpawnEntry> ns = new ArrayList<>(z.spawns()); ns.add(entry);
+            return z.withSpawns(ns);
+        }) == UpdateResult.OK;
     }
 
-    /** Rimuove uno spawn per species id (case-insensitive). */
+    /** Rimuove uno spawn per species id (case-insensitive); false se la zona usa una pool condivisa. */
     public static boolean removeSpawn(UUID zoneId, String speciesId) {
-        Zone z = ZONES.get(zoneId); if (z == null) return false;
-        List<SpawnEntry> ns = new ArrayList<>();
-        for (SpawnEntry e : z.spawns()) if (!e.species.equalsIgnoreCase(speciesId)) ns.add(e);
-        Zone nz = z.withSpawns(ns);
-        ZONES.put(zoneId, nz);
-        try {
-            File f = writeZoneFile(nz);
-            FILE_BY_ID.put(zoneId, f);
-        } catch (IOException e) {
-            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error on removeSpawn {}: {}", zoneId, e.getMessage(), e);
-        }
-        return true;
+        UpdateResult r = updateZone(zoneId, "removeSpawn", z -> {
+            if (z.poolId() != null) return null;
+            List<SpawnEntry> ns = new ArrayList<>();
+            for (SpawnEntry e : z.spawns()) if (!e.species.equalsIgnoreCase(speciesId)) ns.add(e);
+            return z.withSpawns(ns);
+        });
+        return r == UpdateResult.OK;
     }
 
     /** Imposta shiny odds (1 su N) per zona. -1 = default globale. */
     public static boolean setZoneShinyOdds(UUID zoneId, int shinyOdds) {
-        Zone z = ZONES.get(zoneId); if (z == null) return false;
-        Zone nz = z.withShinyOdds(shinyOdds);
-        ZONES.put(zoneId, nz);
-        try {
-            File f = writeZoneFile(nz);
-            FILE_BY_ID.put(zoneId, f);
-        } catch (IOException e) {
-            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error on setZoneShinyOdds {}: {}", zoneId, e.getMessage(), e);
-        }
-        return true;
+        return updateZone(zoneId, "setZoneShinyOdds", z -> z.withShinyOdds(shinyOdds)) == UpdateResult.OK;
     }
 
     /** Rinomina la zona e rinomina il file su disco. */
     public static boolean setZoneName(UUID zoneId, String newName) {
         if (newName == null || newName.isBlank()) return false;
-        Zone z = ZONES.get(zoneId); if (z == null) return false;
-        Zone nz = z.withName(newName);
-        ZONES.put(zoneId, nz);
-        try {
-            File oldFile = FILE_BY_ID.get(zoneId);
-            File newFile = writeZoneFile(nz);
-            FILE_BY_ID.put(zoneId, newFile);
-            if (oldFile != null && !sameFile(oldFile, newFile) && oldFile.exists()) {
-                if (!isFileUsedByOtherZone(oldFile, zoneId)) {
-                    boolean deleted = oldFile.delete();
-                    if (!deleted) CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Could not delete old file {}", oldFile.getName());
-                }
-            }
-        } catch (IOException e) {
-            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error on setZoneName {}: {}", zoneId, e.getMessage(), e);
-            return false;
+        return updateZone(zoneId, "setZoneName", z -> z.withName(newName)) == UpdateResult.OK;
+    }
+
+    /**
+     * Collega la zona a una pool condivisa (poolId) oppure, con null, la stacca copiando
+     * gli spawn correnti della pool nella zona. Il collegamento avviene col lock di SpawnPoolLibrary:
+     * una delete concorrente della pool non può passare tra il controllo di esistenza e la modifica.
+     */
+    public static boolean setZonePool(UUID zoneId, String poolId) {
+        if (poolId == null) {
+            return updateZone(zoneId, "setZonePool", z -> z.withSpawns(z.spawns())) == UpdateResult.OK;
         }
-        return true;
+        String key = SpawnPoolLibrary.normalizeId(poolId);
+        return SpawnPoolLibrary.whileExists(key,
+                () -> updateZone(zoneId, "setZonePool", z -> z.withPool(key)) == UpdateResult.OK);
+    }
+
+    /** Quante zone referenziano la pool. */
+    public static int poolRefCount(String poolId) {
+        Integer n = STATE.poolRefs.get(SpawnPoolLibrary.normalizeId(poolId));
+        return n == null ? 0 : n;
+    }
+
+    /** Imposta la forma a voxel della zona (null = box intero); il box diventa il bounding box della mask. */
+    public static boolean setZoneMask(UUID zoneId, ZoneMask mask) {
+        return updateZone(zoneId, "setZoneMask", z -> z.withMask(mask)) == UpdateResult.OK;
     }
 
-    // >>> NUOVO: sostituisce la lista spawns di una zona (usato da pastepool)
+    // >>> NUOVO: sostituisce la lista spawns di una zona (usato da pastepool); rifiutato se la zona usa una pool
     public static boolean setZoneSpawns(UUID zoneId, List<SpawnEntry> newSpawns) {
-        Zone z = ZONES.get(zoneId);
-        if (z == null) return false;
+        return updateZone(zoneId, "setZoneSpawns",
+                z -> z.poolId() != null ? null : z.withSpawns(newSpawns == null ? List.of() : newSpawns)) == UpdateResult.OK;
+    }
 
-        Zone nz = z.withSpawns(newSpawns == null ? List.of() : newSpawns);
-        ZONES.put(zoneId, nz);
+    /** Snapshot immutabile: sicuro da iterare da qualsiasi thread, non riflette modifiche successive. */
+    public static Collection<Zone> getAll() { return Collections.unmodifiableCollection(STATE.zones.values()); }
+    public static Zone get(UUID id) { return STATE.zones.get(id); }
 
-        try {
-            File f = writeZoneFile(nz);
-            FILE_BY_ID.put(zoneId, f);
-        } catch (IOException e) {
-            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error on setZoneSpawns {}: {}", zoneId, e.getMessage(), e);
-            return false;
+    // ======== SYNC CLIENT ========
+
+    /** Revisione corrente dell'insieme di zone: cresce a ogni modifica, anche dopo un reload. */
+    public static long revision() { return STATE.revision; }
+
+    /**
+     * Modifiche rispetto a una revisione nota al client.
+     * reset=true: upserts contiene tutte le zone e il client deve scartare la propria copia.
+     */
+    public record Delta(long revision, boolean reset, List<Zone> upserts, List<UUID> removed) {}
+
+    /** Delta dalla revisione indicata (negativa = nessuna copia locale) alla corrente. */
+    public static Delta changesSince(long knownRevision) {
+        State st;
+        Set<UUID> changed;
+        synchronized (WRITE_LOCK) {
+            st = STATE;
+            changed = knownRevision < 0 ? null : CHANGES.changedSince(knownRevision, st.revision);
         }
-        return true;
+        if (changed == null) {
+            return new Delta(st.revision, true, List.copyOf(st.zones.values()), List.of());
+        }
+        List<Zone> upserts = new ArrayList<>();
+        List<UUID> removed = new ArrayList<>();
+        for (UUID id : changed) {
+            Zone z = st.zones.get(id);
+            if (z != null) upserts.add(z);
+            else removed.add(id);
+        }
+        return new Delta(st.revision, false, upserts, removed);
     }
 
-    public static Collection<Zone> getAll() { return Collections.unmodifiableCollection(ZONES.values()); }
-    public static Zone get(UUID id) { return ZONES.get(id); }
-
     // ======== INTERNALS ========
 
-    private static void migrateLegacy(File legacy) {
+    private enum UpdateResult { OK, NOT_FOUND, REJECTED, WRITE_ERROR }
+
+    /**
+     * Applica una modifica a una singola zona su una copia dello stato, pubblica il nuovo stato e
+     * segna la zona come da salvare (il file viene rinominato se cambia il nome).
+     * In caso di errore di scrittura lo stato in memoria resta comunque aggiornato (come in passato).
+     * Se change ritorna null la modifica è rifiutata e nulla cambia.
+     */
+    private static UpdateResult updateZone(UUID zoneId, String op, java.util.function.UnaryOperator<Zone> change) {
+        synchronized (WRITE_LOCK) {
+            Zone z = STATE.zones.get(zoneId);
+            if (z == null) return UpdateResult.NOT_FOUND;
+            Zone nz = change.apply(z);
+            if (nz == null) return UpdateResult.REJECTED;
+            State next = STATE.copy();
+            next.put(nz);
+            assignFile(next, nz);
+            publish(next, zoneId);
+            markDirty(zoneId);
+        }
+        if (!requestFlush()) {
+            CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error on {} {}", op, zoneId);
+            return UpdateResult.WRITE_ERROR;
+        }
+        return UpdateResult.OK;
+    }
+
+    private static void migrateLegacy(File legacy, State next) {
         CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] Migrating from legacy grass_zones.json to zones/ ...");
         List<Zone> loaded = new ArrayList<>();
         try (FileReader r = new FileReader(legacy)) {
@@ -452,20 +781,162 @@ public class GrassZonesConfig {
         }
 
         for (Zone z : loaded) {
-            ZONES.put(z.id(), z);
-            try {
-                File f = writeZoneFile(z);
-                FILE_BY_ID.put(z.id(), f);
-            } catch (IOException e) {
-                CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Error writing migrated zone {}: {}", z.id(), e.getMessage(), e);
-            }
+            next.put(z);
+            assignFile(next, z);
         }
+        publishReset(next);
+        synchronized (PENDING_LOCK) {
+            DIRTY.addAll(next.zones.keySet());
+        }
+        flush();
 
         File bak = new File(legacy.getParentFile(), legacy.getName() + ".bak");
         if (!legacy.renameTo(bak)) {
             CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Could not rename legacy file, leaving it in place.");
         }
-        CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] Migration complete: {} zones.", ZONES.size());
+        CobblemonMapKitMod.LOGGER.info("[GrassZonesConfig] Migration complete: {} zones.", next.zones.size());
+    }
+
+    // ======== PERSISTENZA INCREMENTALE ========
+
+    /** Zone da riscrivere: si salva solo l'id, al flush si legge la versione più recente dallo STATE. */
+    private static final Set<UUID> DIRTY = new LinkedHashSet<>();
+    /** File da cancellare (rinomine/rimozioni), applicati direttamente senza scansionare la cartella. */
+    private static final Set<File> PENDING_DELETES = new LinkedHashSet<>();
+    /** storageFormat=binary: dimensioni da riscrivere anche senza zone modificate (rimozioni). */
+    private static final Set<RegistryKey<World>> DIRTY_DIMENSIONS = new LinkedHashSet<>();
+    /** Regioni illeggibili che non è stato possibile spostare: mai riscritte né cancellate. */
+    private static final Set<File> READ_ONLY_REGIONS = new HashSet<>();
+    private static final Object PENDING_LOCK = new Object();
+    /** Serializza i flush (thread server e thread I/O). */
+    private static final Object IO_LOCK = new Object();
+    private static final java.util.concurrent.atomic.AtomicBoolean FLUSH_SCHEDULED = new java.util.concurrent.atomic.AtomicBoolean(false);
+    private static java.util.concurrent.ScheduledExecutorService ioExecutor;
+
+    private static void markDirty(UUID id) {
+        synchronized (PENDING_LOCK) {
+            DIRTY.add(id);
+        }
+    }
+
+    private static void markDeleted(File f) {
+        synchronized (PENDING_LOCK) {
+            PENDING_DELETES.add(f);
+        }
+    }
+
+    private static boolean isPendingDelete(File f) {
+        synchronized (PENDING_LOCK) {
+            return PENDING_DELETES.contains(f);
+        }
+    }
+
+    /**
+     * Sync: scrive subito e ritorna l'esito. Async: pianifica un unico flush dopo asyncSaveDelayMs,
+     * così più modifiche alla stessa zona in quella finestra producono una sola scrittura.
+     */
+    private static boolean requestFlush() {
+        if (!GrassZonesSettings.isAsyncSave()) return flush();
+        if (FLUSH_SCHEDULED.compareAndSet(false, true)) {
+            ioExecutor().schedule(() -> {
+                FLUSH_SCHEDULED.set(false);
+                flush();
+            }, GrassZonesSettings.getAsyncSaveDelayMs(), java.util.concurrent.TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    private static synchronized java.util.concurrent.ScheduledExecutorService ioExecutor() {
+        if (ioExecutor == null) {
+            ioExecutor = java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "MapKit-GrassZones-IO");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return ioExecutor;
+    }
+
+    /**
+     * Applica cancellazioni e scritture in sospeso. Chiamato dal thread I/O, in modalità sync dal chiamante
+     * e allo stop del server. Ritorna false se almeno una scrittura è fallita.
+     */
+    public static boolean flush() {
+        synchronized (IO_LOCK) {
+            List<UUID> ids;
+            List<File> deletes;
+            Set<RegistryKey<World>> dims;
+            synchronized (PENDING_LOCK) {
+                if (DIRTY.isEmpty() && PENDING_DELETES.isEmpty() && DIRTY_DIMENSIONS.isEmpty()) return true;
+                ids = new ArrayList<>(DIRTY);
+                deletes = new ArrayList<>(PENDING_DELETES);
+                dims = new LinkedHashSet<>(DIRTY_DIMENSIONS);
+                DIRTY.clear();
+                PENDING_DELETES.clear();
+                DIRTY_DIMENSIONS.clear();
+            }
+            State st = STATE;
+            if (GrassZonesSettings.isBinaryStorage()) return flushRegions(st, ids, dims);
+
+            ensureDir();
+            boolean ok = true;
+
+            // prima le cancellazioni: un file liberato può essere stato riassegnato a un'altra zona
+            for (File f : deletes) {
+                if (st.owners.containsKey(f)) continue;
+                if (f.exists() && !f.delete()) {
+                    CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Could not delete file {}", f.getName());
+                }
+            }
+            for (UUID id : ids) {
+                Zone z = st.zones.get(id);
+                File f = st.files.get(id);
+                if (z == null || f == null) continue; // rimossa nel frattempo
+                try {
+                    writeJson(f, z);
+                } catch (IOException e) {
+                    CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error for zone {}: {}", id, e.getMessage(), e);
+                    ok = false;
+                }
+            }
+            return ok;
+        }
+    }
+
+    /** Riscrive per intero le regioni delle dimensioni toccate (zone in ordine di inserimento). */
+    private static boolean flushRegions(State st, List<UUID> ids, Set<RegistryKey<World>> dims) {
+        for (UUID id : ids) {
+            Zone z = st.zones.get(id);
+            if (z != null) dims.add(z.worldKey());
+        }
+        if (dims.isEmpty()) return true;
+        if (!REGION_DIR.exists() && !REGION_DIR.mkdirs()) {
+            CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Unable to create region dir: {}", REGION_DIR.getAbsolutePath());
+        }
+
+        boolean ok = true;
+        for (RegistryKey<World> wk : dims) {
+            List<Zone> zones = new ArrayList<>();
+            for (Zone z : st.zones.values()) if (z.worldKey().equals(wk)) zones.add(z);
+            File f = GrassZoneBinaryStore.regionFile(REGION_DIR, wk);
+            boolean readOnly;
+            synchronized (PENDING_LOCK) {
+                readOnly = READ_ONLY_REGIONS.contains(f.getAbsoluteFile());
+            }
+            if (readOnly) {
+                CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Region {} could not be read at load: not rewriting it.", f.getName());
+                ok = false;
+                continue;
+            }
+            try {
+                if (zones.isEmpty()) Files.deleteIfExists(f.toPath());
+                else GrassZoneBinaryStore.writeRegion(f, wk, zones);
+            } catch (IOException e) {
+                CobblemonMapKitMod.LOGGER.error("[GrassZonesConfig] Write error for region {}: {}", f.getName(), e.getMessage(), e);
+                ok = false;
+            }
+        }
+        return ok;
     }
 
     private static TimeBand parseTime(String s) {
@@ -514,35 +985,45 @@ public class GrassZonesConfig {
         return new File(ZONES_DIR, base + ".json");
     }
 
-    private static boolean sameFile(File a, File b) {
-        try {
-            return a.getCanonicalPath().equals(b.getCanonicalPath());
-        } catch (IOException e) {
-            return a.getAbsolutePath().equals(b.getAbsolutePath());
-        }
+    /**
+     * Sceglie il file della zona in base al nome (solo in memoria, la scrittura avviene al flush).
+     * Il file precedente, se non più posseduto da nessuno, viene messo in coda di cancellazione.
+     */
+    private static void assignFile(State st, Zone z) {
+        if (GrassZonesSettings.isBinaryStorage()) return; // le regioni non hanno file per zona
+        assignJsonFile(st, z);
     }
 
-    private static boolean isFileUsedByOtherZone(File f, UUID currentId) {
-        for (Map.Entry<UUID, File> e : FILE_BY_ID.entrySet()) {
-            if (!e.getKey().equals(currentId) && sameFile(e.getValue(), f)) return true;
-        }
-        return false;
+    private static void assignJsonFile(State st, Zone z) {
+        File current = st.files.get(z.id());
+        File target = uniqueFileForName(st, z.name(), z.id());
+        if (target.equals(current)) return;
+        st.setFile(z.id(), target);
+        if (current != null && !st.owners.containsKey(current)) markDeleted(current);
     }
 
     /** Trova un filename unico per il nome desiderato, con suffissi " (2)", " (3)" se necessario. */
-    private static File uniqueFileForName(String desiredName, UUID ownerId) {
+    private static File uniqueFileForName(State st, String desiredName, UUID ownerId) {
         String base = sanitizeForFilename(desiredName);
         File f = new File(ZONES_DIR, base + ".json");
-        if (!existsDifferentOwner(f, ownerId)) return f;
+        if (!isTakenByOther(st, f, ownerId)) return f;
 
         int i = 2;
         while (true) {
             File cand = new File(ZONES_DIR, base + " (" + i + ").json");
-            if (!existsDifferentOwner(cand, ownerId)) return cand;
+            if (!isTakenByOther(st, cand, ownerId)) return cand;
             i++;
         }
     }
 
+    /** Occupato se assegnato ad un'altra zona, oppure presente su disco, non tracciato e non in cancellazione. */
+    private static boolean isTakenByOther(State st, File f, UUID ownerId) {
+        UUID owner = st.owners.get(f);
+        if (owner != null) return !owner.equals(ownerId);
+        if (isPendingDelete(f)) return false;
+        return existsDifferentOwner(f, ownerId);
+    }
+
     /** Ritorna true se il file esiste ed è associato ad un id diverso (o non leggibile ma presente). */
     private static boolean existsDifferentOwner(File f, UUID ownerId) {
         if (!f.exists()) return false;
@@ -555,26 +1036,6 @@ public class GrassZonesConfig {
         }
     }
 
-    /** Scrive su disco la zona, scegliendo/aggiornando il filename in base al nome. */
-    private static File writeZoneFile(Zone z) throws IOException {
-        ensureDir();
-
-        File current = FILE_BY_ID.get(z.id());
-        File target = uniqueFileForName(z.name(), z.id());
-
-        if (current != null && current.exists()) {
-            if (sameFile(current, target)) return writeJson(target, z);
-            File written = writeJson(target, z);
-            if (!isFileUsedByOtherZone(current, z.id()) && current.exists()) {
-                boolean deleted = current.delete();
-                if (!deleted) CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Could not delete old file {}", current.getName());
-            }
-            return written;
-        } else {
-            return writeJson(target, z);
-        }
-    }
-
     private static File writeJson(File target, Zone z) throws IOException {
         ZoneData zd = toZoneData(z);
         FileWrap wrap = new FileWrap();
@@ -606,8 +1067,15 @@ public class GrassZonesConfig {
         zd.timeCreated = z.timeCreated();
         zd.shinyOdds = (z.shinyOdds() <= 0) ? -1 : z.shinyOdds();
 
-        zd.spawns = new ArrayList<>();
-        for (SpawnEntry se : z.spawns()) {
+        zd.poolId = z.poolId();
+        zd.mask = z.mask() == null ? null : Base64.getEncoder().encodeToString(z.mask().encode());
+        zd.spawns = toSpawnData(z.ownSpawns());
+        return zd;
+    }
+
+    static List<SpawnData> toSpawnData(List<SpawnEntry> spawns) {
+        List<SpawnData> out = new ArrayList<>();
+        for (SpawnEntry se : spawns) {
             SpawnData sd = new SpawnData();
             sd.species = se.species;
             sd.minLevel = se.minLevel;
@@ -615,9 +1083,26 @@ public class GrassZonesConfig {
             sd.weight = se.weight;
             sd.time = se.time.name().toLowerCase(Locale.ROOT);
             if (se.aspect != null && !se.aspect.isBlank()) sd.aspect = se.aspect;
-            zd.spawns.add(sd);
+            out.add(sd);
         }
-        return zd;
+        return out;
+    }
+
+    /** Converte e valida; le entry non valide vengono scartate con un warning (owner = zona o pool). */
+    static List<SpawnEntry> fromSpawnData(List<SpawnData> data, String owner) {
+        List<SpawnEntry> spawns = new ArrayList<>();
+        if (data == null) return spawns;
+        for (SpawnData sd : data) {
+            if (sd == null || sd.species == null || sd.species.isBlank()
+                    || sd.minLevel <= 0 || sd.maxLevel < sd.minLevel || sd.weight <= 0) {
+                CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Invalid spawn in {}: {}", owner, sd);
+                continue;
+            }
+            spawns.add(new SpawnEntry(
+                    sd.species, sd.minLevel, sd.maxLevel, sd.weight, parseTime(sd.time), sd.aspect
+            ));
+        }
+        return spawns;
     }
 
     private static Zone fromZoneData(ZoneData zd) {
@@ -643,23 +1128,20 @@ public class GrassZonesConfig {
             minY = 0; maxY = 0;
         }
 
-        List<SpawnEntry> spawns = new ArrayList<>();
-        if (zd.spawns != null) {
-            for (SpawnData sd : zd.spawns) {
-                if (sd == null || sd.species == null || sd.species.isBlank()
-                        || sd.minLevel <= 0 || sd.maxLevel < sd.minLevel || sd.weight <= 0) {
-                    CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Invalid spawn in zone {}: {}", zd.id, sd);
-                    continue;
-                }
-                spawns.add(new SpawnEntry(
-                        sd.species, sd.minLevel, sd.maxLevel, sd.weight, parseTime(sd.time), sd.aspect
-                ));
-            }
-        }
+        List<SpawnEntry> spawns = fromSpawnData(zd.spawns, "zone " + zd.id);
         long t = zd.timeCreated == 0 ? Instant.now().toEpochMilli() : zd.timeCreated;
         int shinyOdds = (zd.shinyOdds == null || zd.shinyOdds <= 0) ? -1 : zd.shinyOdds;
         String name = (zd.name == null || zd.name.isBlank()) ? ("Zone " + shortId(id)) : zd.name;
-        return new Zone(id, name, wk, zd.minX, zd.minZ, zd.maxX, zd.maxZ, minY, maxY, t, spawns, shinyOdds);
+
+        ZoneMask mask = null;
+        if (zd.mask != null && !zd.mask.isBlank()) {
+            try {
+                mask = ZoneMask.decode(Base64.getDecoder().decode(zd.mask));
+            } catch (IOException | IllegalArgumentException e) {
+                CobblemonMapKitMod.LOGGER.warn("[GrassZonesConfig] Invalid mask for zone {}, using its box: {}", zd.id, e.getMessage());
+            }
+        }
+        return new Zone(id, name, wk, zd.minX, zd.minZ, zd.maxX, zd.maxZ, minY, maxY, t, spawns, shinyOdds, zd.poolId, mask);
     }
 
     private static Zone readZoneFile(File f) throws IOException {
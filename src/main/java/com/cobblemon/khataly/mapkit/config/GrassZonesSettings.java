@@ -0,0 +1,176 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * Impostazioni tecniche delle Grass Zones (persistenza, prestazioni).
+ * - asyncSave: se true le scritture dei file zona avvengono su un thread I/O dedicato;
+ *   modifiche ripetute alla stessa zona entro asyncSaveDelayMs producono una sola scrittura.
+ * - asyncSaveDelayMs: finestra di coalescenza per le scritture asincrone.
+ * - storageFormat: "json" (un file per zona, default) oppure "binary" (un file regione compatto per dimensione,
+ *   caricato in parallelo). Il JSON resta il formato di scambio: /grasszone storage export|import.
+ * - editBudgetMs: millisecondi per tick dedicati a posa/rimozione erba (grass wand, /grasszone remove).
+ * - asyncEncounterPrep: se true il Pokémon selvatico viene preparato su thread worker e il thread server
+ *   esegue solo sendOut + avvio battaglia; false = percorso sincrono.
+ * - encounterPrepThreads: numero di thread worker per la preparazione degli incontri.
+ * - maxEncounterStartsPerTick / maxEncounterStartsPerSecond: limiti globali agli avvii di incontro;
+ *   gli incontri in eccesso restano in coda (uno per player) al massimo encounterMaxDelayTicks.
+ * - zoneShapeStorage: "config" (forma delle zone nei file zona, default) oppure "chunk" (forma e appartenenza
+ *   salvate nei chunk con la data attachment API di Fabric, vedi ChunkZoneStore).
+ * - telemetryDumpSeconds: intervallo del dump della telemetria incontri su file (0 = disattivato);
+ *   telemetryDumpFormat: "json" oppure "prometheus" (testo per uno scraper locale).
+ * - zoneEnterNotice: se true il player vede "Entered <zona>" in action bar entrando in una zona (default false).
+ * File path: config/cobblemonmapkit/grass_settings.json
+ */
+public class GrassZonesSettings {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final File CONFIG_FILE = new File("config/cobblemonmapkit/grass_settings.json");
+    private static final int CURRENT_SCHEMA_VERSION = 1;
+
+    private static boolean asyncSave = false;
+    private static int asyncSaveDelayMs = 500;
+    private static String storageFormat = "json";
+    private static int editBudgetMs = 2;
+    private static boolean asyncEncounterPrep = false;
+    private static int encounterPrepThreads = 2;
+    private static int maxEncounterStartsPerTick = 2;
+    private static int maxEncounterStartsPerSecond = 10;
+    private static int encounterMaxDelayTicks = 60;
+    private static String zoneShapeStorage = "config";
+    private static int telemetryDumpSeconds = 0;
+    private static String telemetryDumpFormat = "json";
+    private static boolean zoneEnterNotice = false;
+
+    private static class ConfigData {
+        Integer schemaVersion;
+        Boolean asyncSave;
+        Integer asyncSaveDelayMs;
+        String storageFormat;   // "json" | "binary"
+        Integer editBudgetMs;
+        Boolean asyncEncounterPrep;
+        Integer encounterPrepThreads;
+        Integer maxEncounterStartsPerTick;
+        Integer maxEncounterStartsPerSecond;
+        Integer encounterMaxDelayTicks;
+        String zoneShapeStorage;  // "config" | "chunk"
+        Integer telemetryDumpSeconds;
+        String telemetryDumpFormat; // "json" | "prometheus"
+        Boolean zoneEnterNotice;
+    }
+
+    public static void load() {
+        if (!CONFIG_FILE.exists()) {
+            CobblemonMapKitMod.LOGGER.info("[GrassZonesSettings] Config not found. Creating defaults...");
+            save();
+            return;
+        }
+
+        boolean clean = true;
+        try (FileReader r = new FileReader(CONFIG_FILE)) {
+            ConfigData d = GSON.fromJson(r, ConfigData.class);
+            if (d == null) {
+                clean = false;
+            } else {
+                Integer ver = (d.schemaVersion == null) ? CURRENT_SCHEMA_VERSION : d.schemaVersion;
+                if (!Objects.equals(ver, CURRENT_SCHEMA_VERSION)) {
+                    CobblemonMapKitMod.LOGGER.warn("[GrassZonesSettings] Schema {} differs from {} — will rewrite file.", ver, CURRENT_SCHEMA_VERSION);
+                    clean = false;
+                }
+                if (d.asyncSave == null || d.asyncSaveDelayMs == null || d.storageFormat == null
+                        || d.editBudgetMs == null || d.asyncEncounterPrep == null
+                        || d.encounterPrepThreads == null || d.maxEncounterStartsPerTick == null
+                        || d.maxEncounterStartsPerSecond == null || d.encounterMaxDelayTicks == null
+                        || d.zoneShapeStorage == null || d.telemetryDumpSeconds == null
+                        || d.telemetryDumpFormat == null || d.zoneEnterNotice == null) clean = false;
+
+                asyncSave        = d.asyncSave != null && d.asyncSave;
+                asyncSaveDelayMs = (d.asyncSaveDelayMs == null) ? 500 : Math.max(0, d.asyncSaveDelayMs);
+                storageFormat    = "binary".equalsIgnoreCase(d.storageFormat) ? "binary" : "json";
+                editBudgetMs     = (d.editBudgetMs == null) ? 2 : Math.max(1, d.editBudgetMs);
+                asyncEncounterPrep   = d.asyncEncounterPrep != null && d.asyncEncounterPrep;
+                encounterPrepThreads = (d.encounterPrepThreads == null) ? 2 : Math.max(1, Math.min(8, d.encounterPrepThreads));
+                maxEncounterStartsPerTick   = (d.maxEncounterStartsPerTick == null) ? 2 : Math.max(1, d.maxEncounterStartsPerTick);
+                maxEncounterStartsPerSecond = (d.maxEncounterStartsPerSecond == null) ? 10 : Math.max(1, d.maxEncounterStartsPerSecond);
+                encounterMaxDelayTicks      = (d.encounterMaxDelayTicks == null) ? 60 : Math.max(0, d.encounterMaxDelayTicks);
+                zoneShapeStorage = "chunk".equalsIgnoreCase(d.zoneShapeStorage) ? "chunk" : "config";
+                telemetryDumpSeconds = (d.telemetryDumpSeconds == null) ? 0 : Math.max(0, d.telemetryDumpSeconds);
+                telemetryDumpFormat  = "prometheus".equalsIgnoreCase(d.telemetryDumpFormat) ? "prometheus" : "json";
+                zoneEnterNotice      = d.zoneEnterNotice != null && d.zoneEnterNotice;
+            }
+        } catch (JsonParseException | IOException e) {
+            CobblemonMapKitMod.LOGGER.error("[GrassZonesSettings] Load error: {}", e.getMessage(), e);
+            clean = false;
+        }
+
+        if (!clean) save();
+        CobblemonMapKitMod.LOGGER.info("[GrassZonesSettings] asyncSave={}, asyncSaveDelayMs={}, storageFormat={}, editBudgetMs={}, asyncEncounterPrep={}, encounterPrepThreads={}",
+                asyncSave, asyncSaveDelayMs, storageFormat, editBudgetMs, asyncEncounterPrep, encounterPrepThreads);
+        CobblemonMapKitMod.LOGGER.info("[GrassZonesSettings] maxEncounterStartsPerTick={}, maxEncounterStartsPerSecond={}, encounterMaxDelayTicks={}, zoneShapeStorage={}",
+                maxEncounterStartsPerTick, maxEncounterStartsPerSecond, encounterMaxDelayTicks, zoneShapeStorage);
+        CobblemonMapKitMod.LOGGER.info("[GrassZonesSettings] telemetryDumpSeconds={}, telemetryDumpFormat={}, zoneEnterNotice={}",
+                telemetryDumpSeconds, telemetryDumpFormat, zoneEnterNotice);
+    }
+
+    public static void save() {
+        try {
+            File dir = CONFIG_FILE.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                CobblemonMapKitMod.LOGGER.warn("[GrassZonesSettings] Could not create config dir: {}", dir.getAbsolutePath());
+            }
+
+            ConfigData out = new ConfigData();
+            out.schemaVersion = CURRENT_SCHEMA_VERSION;
+            out.asyncSave = asyncSave;
+            out.asyncSaveDelayMs = asyncSaveDelayMs;
+            out.storageFormat = storageFormat;
+            out.editBudgetMs = editBudgetMs;
+            out.asyncEncounterPrep = asyncEncounterPrep;
+            out.encounterPrepThreads = encounterPrepThreads;
+            out.maxEncounterStartsPerTick = maxEncounterStartsPerTick;
+            out.maxEncounterStartsPerSecond = maxEncounterStartsPerSecond;
+            out.encounterMaxDelayTicks = encounterMaxDelayTicks;
+            out.zoneShapeStorage = zoneShapeStorage;
+            out.telemetryDumpSeconds = telemetryDumpSeconds;
+            out.telemetryDumpFormat = telemetryDumpFormat;
+            out.zoneEnterNotice = zoneEnterNotice;
+
+            File tmp = new File(CONFIG_FILE.getParent(), CONFIG_FILE.getName() + ".tmp");
+            try (FileWriter w = new FileWriter(tmp)) {
+                GSON.toJson(out, w);
+            }
+            try {
+                Files.move(tmp.toPath(), CONFIG_FILE.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException atomicNotSupported) {
+                Files.move(tmp.toPath(), CONFIG_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            CobblemonMapKitMod.LOGGER.error("[GrassZonesSettings] Save error: {}", e.getMessage(), e);
+        }
+    }
+
+    // -------- Getters --------
+
+    public static boolean isAsyncSave() { return asyncSave; }
+    public static int getAsyncSaveDelayMs() { return asyncSaveDelayMs; }
+    public static boolean isBinaryStorage() { return "binary".equals(storageFormat); }
+    public static int getEditBudgetMs() { return editBudgetMs; }
+    public static boolean isAsyncEncounterPrep() { return asyncEncounterPrep; }
+    public static int getEncounterPrepThreads() { return encounterPrepThreads; }
+    public static int getMaxEncounterStartsPerTick() { return maxEncounterStartsPerTick; }
+    public static int getMaxEncounterStartsPerSecond() { return maxEncounterStartsPerSecond; }
+    public static int getEncounterMaxDelayTicks() { return encounterMaxDelayTicks; }
+    public static boolean isChunkShapeStorage() { return "chunk".equals(zoneShapeStorage); }
+    public static int getTelemetryDumpSeconds() { return telemetryDumpSeconds; }
+    public static boolean isTelemetryPrometheus() { return "prometheus".equals(telemetryDumpFormat); }
+    public static boolean isZoneEnterNotice() { return zoneEnterNotice; }
+}
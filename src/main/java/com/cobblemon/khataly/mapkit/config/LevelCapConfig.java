@@ -18,6 +18,8 @@ import java.util.*;
  * - bypassOnMasterBall: if true, allows captures above cap only with cobblemon:master_ball
  * - clampGainedOverCap: if true, clamp level down to cap when a Pokémon is gained by other means (trades, rewards, etc.)
  * - clampCapturedOverCap: if true, clamp level down to cap when a Pokémon is captured above the cap
+ * - stateTables: TTL (seconds) and max entries of the enforcer's transient tables
+ *     (masterBypass, captureBypass, candyHint, allowedOverCap, processedCaptureGain)
  * - progressions: each entry has:
  *     label    (human-friendly, unique, case-insensitive key)
  *     newCap   (int)
@@ -28,7 +30,7 @@ public class LevelCapConfig {
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final File CONFIG_FILE = new File("config/cobblemonmapkit/levelcap.json");
-    private static final int CURRENT_SCHEMA_VERSION = 5;
+    private static final int CURRENT_SCHEMA_VERSION = 6;
 
     /** Global on/off switch for level-cap logic. */
     private static boolean enabled = true;
@@ -44,6 +46,12 @@ public class LevelCapConfig {
     /** labelLower -> progression */
     private static final Map<String, Progression> progressions = new LinkedHashMap<>();
 
+    /** Limiti delle tabelle transitorie di LevelCapEnforcer. */
+    private static StateTables stateTables = new StateTables();
+
+    /** Incrementata a ogni modifica di baseCap/progressioni (invalida i cap in cache di LevelCapService). */
+    private static volatile int capsRevision;
+
     // =========================
     //        DATA MODEL
     // =========================
@@ -56,9 +64,37 @@ public class LevelCapConfig {
         Boolean bypassOnMasterBall;
         Boolean clampGainedOverCap;
         Boolean clampCapturedOverCap;
+        StateTables stateTables;
         List<Progression> progressions = new ArrayList<>();
     }
 
+    public static class TableLimits {
+        public int ttlSeconds;
+        public int maxEntries;
+
+        public TableLimits() {}
+        public TableLimits(int ttlSeconds, int maxEntries) {
+            this.ttlSeconds = ttlSeconds;
+            this.maxEntries = maxEntries;
+        }
+
+        public int ttlTicks() { return (int) Math.min(Integer.MAX_VALUE, ttlSeconds * 20L); }
+    }
+
+    /** Tabelle a scadenza dell'enforcer: una voce scade dopo ttlSeconds, oltre maxEntries si scarta la più vecchia. */
+    public static class StateTables {
+        /** Finestra Master Ball per player (fallback del riconoscimento cattura). */
+        public TableLimits masterBypass = new TableLimits(20, 1024);
+        /** Entità colpite e consentite sopra cap, per player. */
+        public TableLimits captureBypass = new TableLimits(60, 4096);
+        /** Hint "la prossima EXP è da caramella" per mon. */
+        public TableLimits candyHint = new TableLimits(10, 4096);
+        /** Mon catturati sopra cap senza clamp (rinnovata a ogni level up). */
+        public TableLimits allowedOverCap = new TableLimits(6 * 3600, 16384);
+        /** Debounce del GAINED da cattura. */
+        public TableLimits processedCaptureGain = new TableLimits(120, 8192);
+    }
+
     public static class Progression {
         public String label;            // human-friendly, unique (case-insensitive)
         public int newCap;
@@ -82,6 +118,7 @@ public class LevelCapConfig {
         if (!CONFIG_FILE.exists()) {
             logInfo("Config not found. Creating defaults...");
             applyDefaults();
+            capsRevision++;
             save();
             return;
         }
@@ -94,6 +131,7 @@ public class LevelCapConfig {
         boolean loadedMaster = false;
         boolean loadedClampGained  = true;
         boolean loadedClampCaptured = true;
+        StateTables loadedTables = new StateTables();
         Map<String, Progression> loaded = new LinkedHashMap<>();
 
         try (FileReader r = new FileReader(CONFIG_FILE)) {
@@ -115,6 +153,13 @@ public class LevelCapConfig {
                 loadedClampGained   = d.clampGainedOverCap == null || d.clampGainedOverCap;
                 loadedClampCaptured = d.clampCapturedOverCap == null || d.clampCapturedOverCap;
 
+                if (d.stateTables == null) {
+                    clean = false;
+                } else {
+                    clean &= sanitize(d.stateTables);
+                    loadedTables = d.stateTables;
+                }
+
                 if (d.progressions == null) {
                     clean = false;
                 } else {
@@ -148,9 +193,11 @@ public class LevelCapConfig {
         bypassOnMasterBall = loadedMaster;
         clampGainedOverCap   = loadedClampGained;
         clampCapturedOverCap = loadedClampCaptured;
+        stateTables = loadedTables;
 
         progressions.clear();
         progressions.putAll(loaded);
+        capsRevision++;
 
         if (!clean) {
             save();
@@ -181,6 +228,7 @@ public class LevelCapConfig {
             out.bypassOnMasterBall = bypassOnMasterBall;
             out.clampGainedOverCap   = clampGainedOverCap;
             out.clampCapturedOverCap = clampCapturedOverCap;
+            out.stateTables = stateTables;
             out.progressions = new ArrayList<>(progressions.values());
 
             File tmp = new File(CONFIG_FILE.getParent(), CONFIG_FILE.getName() + ".tmp");
@@ -209,7 +257,7 @@ public class LevelCapConfig {
     public static void setEnabled(boolean v) { enabled = v; save(); }
 
     public static int getBaseCap() { return baseCap; }
-    public static void setBaseCap(int v) { baseCap = Math.max(1, v); save(); }
+    public static void setBaseCap(int v) { baseCap = Math.max(1, v); capsRevision++; save(); }
 
     public static boolean isBypassIfShiny() { return bypassIfShiny; }
     public static void setBypassIfShiny(boolean v) { bypassIfShiny = v; save(); }
@@ -224,6 +272,10 @@ public class LevelCapConfig {
     public static boolean isClampCapturedOverCap() { return clampCapturedOverCap; }
     public static void setClampCapturedOverCap(boolean v) { clampCapturedOverCap = v; save(); }
 
+    public static StateTables getStateTables() { return stateTables; }
+
+    public static int getCapsRevision() { return capsRevision; }
+
     // -------- Label-centric progressions --------
 
     /** Unmodifiable view: labelLower -> cap. */
@@ -248,13 +300,14 @@ public class LevelCapConfig {
             p.label = label;
             p.newCap = Math.max(1, newCap);
         }
+        capsRevision++;
         save();
     }
 
     public static boolean removeLabel(String label) {
         String key = normalizeLabel(label);
         boolean removed = (progressions.remove(key) != null);
-        if (removed) save();
+        if (removed) { capsRevision++; save(); }
         return removed;
     }
 
@@ -308,6 +361,23 @@ public class LevelCapConfig {
         return id != null;
     }
 
+    /** Sostituisce limiti mancanti o non validi con i default; false se qualcosa è stato corretto. */
+    private static boolean sanitize(StateTables t) {
+        StateTables def = new StateTables();
+        boolean ok = true;
+        if (!isValid(t.masterBypass))         { t.masterBypass = def.masterBypass; ok = false; }
+        if (!isValid(t.captureBypass))        { t.captureBypass = def.captureBypass; ok = false; }
+        if (!isValid(t.candyHint))            { t.candyHint = def.candyHint; ok = false; }
+        if (!isValid(t.allowedOverCap))       { t.allowedOverCap = def.allowedOverCap; ok = false; }
+        if (!isValid(t.processedCaptureGain)) { t.processedCaptureGain = def.processedCaptureGain; ok = false; }
+        if (!ok) logWarn("Invalid stateTables entries replaced with defaults.");
+        return ok;
+    }
+
+    private static boolean isValid(TableLimits l) {
+        return l != null && l.ttlSeconds >= 1 && l.maxEntries >= 1;
+    }
+
     private static boolean isProgressionValid(Progression p) {
         if (p == null) return false;
         if (p.label == null || p.label.isBlank()) return false;
@@ -325,6 +395,7 @@ public class LevelCapConfig {
         bypassOnMasterBall = true; // default enabled
         clampGainedOverCap   = true;
         clampCapturedOverCap = true;
+        stateTables = new StateTables();
 
         progressions.clear();
         progressions.put(normalizeLabel("Steel Badge"),
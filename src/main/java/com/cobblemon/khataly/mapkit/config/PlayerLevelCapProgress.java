@@ -5,6 +5,7 @@ import com.google.gson.GsonBuilder;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Tracks which level-cap labels have been applied per player UUID.
@@ -20,6 +21,9 @@ public class PlayerLevelCapProgress {
     /** In-memory cache: UUID -> set of applied labels (lowercase). */
     private static final Map<UUID, Set<String>> cache = new HashMap<>();
 
+    /** Notificati quando le label applicate di un player cambiano. */
+    private static final List<Consumer<UUID>> listeners = new ArrayList<>();
+
     // ===================== PUBLIC API =====================
 
     public static Set<String> getApplied(UUID uuid) {
@@ -39,7 +43,7 @@ public class PlayerLevelCapProgress {
         String k = safeLower(label);
         Set<String> set = cache.computeIfAbsent(uuid, u -> new HashSet<>());
         boolean added = set.add(k);
-        if (added) save(uuid);
+        if (added) changed(uuid);
         return added;
     }
 
@@ -50,7 +54,7 @@ public class PlayerLevelCapProgress {
         Set<String> set = cache.getOrDefault(uuid, null);
         if (set == null) return false;
         boolean removed = set.remove(k);
-        if (removed) save(uuid);
+        if (removed) changed(uuid);
         return removed;
     }
 
@@ -63,17 +67,27 @@ public class PlayerLevelCapProgress {
             if (l == null) continue;
             changed |= set.add(l.toLowerCase(Locale.ROOT));
         }
-        if (changed) save(uuid);
+        if (changed) changed(uuid);
     }
 
     /** Danger: wipe all progress for this player. */
     public static void clearAll(UUID uuid) {
         cache.put(uuid, new HashSet<>());
-        save(uuid);
+        changed(uuid);
+    }
+
+    /** Listener per le modifiche al set di un player (es. cache del cap effettivo). */
+    public static void addChangeListener(Consumer<UUID> listener) {
+        listeners.add(listener);
     }
 
     // ================== LOAD/SAVE ==================
 
+    private static void changed(UUID uuid) {
+        save(uuid);
+        for (Consumer<UUID> l : listeners) l.accept(uuid);
+    }
+
     private static void ensureLoaded(UUID uuid) {
         if (cache.containsKey(uuid)) return;
         cache.put(uuid, new HashSet<>()); // prevent re-entrancy
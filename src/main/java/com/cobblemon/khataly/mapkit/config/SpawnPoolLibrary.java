@@ -0,0 +1,164 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Pool di spawn condivise e riutilizzabili tra zone (es. tabelle di una route):
+ *  - Una pool per file: config/cobblemonmapkit/pools/<id>.json
+ *  - Le zone la referenziano per id (Zone.poolId): la lista non viene duplicata nei file zona
+ *  - Compilata una sola volta nei campionatori per fascia oraria, condivisi da tutte le zone che la usano
+ *  - Modificare una pool la aggiorna atomicamente per tutte le zone (nessun file zona riscritto)
+ *  - Le pool ancora referenziate (conteggio in GrassZonesConfig) non possono essere eliminate
+ */
+public final class SpawnPoolLibrary {
+    private SpawnPoolLibrary() {}
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final File POOLS_DIR = new File("config/cobblemonmapkit/pools");
+    private static final int CURRENT_SCHEMA_VERSION = 1;
+
+    /** Pool compilata e immutabile. */
+    public record Pool(String id, List<GrassZonesConfig.SpawnEntry> spawns, SpawnSampler[] samplers) {}
+
+    private static class PoolFile {
+        Integer schemaVersion;
+        String id;
+        List<GrassZonesConfig.SpawnData> spawns;
+    }
+
+    /** Mappa copy-on-write: letture lock-free dal ticker. */
+    private static volatile Map<String, Pool> POOLS = Map.of();
+    private static final Object WRITE_LOCK = new Object();
+
+    /** Id normalizzato: minuscolo, solo [a-z0-9_-]; null/vuoto => null. */
+    public static String normalizeId(String id) {
+        if (id == null) return null;
+        String n = id.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_-]", "_");
+        return n.isEmpty() ? null : n;
+    }
+
+    public static void load() {
+        synchronized (WRITE_LOCK) {
+            ensureDir();
+            Map<String, Pool> next = new LinkedHashMap<>();
+            File[] files = POOLS_DIR.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".json"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File f : files) {
+                    try (FileReader r = new FileReader(f)) {
+                        PoolFile pf = GSON.fromJson(r, PoolFile.class);
+                        String fallback = f.getName().substring(0, f.getName().length() - ".json".length());
+                        String id = normalizeId(pf == null || pf.id == null ? fallback : pf.id);
+                        if (pf == null || id == null) throw new IOException("empty or invalid pool");
+                        next.put(id, compile(id, GrassZonesConfig.fromSpawnData(pf.spawns, "pool " + id)));
+                    } catch (Exception e) {
+                        CobblemonMapKitMod.LOGGER.warn("[SpawnPoolLibrary] Could not read {}: {}", f.getName(), e.getMessage());
+                    }
+                }
+            }
+            POOLS = Collections.unmodifiableMap(next);
+            CobblemonMapKitMod.LOGGER.info("[SpawnPoolLibrary] Loaded {} spawn pools.", next.size());
+        }
+    }
+
+    public static Pool get(String id) {
+        String key = normalizeId(id);
+        return key == null ? null : POOLS.get(key);
+    }
+
+    public static Collection<Pool> getAll() { return POOLS.values(); }
+
+    /** Campionatore condiviso della pool; vuoto se la pool non esiste (zona senza incontri). */
+    public static SpawnSampler sampler(String id, GrassZonesConfig.TimeBand band) {
+        Pool p = POOLS.get(id);
+        return p == null ? SpawnSampler.EMPTY : p.samplers()[band.ordinal()];
+    }
+
+    /** Crea o sostituisce una pool: compilata una volta, visibile subito da tutte le zone che la referenziano. */
+    public static boolean put(String id, List<GrassZonesConfig.SpawnEntry> spawns) {
+        String key = normalizeId(id);
+        if (key == null) return false;
+        synchronized (WRITE_LOCK) {
+            Pool pool = compile(key, spawns);
+            try {
+                write(pool);
+            } catch (IOException e) {
+                CobblemonMapKitMod.LOGGER.error("[SpawnPoolLibrary] Write error for pool {}: {}", key, e.getMessage(), e);
+                return false;
+            }
+            Map<String, Pool> next = new LinkedHashMap<>(POOLS);
+            next.put(key, pool);
+            POOLS = Collections.unmodifiableMap(next);
+            SpeciesResolver.resolveEntries(pool.spawns(), SpeciesResolver.ownerOf(key));
+            return true;
+        }
+    }
+
+    /**
+     * Esegue action solo se la pool esiste, tenendo il lock delle scritture: delete() non può rimuoverla
+     * finché action non ha pubblicato il riferimento (ordine dei lock: pool -> zone). false se la pool non esiste.
+     */
+    static boolean whileExists(String id, BooleanSupplier action) {
+        String key = normalizeId(id);
+        synchronized (WRITE_LOCK) {
+            if (key == null || !POOLS.containsKey(key)) return false;
+            return action.getAsBoolean();
+        }
+    }
+
+    public enum DeleteResult { OK, NOT_FOUND, IN_USE }
+
+    public static DeleteResult delete(String id) {
+        String key = normalizeId(id);
+        synchronized (WRITE_LOCK) {
+            if (key == null || !POOLS.containsKey(key)) return DeleteResult.NOT_FOUND;
+            if (GrassZonesConfig.poolRefCount(key) > 0) return DeleteResult.IN_USE;
+            Map<String, Pool> next = new LinkedHashMap<>(POOLS);
+            next.remove(key);
+            POOLS = Collections.unmodifiableMap(next);
+            File f = new File(POOLS_DIR, key + ".json");
+            if (f.exists() && !f.delete()) {
+                CobblemonMapKitMod.LOGGER.warn("[SpawnPoolLibrary] Could not delete file {}", f.getName());
+            }
+            return DeleteResult.OK;
+        }
+    }
+
+    private static Pool compile(String id, List<GrassZonesConfig.SpawnEntry> spawns) {
+        List<GrassZonesConfig.SpawnEntry> copy = List.copyOf(spawns == null ? List.of() : spawns);
+        return new Pool(id, copy, GrassZonesConfig.Zone.compileSamplers(copy));
+    }
+
+    private static void write(Pool pool) throws IOException {
+        ensureDir();
+        PoolFile pf = new PoolFile();
+        pf.schemaVersion = CURRENT_SCHEMA_VERSION;
+        pf.id = pool.id();
+        pf.spawns = GrassZonesConfig.toSpawnData(pool.spawns());
+
+        File target = new File(POOLS_DIR, pool.id() + ".json");
+        File tmp = new File(POOLS_DIR, target.getName() + ".tmp");
+        try (FileWriter w = new FileWriter(tmp)) {
+            GSON.toJson(pf, w);
+        }
+        try {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException atomicNotSupported) {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void ensureDir() {
+        if (!POOLS_DIR.exists() && !POOLS_DIR.mkdirs()) {
+            CobblemonMapKitMod.LOGGER.warn("[SpawnPoolLibrary] Unable to create pools dir: {}", POOLS_DIR.getAbsolutePath());
+        }
+    }
+}
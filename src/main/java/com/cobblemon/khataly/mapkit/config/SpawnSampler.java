@@ -0,0 +1,90 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import net.minecraft.util.math.random.Random;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Campionatore pesato immutabile (metodo alias di Walker) su SpawnEntry.weight:
+ *  - compilato una volta sola quando la pool cambia;
+ *  - sample(): due estrazioni intere, nessuna allocazione, O(1).
+ * Usa aritmetica intera (pesi * n) così la distribuzione è esatta.
+ */
+public final class SpawnSampler {
+
+    public static final SpawnSampler EMPTY = new SpawnSampler(new GrassZonesConfig.SpawnEntry[0], new long[0], new int[0], 0L);
+
+    private final GrassZonesConfig.SpawnEntry[] entries;
+    /** Soglia (in unità di totalWeight) oltre la quale si usa l'alias. */
+    private final long[] threshold;
+    private final int[] alias;
+    private final long totalWeight;
+
+    private SpawnSampler(GrassZonesConfig.SpawnEntry[] entries, long[] threshold, int[] alias, long totalWeight) {
+        this.entries = entries;
+        this.threshold = threshold;
+        this.alias = alias;
+        this.totalWeight = totalWeight;
+    }
+
+    /** Compila le entry con peso > 0; null o pesi nulli vengono ignorati. */
+    public static SpawnSampler compile(List<GrassZonesConfig.SpawnEntry> source) {
+        if (source == null || source.isEmpty()) return EMPTY;
+
+        List<GrassZonesConfig.SpawnEntry> valid = new ArrayList<>(source.size());
+        long total = 0;
+        for (GrassZonesConfig.SpawnEntry e : source) {
+            if (e == null || e.weight <= 0) continue;
+            valid.add(e);
+            total += e.weight;
+        }
+        int n = valid.size();
+        if (n == 0) return EMPTY;
+
+        GrassZonesConfig.SpawnEntry[] arr = valid.toArray(new GrassZonesConfig.SpawnEntry[0]);
+        long[] scaled = new long[n];
+        long[] threshold = new long[n];
+        int[] alias = new int[n];
+
+        // ogni colonna vale "total"; scaled[i] = w_i * n
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int ns = 0, nl = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (long) arr[i].weight * n;
+            if (scaled[i] < total) small[ns++] = i;
+            else large[nl++] = i;
+        }
+        while (ns > 0 && nl > 0) {
+            int s = small[--ns];
+            int l = large[--nl];
+            threshold[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] -= (total - scaled[s]);
+            if (scaled[l] < total) small[ns++] = l;
+            else large[nl++] = l;
+        }
+        while (nl > 0) { int l = large[--nl]; threshold[l] = total; alias[l] = l; }
+        while (ns > 0) { int s = small[--ns]; threshold[s] = total; alias[s] = s; }
+
+        return new SpawnSampler(arr, threshold, alias, total);
+    }
+
+    public boolean isEmpty() { return entries.length == 0; }
+
+    public int size() { return entries.length; }
+
+    /** Estrazione pesata; null se la pool è vuota. */
+    public GrassZonesConfig.SpawnEntry sample(Random rng) {
+        int n = entries.length;
+        if (n == 0) return null;
+        int col = (n == 1) ? 0 : rng.nextInt(n);
+        long t = threshold[col];
+        if (t >= totalWeight) return entries[col];
+        long roll = (totalWeight <= Integer.MAX_VALUE)
+                ? rng.nextInt((int) totalWeight)
+                : (long) (rng.nextDouble() * totalWeight);
+        return entries[roll < t ? col : alias[col]];
+    }
+}
@@ -0,0 +1,144 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.cobblemon.mod.common.api.pokemon.PokemonSpecies;
+import com.cobblemon.mod.common.pokemon.Species;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Risoluzione anticipata delle SpawnEntry (species + aspect) invece che a ogni incontro:
+ *  - Species risolta una volta e salvata sull'entry, aspect come Set internato e condiviso;
+ *  - Passata completa (zone + pool) all'avvio del server e dopo ogni reload dei datapack
+ *    (il registry delle specie Cobblemon viene ricaricato lì), con report delle specie non valide;
+ *  - Zone e pool modificate vengono risolte alla pubblicazione;
+ *  - Le entry risolte con una generazione precedente vengono ri-risolte al primo uso.
+ */
+public final class SpeciesResolver {
+    private SpeciesResolver() {}
+
+    /** Risultato per una SpawnEntry; species null = non risolvibile. */
+    public record Resolved(int generation, Species species, Set<String> aspects) {}
+
+    /** Un problema del report: chi referenzia la specie e l'id non risolto. */
+    public record Issue(String owner, String species) {}
+
+    /** 0 = registry specie non ancora caricato (init mod): nessuna risoluzione. */
+    private static volatile int GENERATION = 0;
+    /** Aspect normalizzato -> Set immutabile condiviso da tutte le entry. */
+    private static final Map<String, Set<String>> ASPECTS = new ConcurrentHashMap<>();
+    /** Owner -> specie non risolte (ultima validazione). */
+    private static final Map<String, List<String>> ISSUES = new ConcurrentHashMap<>();
+    private static final String ZONE_PREFIX = "zone ";
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> reloadAll("server start"));
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resources, success) -> {
+            if (success) reloadAll("data pack reload");
+        });
+    }
+
+    /** Generazione corrente del registry specie (cambia a ogni reload). */
+    public static int generation() { return GENERATION; }
+
+    /** Risoluzione dell'entry per la generazione corrente (null se il registry non è ancora pronto). */
+    public static Resolved get(GrassZonesConfig.SpawnEntry e) {
+        int gen = GENERATION;
+        if (gen == 0) return null;
+        Resolved r = e.resolved;
+        if (r == null || r.generation() != gen) {
+            r = resolve(e, gen);
+            e.resolved = r;
+        }
+        return r;
+    }
+
+    /** Risolve le entry di una zona/pool appena pubblicata; aggiorna il report per quell'owner. */
+    static void resolveEntries(List<GrassZonesConfig.SpawnEntry> entries, String owner) {
+        int gen = GENERATION;
+        if (gen == 0) return;
+        List<String> missing = resolveInto(entries, gen);
+        if (missing.isEmpty()) {
+            ISSUES.remove(owner);
+        } else {
+            ISSUES.put(owner, missing);
+            CobblemonMapKitMod.LOGGER.warn("[SpeciesResolver] Unknown species in {}: {}", owner, missing);
+        }
+    }
+
+    /** Insieme di zone ricaricato (load/import): il report delle zone viene rigenerato da zero. */
+    static void resolveZones(Collection<GrassZonesConfig.Zone> zones) {
+        if (GENERATION == 0) return;
+        ISSUES.keySet().removeIf(owner -> owner.startsWith(ZONE_PREFIX));
+        for (GrassZonesConfig.Zone z : zones) resolveEntries(z.ownSpawns(), ownerOf(z));
+    }
+
+    /** Nuova generazione: ri-risolve tutte le zone e le pool e rigenera il report. */
+    public static synchronized List<Issue> reloadAll(String reason) {
+        int gen = GENERATION + 1;
+        GENERATION = gen;
+        ISSUES.clear();
+
+        int entries = 0;
+        for (GrassZonesConfig.Zone z : GrassZonesConfig.getAll()) {
+            entries += z.ownSpawns().size();
+            List<String> missing = resolveInto(z.ownSpawns(), gen);
+            if (!missing.isEmpty()) ISSUES.put(ownerOf(z), missing);
+        }
+        for (SpawnPoolLibrary.Pool p : SpawnPoolLibrary.getAll()) {
+            entries += p.spawns().size();
+            List<String> missing = resolveInto(p.spawns(), gen);
+            if (!missing.isEmpty()) ISSUES.put(ownerOf(p.id()), missing);
+        }
+
+        List<Issue> report = report();
+        if (report.isEmpty()) {
+            CobblemonMapKitMod.LOGGER.info("[SpeciesResolver] Resolved {} spawn entries ({}).", entries, reason);
+        } else {
+            CobblemonMapKitMod.LOGGER.warn("[SpeciesResolver] Resolved {} spawn entries ({}), {} unknown species:",
+                    entries, reason, report.size());
+            for (Issue i : report) {
+                CobblemonMapKitMod.LOGGER.warn("[SpeciesResolver]  - {} in {}", i.species(), i.owner());
+            }
+        }
+        return report;
+    }
+
+    /** Ultimo report di validazione, ordinato per owner. */
+    public static List<Issue> report() {
+        List<Issue> out = new ArrayList<>();
+        new TreeMap<>(ISSUES).forEach((owner, list) -> list.forEach(s -> out.add(new Issue(owner, s))));
+        return out;
+    }
+
+    static String ownerOf(GrassZonesConfig.Zone z) { return ZONE_PREFIX + z.name(); }
+
+    static String ownerOf(String poolId) { return "pool " + poolId; }
+
+    private static List<String> resolveInto(List<GrassZonesConfig.SpawnEntry> entries, int gen) {
+        List<String> missing = new ArrayList<>(0);
+        for (GrassZonesConfig.SpawnEntry e : entries) {
+            Resolved r = resolve(e, gen);
+            e.resolved = r;
+            if (r.species() == null && !missing.contains(e.species)) missing.add(e.species);
+        }
+        return missing;
+    }
+
+    private static Resolved resolve(GrassZonesConfig.SpawnEntry e, int gen) {
+        String key = e.species == null ? "" : e.species.toLowerCase(Locale.ROOT);
+        if (key.contains(":")) key = key.substring(key.indexOf(':') + 1);
+
+        Species species = null;
+        try {
+            species = key.isEmpty() ? null : PokemonSpecies.getByName(key);
+        } catch (Throwable ignored) {}
+
+        Set<String> aspects = e.aspect == null
+                ? Set.of()
+                : ASPECTS.computeIfAbsent(e.aspect.toLowerCase(Locale.ROOT), Set::of);
+        return new Resolved(gen, species, aspects);
+    }
+}
@@ -0,0 +1,214 @@
+package com.cobblemon.khataly.mapkit.config;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import java.io.*;
+
+/**
+ * Forma di zona a voxel: un bitset da 4096 bit (64 long) per chunk section toccata.
+ * - contains(): lookup della section (hash) + test di un bit;
+ * - bounding box calcolato alla costruzione (usato da indice spaziale, sync e culling);
+ * - encode(): section sparse (<= SPARSE_MAX voxel) come lista di indici a 12 bit, le altre come bitset raw.
+ * Immutabile: si costruisce con Builder.
+ */
+public final class ZoneMask {
+
+    private static final int FORMAT_VERSION = 1;
+    /** Sotto questa soglia gli indici (2 byte) occupano meno del bitset (512 byte). */
+    private static final int SPARSE_MAX = 255;
+
+    private final Long2ObjectOpenHashMap<long[]> sections;
+    private final int count;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+
+    private ZoneMask(Long2ObjectOpenHashMap<long[]> sections) {
+        this.sections = sections;
+        int n = 0;
+        int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, z0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE, z1 = Integer.MIN_VALUE;
+        for (Long2ObjectMap.Entry<long[]> e : sections.long2ObjectEntrySet()) {
+            long key = e.getLongKey();
+            int bx = ChunkSectionPos.unpackX(key) << 4, by = ChunkSectionPos.unpackY(key) << 4, bz = ChunkSectionPos.unpackZ(key) << 4;
+            long[] bits = e.getValue();
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    int idx = (w << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    int x = bx + (idx & 15), z = bz + ((idx >> 4) & 15), y = by + (idx >> 8);
+                    if (x < x0) x0 = x; if (x > x1) x1 = x;
+                    if (y < y0) y0 = y; if (y > y1) y1 = y;
+                    if (z < z0) z0 = z; if (z > z1) z1 = z;
+                    n++;
+                }
+            }
+        }
+        this.count = n;
+        this.minX = x0; this.minY = y0; this.minZ = z0;
+        this.maxX = x1; this.maxY = y1; this.maxZ = z1;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        long[] bits = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+        if (bits == null) return false;
+        int idx = index(x, y, z);
+        return (bits[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    /** True se la section (coordinate di section) contiene almeno un voxel. */
+    public boolean hasSection(int sx, int sy, int sz) {
+        return sections.containsKey(ChunkSectionPos.asLong(sx, sy, sz));
+    }
+
+    public boolean isEmpty() { return count == 0; }
+    public int count() { return count; }
+    public int sectionCount() { return sections.size(); }
+
+    public int minX() { return minX; }
+    public int minY() { return minY; }
+    public int minZ() { return minZ; }
+    public int maxX() { return maxX; }
+    public int maxY() { return maxY; }
+    public int maxZ() { return maxZ; }
+
+    @FunctionalInterface
+    public interface RunConsumer {
+        /** Segmento di voxel consecutivi lungo X: [x0..x1] alla riga (y, z). */
+        void accept(int x0, int x1, int y, int z);
+    }
+
+    /** Voxel raggruppati in segmenti lungo X (per il rendering a box). */
+    public void forEachRun(RunConsumer out) {
+        for (Long2ObjectMap.Entry<long[]> e : sections.long2ObjectEntrySet()) {
+            long key = e.getLongKey();
+            int bx = ChunkSectionPos.unpackX(key) << 4, by = ChunkSectionPos.unpackY(key) << 4, bz = ChunkSectionPos.unpackZ(key) << 4;
+            long[] bits = e.getValue();
+            for (int ly = 0; ly < 16; ly++) {
+                for (int lz = 0; lz < 16; lz++) {
+                    // una riga X = 16 bit consecutivi
+                    int row = (ly << 8) | (lz << 4);
+                    int word = (int) ((bits[row >>> 6] >>> (row & 63)) & 0xFFFF);
+                    int lx = 0;
+                    while (word != 0) {
+                        int start = Integer.numberOfTrailingZeros(word);
+                        int len = Integer.numberOfTrailingZeros(~(word >>> start));
+                        out.accept(bx + lx + start, bx + lx + start + len - 1, by + ly, bz + lz);
+                        word >>>= start + len;
+                        lx += start + len;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Suddivide la mask per colonna di chunk (chiave ChunkPos.toLong); i bitset sono condivisi, non copiati. */
+    public Long2ObjectOpenHashMap<ZoneMask> splitByColumn() {
+        Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<long[]>> cols = new Long2ObjectOpenHashMap<>();
+        for (Long2ObjectMap.Entry<long[]> e : sections.long2ObjectEntrySet()) {
+            long key = e.getLongKey();
+            long col = ChunkPos.toLong(ChunkSectionPos.unpackX(key), ChunkSectionPos.unpackZ(key));
+            cols.computeIfAbsent(col, k -> new Long2ObjectOpenHashMap<>()).put(key, e.getValue());
+        }
+        Long2ObjectOpenHashMap<ZoneMask> out = new Long2ObjectOpenHashMap<>(cols.size());
+        for (Long2ObjectMap.Entry<Long2ObjectOpenHashMap<long[]>> e : cols.long2ObjectEntrySet()) {
+            out.put(e.getLongKey(), new ZoneMask(e.getValue()));
+        }
+        return out;
+    }
+
+    // ======== Serializzazione compatta ========
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + sections.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(sections.size());
+            for (Long2ObjectMap.Entry<long[]> e : sections.long2ObjectEntrySet()) {
+                long[] bits = e.getValue();
+                int n = 0;
+                for (long w : bits) n += Long.bitCount(w);
+                out.writeLong(e.getLongKey());
+                if (n <= SPARSE_MAX) {
+                    out.writeByte(0);
+                    out.writeByte(n);
+                    for (int w = 0; w < bits.length; w++) {
+                        long word = bits[w];
+                        while (word != 0) {
+                            out.writeShort((w << 6) | Long.numberOfTrailingZeros(word));
+                            word &= word - 1;
+                        }
+                    }
+                } else {
+                    out.writeByte(1);
+                    for (long w : bits) out.writeLong(w);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream non lancia
+        }
+        return bytes.toByteArray();
+    }
+
+    public static ZoneMask decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) throw new IOException("unsupported mask version " + version);
+            int n = in.readInt();
+            if (n < 0) throw new IOException("bad mask section count");
+            Long2ObjectOpenHashMap<long[]> sections = new Long2ObjectOpenHashMap<>(n);
+            for (int i = 0; i < n; i++) {
+                long key = in.readLong();
+                long[] bits = new long[64];
+                if (in.readUnsignedByte() == 0) {
+                    int c = in.readUnsignedByte();
+                    for (int k = 0; k < c; k++) {
+                        int idx = in.readUnsignedShort() & 4095;
+                        bits[idx >>> 6] |= 1L << idx;
+                    }
+                } else {
+                    for (int w = 0; w < 64; w++) bits[w] = in.readLong();
+                }
+                sections.put(key, bits);
+            }
+            return new ZoneMask(sections);
+        }
+    }
+
+    private static int index(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    public static final class Builder {
+        private final Long2ObjectOpenHashMap<long[]> sections = new Long2ObjectOpenHashMap<>();
+
+        public Builder add(int x, int y, int z) {
+            long[] bits = sections.computeIfAbsent(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4), k -> new long[64]);
+            int idx = index(x, y, z);
+            bits[idx >>> 6] |= 1L << idx;
+            return this;
+        }
+
+        /** Unione con un'altra mask (OR dei bitset). */
+        public Builder addAll(ZoneMask other) {
+            for (Long2ObjectMap.Entry<long[]> e : other.sections.long2ObjectEntrySet()) {
+                long[] bits = sections.computeIfAbsent(e.getLongKey(), k -> new long[64]);
+                long[] src = e.getValue();
+                for (int w = 0; w < 64; w++) bits[w] |= src[w];
+            }
+            return this;
+        }
+
+        public boolean isEmpty() { return sections.isEmpty(); }
+
+        public ZoneMask build() {
+            Long2ObjectOpenHashMap<long[]> copy = new Long2ObjectOpenHashMap<>(sections.size());
+            for (Long2ObjectMap.Entry<long[]> e : sections.long2ObjectEntrySet()) {
+                copy.put(e.getLongKey(), e.getValue().clone());
+            }
+            return new ZoneMask(copy);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.cobblemon.khataly.mapkit.event.client.custom;
 import com.cobblemon.khataly.mapkit.item.ModItems;
 import com.cobblemon.khataly.mapkit.networking.packet.grasszones.PlaceGrassC2SPacket;
 import com.cobblemon.khataly.mapkit.networking.packet.grasszones.RequestZonesC2SPacket;
-import com.cobblemon.khataly.mapkit.networking.packet.grasszones.GrassZonesSyncS2CPacket;
 import com.cobblemon.khataly.mapkit.util.GrassZonesClientCache;
 import com.cobblemon.khataly.mapkit.util.RenderUtils;
 import net.fabricmc.api.EnvType;
@@ -35,10 +34,10 @@ public class GrassWandClient {
 
             boolean holdingWand = isHoldingWand(client);
 
-            // Request zones snapshot every 20 ticks while holding the wand
+            // Ask for zone changes every 20 ticks while holding the wand (server replies only if something changed)
             if (holdingWand) {
                 if (zonesRefreshCooldown <= 0) {
-                    ClientPlayNetworking.send(new RequestZonesC2SPacket());
+                    ClientPlayNetworking.send(new RequestZonesC2SPacket(GrassZonesClientCache.getRevision()));
                     zonesRefreshCooldown = 20; // ~1 second
                 } else {
                     zonesRefreshCooldown--;
@@ -81,29 +80,9 @@ public class GrassWandClient {
             double camY = cam.getPos().y;
             double camZ = cam.getPos().z;
 
-            // 1) Draw all saved zones (YELLOW) when holding the wand
+            // 1) Draw all saved zones (YELLOW) when holding the wand: batched + culled
             if (isHoldingWand(mc)) {
-                var worldKeyStr = mc.world.getRegistryKey().getValue().toString();
-
-                for (GrassZonesSyncS2CPacket.ZoneDto z : GrassZonesClientCache.getZones()) {
-                    if (!z.worldKey().equals(worldKeyStr)) continue;
-
-                    double minX = Math.min(z.minX(), z.maxX());
-                    double maxX = Math.max(z.minX(), z.maxX()) + 1;
-                    double minZ = Math.min(z.minZ(), z.maxZ());
-                    double maxZ = Math.max(z.minZ(), z.maxZ()) + 1;
-
-                    // NUOVO: range verticale completo
-                    double minY = Math.min(z.minY(), z.maxY());
-                    double maxY = Math.max(z.minY(), z.maxY()) + 1;
-
-                    Box box = new Box(minX, minY, minZ, maxX, maxY, maxZ)
-                            .offset(-camX, -camY, -camZ);
-
-                    // Yellow overlay (transparent fill + strong outline)
-                    RenderUtils.drawFilledBox(matrices, providers, box, 1f, 1f, 0f, 0.12f);
-                    RenderUtils.drawOutlineBox(matrices, box, 1f, 0.9f, 0f, 0.95f);
-                }
+                GrassZoneOverlayRenderer.render(ctx, matrices, providers);
             }
 
             // 2) Draw current selection (BLUE), if any
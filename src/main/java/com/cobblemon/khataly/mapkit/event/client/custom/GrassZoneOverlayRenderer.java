@@ -0,0 +1,137 @@
+package com.cobblemon.khataly.mapkit.event.client.custom;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.cobblemon.khataly.mapkit.config.ZoneMask;
+import com.cobblemon.khataly.mapkit.networking.packet.grasszones.GrassZonesSyncS2CPacket;
+import com.cobblemon.khataly.mapkit.util.GrassZonesClientCache;
+import com.cobblemon.khataly.mapkit.util.RenderUtils;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.*;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.Box;
+import org.joml.Matrix4f;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Overlay delle Grass Zones salvate (giallo), disegnato in batch:
+ * - I box vengono precalcolati solo quando cambia la cache (nuova lista o nuova dimensione);
+ *   le zone con mask diventano un box per ogni segmento di voxel lungo X (ZoneMask.forEachRun)
+ * - Per frame: culling per distanza (view distance client) e frustum, nessuna allocazione per zona
+ * - Tutti i riempimenti in un solo layer, tutti i bordi in un solo buffer LINES (stato GL impostato una volta)
+ */
+@Environment(EnvType.CLIENT)
+public final class GrassZoneOverlayRenderer {
+    private GrassZoneOverlayRenderer() {}
+
+    // Geometria cache (coordinate mondo, +1 sui max per coprire il voxel intero)
+    private static List<GrassZonesSyncS2CPacket.ZoneDto> builtFrom = null;
+    private static Box[] boxes = new Box[0];
+
+    public static void render(WorldRenderContext ctx, MatrixStack matrices, VertexConsumerProvider providers) {
+        var mc = MinecraftClient.getInstance();
+        if (mc.world == null) return;
+        if (!GrassZonesClientCache.getWorldKey().equals(mc.world.getRegistryKey().getValue().toString())) return;
+
+        rebuildIfChanged();
+        if (boxes.length == 0) return;
+
+        var cam = ctx.camera().getPos();
+        double camX = cam.x, camY = cam.y, camZ = cam.z;
+        double maxDist = mc.options.getClampedViewDistance() * 16.0;
+        double maxDistSq = maxDist * maxDist;
+        Frustum frustum = ctx.frustum();
+
+        // Prima passata: culling, indici visibili in un array riusato
+        int[] visible = visibleScratch(boxes.length);
+        int n = 0;
+        for (int i = 0; i < boxes.length; i++) {
+            Box b = boxes[i];
+            if (distanceSq(b, camX, camY, camZ) > maxDistSq) continue;
+            if (frustum != null && !frustum.isVisible(b)) continue;
+            visible[n++] = i;
+        }
+        if (n == 0) return;
+
+        // Riempimenti: un solo buffer del layer debug (il provider lo disegna a fine frame)
+        VertexConsumer fill = providers.getBuffer(RenderLayer.getDebugFilledBox());
+        Matrix4f m = matrices.peek().getPositionMatrix();
+        int fr = 255, fg = 255, fb = 0, fa = (int) (0.12f * 255f);
+        for (int k = 0; k < n; k++) {
+            Box b = boxes[visible[k]];
+            RenderUtils.emitFilledBox(fill, m,
+                    (float) (b.minX - camX), (float) (b.minY - camY), (float) (b.minZ - camZ),
+                    (float) (b.maxX - camX), (float) (b.maxY - camY), (float) (b.maxZ - camZ),
+                    fr, fg, fb, fa);
+        }
+
+        // Bordi: un solo buffer LINES per tutte le zone visibili
+        RenderSystem.enableBlend();
+        RenderSystem.defaultBlendFunc();
+        RenderSystem.disableDepthTest();
+        RenderSystem.setShader(GameRenderer::getRenderTypeLinesProgram);
+
+        BufferBuilder lines = Tessellator.getInstance().begin(VertexFormat.DrawMode.LINES, VertexFormats.LINES);
+        for (int k = 0; k < n; k++) {
+            Box b = boxes[visible[k]];
+            WorldRenderer.drawBox(matrices, lines,
+                    b.minX - camX, b.minY - camY, b.minZ - camZ,
+                    b.maxX - camX, b.maxY - camY, b.maxZ - camZ,
+                    1f, 0.9f, 0f, 0.95f);
+        }
+        BuiltBuffer built = lines.endNullable();
+        if (built != null) BufferRenderer.drawWithGlobalProgram(built);
+
+        RenderSystem.enableDepthTest();
+        RenderSystem.disableBlend();
+    }
+
+    /** Ricostruisce i box solo se la cache client è stata sostituita (nuovo delta o reset). */
+    private static void rebuildIfChanged() {
+        List<GrassZonesSyncS2CPacket.ZoneDto> zones = GrassZonesClientCache.getZones();
+        if (zones == builtFrom) return;
+        List<Box> out = new ArrayList<>(zones.size());
+        for (var z : zones) {
+            if (z.mask() != null && addMaskRuns(z, out)) continue;
+            out.add(new Box(
+                    Math.min(z.minX(), z.maxX()), Math.min(z.minY(), z.maxY()), Math.min(z.minZ(), z.maxZ()),
+                    Math.max(z.minX(), z.maxX()) + 1, Math.max(z.minY(), z.maxY()) + 1, Math.max(z.minZ(), z.maxZ()) + 1
+            ));
+        }
+        boxes = out.toArray(new Box[0]);
+        builtFrom = zones;
+    }
+
+    /** Un box per segmento lungo X; false se la mask non è leggibile (si disegna il bounding box). */
+    private static boolean addMaskRuns(GrassZonesSyncS2CPacket.ZoneDto z, List<Box> out) {
+        try {
+            ZoneMask mask = ZoneMask.decode(z.mask());
+            mask.forEachRun((x0, x1, y, zz) -> out.add(new Box(x0, y, zz, x1 + 1, y + 1, zz + 1)));
+            return true;
+        } catch (IOException e) {
+            CobblemonMapKitMod.LOGGER.warn("[GrassZoneOverlay] Invalid mask for zone {}: {}", z.id(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static int[] scratch = new int[0];
+
+    private static int[] visibleScratch(int size) {
+        if (scratch.length < size) scratch = new int[size];
+        return scratch;
+    }
+
+    /** Distanza al quadrato dal punto al box (0 se dentro). */
+    private static double distanceSq(Box b, double x, double y, double z) {
+        double dx = Math.max(0, Math.max(b.minX - x, x - b.maxX));
+        double dy = Math.max(0, Math.max(b.minY - y, y - b.maxY));
+        double dz = Math.max(0, Math.max(b.minZ - z, z - b.maxZ));
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
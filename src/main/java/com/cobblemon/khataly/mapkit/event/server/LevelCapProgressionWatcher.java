@@ -7,6 +7,7 @@ import com.cobblemon.mod.common.api.Priority;
 import com.cobblemon.mod.common.api.events.CobblemonEvents;
 import kotlin.Unit;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.registry.Registries;
@@ -41,6 +42,10 @@ public final class LevelCapProgressionWatcher {
         });
 
         ServerTickEvents.END_SERVER_TICK.register(LevelCapProgressionWatcher::tickServer);
+
+        // il cap in cache non serve più finché il player è offline
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) ->
+                LevelCapService.invalidate(handler.getPlayer().getUuid()));
     }
 
     /** Può essere richiamato da altri punti per forzare una scansione immediata. */
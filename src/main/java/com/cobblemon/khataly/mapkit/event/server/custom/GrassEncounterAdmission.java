@@ -0,0 +1,135 @@
+package com.cobblemon.khataly.mapkit.event.server.custom;
+
+import com.cobblemon.khataly.mapkit.config.GrassZonesSettings;
+import com.cobblemon.khataly.mapkit.config.SpeciesResolver;
+import com.cobblemon.mod.common.pokemon.Pokemon;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite globale agli avvii di incontro (sendOut + BattleBuilder.pve), per evitare picchi di MSPT
+ * quando molti player ottengono un incontro nello stesso tick:
+ * - al massimo maxEncounterStartsPerTick avvii per tick e maxEncounterStartsPerSecond negli ultimi 20 tick;
+ * - gli incontri in eccesso restano in coda, uno per player, in ordine di arrivo (nessun player ne scavalca altri);
+ * - un incontro in coda da più di encounterMaxDelayTicks viene scartato (il passo che lo ha generato è ormai lontano).
+ * Contatori cumulativi: queued / admitted / dropped (gli scarti anche per zona in GrassEncounterTelemetry). Solo thread server.
+ */
+public final class GrassEncounterAdmission {
+    private GrassEncounterAdmission() {}
+
+    private static final int WINDOW_TICKS = 20;
+    /** Limite di sicurezza della coda (comunque al più un incontro per player). */
+    private static final int MAX_QUEUE = 512;
+
+    private record Pending(GrassEncounterPipeline.Request request, Pokemon pokemon, long enqueuedTick) {}
+
+    private static final LinkedHashMap<UUID, Pending> QUEUE = new LinkedHashMap<>();
+
+    // finestra scorrevole: avvii per tick negli ultimi WINDOW_TICKS tick
+    private static final int[] WINDOW = new int[WINDOW_TICKS];
+    private static final long[] WINDOW_TICK = new long[WINDOW_TICKS];
+
+    private static final LongAdder QUEUED = new LongAdder();
+    private static final LongAdder ADMITTED = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+
+    /** Esito di offer: DROPPED è già registrato in telemetria, ALREADY_QUEUED no (lo registra il chiamante). */
+    enum Offer { QUEUED, ALREADY_QUEUED, DROPPED }
+
+    /** Accoda un incontro pronto (pokemon null = da costruire all'ammissione). */
+    static Offer offer(UUID playerId, GrassEncounterPipeline.Request request, Pokemon pokemon, long tick) {
+        if (QUEUE.containsKey(playerId)) return Offer.ALREADY_QUEUED;
+        if (QUEUE.size() >= MAX_QUEUE) {
+            drop(request, GrassEncounterTelemetry.Outcome.DROPPED);
+            return Offer.DROPPED;
+        }
+        QUEUE.put(playerId, new Pending(request, pokemon, tick));
+        QUEUED.increment();
+        return Offer.QUEUED;
+    }
+
+    static boolean isQueued(UUID playerId) { return QUEUE.containsKey(playerId); }
+
+    static void forget(UUID playerId) {
+        Pending p = QUEUE.remove(playerId);
+        if (p != null) drop(p.request(), GrassEncounterTelemetry.Outcome.DROPPED);
+    }
+
+    /** Ammette gli incontri in testa alla coda entro i limiti per tick / per secondo. */
+    static void tick(MinecraftServer server, long tick) {
+        if (QUEUE.isEmpty()) return;
+
+        int perTick = GrassZonesSettings.getMaxEncounterStartsPerTick();
+        int perSecond = GrassZonesSettings.getMaxEncounterStartsPerSecond();
+        int maxDelay = GrassZonesSettings.getEncounterMaxDelayTicks();
+        int generation = SpeciesResolver.generation();
+
+        int budget = Math.min(perTick, perSecond - startedInWindow(tick));
+        int started = 0;
+
+        Iterator<Map.Entry<UUID, Pending>> it = QUEUE.entrySet().iterator();
+        while (it.hasNext()) {
+            var e = it.next();
+            Pending p = e.getValue();
+
+            if (tick - p.enqueuedTick() > maxDelay) {
+                it.remove();
+                drop(p.request(), GrassEncounterTelemetry.Outcome.DROPPED);
+                continue;
+            }
+            if (p.request().generation() != generation) {
+                it.remove();
+                drop(p.request(), GrassEncounterTelemetry.Outcome.STALE);
+                continue;
+            }
+            if (started >= budget) continue; // solo scadenze per il resto della coda
+
+            it.remove();
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(e.getKey());
+            if (player == null || player.isRemoved()) {
+                drop(p.request(), GrassEncounterTelemetry.Outcome.DROPPED);
+                continue;
+            }
+
+            GrassEncounterPipeline.Request r = p.request();
+            Pokemon pokemon = p.pokemon() != null ? p.pokemon() : GrassEncounterPipeline.build(r);
+            if (GrassEncounterTicker.commitEncounter(player, pokemon, r.format(), r.zoneId()) == GrassEncounterTelemetry.Outcome.STARTED) {
+                ADMITTED.increment();
+                started++;
+            } else {
+                DROPPED.increment();
+            }
+        }
+        record(tick, started);
+    }
+
+    private static void drop(GrassEncounterPipeline.Request request, GrassEncounterTelemetry.Outcome outcome) {
+        DROPPED.increment();
+        GrassEncounterTelemetry.record(request.zoneId(), outcome);
+    }
+
+    private static int startedInWindow(long tick) {
+        int sum = 0;
+        for (int i = 0; i < WINDOW_TICKS; i++) {
+            if (tick - WINDOW_TICK[i] < WINDOW_TICKS) sum += WINDOW[i];
+        }
+        return sum;
+    }
+
+    private static void record(long tick, int started) {
+        int slot = (int) Math.floorMod(tick, (long) WINDOW_TICKS);
+        WINDOW[slot] = started;
+        WINDOW_TICK[slot] = tick;
+    }
+
+    public static int queueSize() { return QUEUE.size(); }
+    public static long queuedTotal() { return QUEUED.sum(); }
+    public static long admittedTotal() { return ADMITTED.sum(); }
+    public static long droppedTotal() { return DROPPED.sum(); }
+}
@@ -0,0 +1,126 @@
+package com.cobblemon.khataly.mapkit.event.server.custom;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.cobblemon.khataly.mapkit.config.GrassZonesSettings;
+import com.cobblemon.khataly.mapkit.config.SpeciesResolver;
+import com.cobblemon.mod.common.battles.BattleFormat;
+import com.cobblemon.mod.common.pokemon.Pokemon;
+import com.cobblemon.mod.common.pokemon.Species;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Preparazione degli incontri fuori dal thread server, commit sul thread server:
+ * - Worker: costruisce un Pokemon "staccato" (setSpecies, updateForm, setLevel, setShiny, initializeMoveset, heal).
+ *   Tocca solo l'oggetto appena creato e i dati statici dei registry (species, learnset, mosse); mai mondo,
+ *   entità, player, party o battle registry.
+ * - Thread server: sendOut dell'entità e BattleBuilder.pve (GrassEncounterTicker.commitEncounter),
+ *   quando GrassEncounterAdmission ammette l'incontro e dopo aver ricontrollato player online / non in battaglia.
+ * - I risultati preparati con una generazione di specie precedente (reload datapack in corso) o più vecchi di
+ *   MAX_AGE_TICKS vengono scartati; se il worker fallisce o la coda è piena si usa il percorso sincrono.
+ * Disattivabile con GrassZonesSettings.asyncEncounterPrep (false = tutto sincrono, come prima).
+ */
+public final class GrassEncounterPipeline {
+    private GrassEncounterPipeline() {}
+
+    /** Oltre questo ritardo l'incontro preparato non è più coerente con il passo che lo ha generato. */
+    private static final int MAX_AGE_TICKS = 40;
+    private static final int QUEUE_CAPACITY = 64;
+
+    private record Prepared(UUID playerId, Pokemon pokemon, Request request) {}
+
+    /** Dati dell'incontro estratto (immutabili, condivisi tra worker e thread server). */
+    record Request(UUID zoneId, Species species, int level, boolean shiny, Set<String> aspects,
+                   BattleFormat format, long submittedTick, int generation) {}
+
+    private static ThreadPoolExecutor EXECUTOR;
+    private static final ConcurrentLinkedQueue<Prepared> READY = new ConcurrentLinkedQueue<>();
+    /** Player con una preparazione in corso (thread server). */
+    private static final Set<UUID> IN_FLIGHT = new HashSet<>();
+
+    /**
+     * Avvia l'incontro (thread server). Ritorna QUEUED appena la richiesta è accettata: il Pokémon viene
+     * preparato (worker o, in modalità sincrona, all'ammissione) e l'avvio passa da GrassEncounterAdmission.
+     * ALREADY_QUEUED = player con un incontro già in corso; DROPPED = coda piena (già registrato in telemetria).
+     */
+    static GrassEncounterAdmission.Offer submit(ServerPlayerEntity player, UUID zoneId, Species species, int level, boolean shiny,
+                          Set<String> aspects, BattleFormat format, long tick) {
+        UUID id = player.getUuid();
+        if (IN_FLIGHT.contains(id) || GrassEncounterAdmission.isQueued(id)) return GrassEncounterAdmission.Offer.ALREADY_QUEUED;
+
+        Request req = new Request(zoneId, species, level, shiny, aspects, format, tick, SpeciesResolver.generation());
+        if (!GrassZonesSettings.isAsyncEncounterPrep()) {
+            return GrassEncounterAdmission.offer(id, req, null, tick);
+        }
+
+        try {
+            executor().execute(() -> READY.add(new Prepared(id, prepare(req), req)));
+        } catch (RejectedExecutionException full) {
+            // coda worker piena: preparazione sincrona all'ammissione
+            return GrassEncounterAdmission.offer(id, req, null, tick);
+        }
+        IN_FLIGHT.add(id);
+        return GrassEncounterAdmission.Offer.QUEUED;
+    }
+
+    /** Passa i Pokémon pronti all'admission controller (thread server, una volta per tick). */
+    static void drain(long tick) {
+        Prepared p;
+        while ((p = READY.poll()) != null) {
+            IN_FLIGHT.remove(p.playerId());
+            Request req = p.request();
+            if (tick - req.submittedTick() > MAX_AGE_TICKS || req.generation() != SpeciesResolver.generation()) {
+                GrassEncounterTelemetry.record(req.zoneId(), GrassEncounterTelemetry.Outcome.STALE);
+                continue;
+            }
+
+            // pokemon null (worker fallito) => preparazione sincrona all'ammissione
+            if (GrassEncounterAdmission.offer(p.playerId(), req, p.pokemon(), tick) == GrassEncounterAdmission.Offer.ALREADY_QUEUED) {
+                GrassEncounterTelemetry.record(req.zoneId(), GrassEncounterTelemetry.Outcome.BUSY);
+            }
+        }
+    }
+
+    static void forget(UUID playerId) {
+        IN_FLIGHT.remove(playerId);
+    }
+
+    /** Costruisce il Pokémon della richiesta registrandone la durata (worker o thread server). */
+    static Pokemon build(Request req) {
+        long start = System.nanoTime();
+        Pokemon pokemon = GrassEncounterTicker.buildPokemon(req.species(), req.level(), req.shiny(), req.aspects());
+        GrassEncounterTelemetry.latency(req.zoneId(), GrassEncounterTelemetry.Stage.PREPARE, null, System.nanoTime() - start);
+        return pokemon;
+    }
+
+    private static Pokemon prepare(Request req) {
+        try {
+            return build(req);
+        } catch (Throwable t) {
+            CobblemonMapKitMod.LOGGER.debug("[GrassEncounterPipeline] Off-thread preparation failed for {}: {}",
+                    req.species().getName(), t.toString());
+            return null;
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (EXECUTOR == null) {
+            int threads = GrassZonesSettings.getEncounterPrepThreads();
+            AtomicInteger n = new AtomicInteger();
+            EXECUTOR = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                    r -> {
+                        Thread t = new Thread(r, "MapKit-EncounterPrep-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            EXECUTOR.allowCoreThreadTimeOut(true);
+        }
+        return EXECUTOR;
+    }
+}
@@ -0,0 +1,401 @@
+package com.cobblemon.khataly.mapkit.event.server.custom;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.cobblemon.khataly.mapkit.config.GrassZonesConfig;
+import com.cobblemon.khataly.mapkit.config.GrassZonesSettings;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.server.MinecraftServer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Telemetria degli incontri nelle Grass Zones, per zona:
+ * - contatori per esito (Outcome) su LongAdder: nessun lock, costo trascurabile sul thread server e sui worker;
+ * - istogrammi di latenza a bucket fissi: preparazione del Pokémon e avvio dell'incontro (per esito);
+ * - heatmap a celle di CELL_SIZE blocchi sulle posizioni degli incontri avviati (al più MAX_CELLS_PER_ZONE celle).
+ * Esposta con /grasszone telemetry e con un dump periodico (GrassZonesSettings.telemetryDumpSeconds) in JSON
+ * o testo Prometheus, scritto su un thread dedicato in config/cobblemonmapkit/telemetry/.
+ * Le statistiche delle zone eliminate vengono scartate; allo stop del server tutto riparte da zero.
+ */
+public final class GrassEncounterTelemetry {
+    private GrassEncounterTelemetry() {}
+
+    public enum Outcome {
+        /** Selvatico mandato in campo, battaglia richiesta. */
+        STARTED,
+        /** Specie della entry non risolta (vedi /grasszone validate). */
+        UNKNOWN_SPECIES,
+        /** Nessun Pokémon del party in grado di combattere. */
+        NO_USABLE_PARTY,
+        /** Il player era già in battaglia all'avvio. */
+        IN_BATTLE,
+        /** Nessuno spazio libero vicino al player, oppure sendOut non ha prodotto l'entità. */
+        SEND_OUT_FAILED,
+        /** Incontro già in preparazione o in coda per il player. */
+        BUSY,
+        /** Scartato dall'admission controller (coda piena, attesa oltre il limite, player uscito). */
+        DROPPED,
+        /** Preparazione arrivata troppo tardi o con una generazione di specie precedente. */
+        STALE,
+        /** Eccezione durante l'avvio. */
+        ERROR;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Stage { PREPARE, START }
+
+    private static final File DUMP_DIR = new File("config/cobblemonmapkit/telemetry");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /** Limiti superiori dei bucket in microsecondi; l'ultimo bucket (oltre) è +Inf. */
+    private static final long[] BUCKET_US = {50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000};
+    public static final int CELL_SIZE = 8;
+    private static final int CELL_SHIFT = 3;
+    private static final int MAX_CELLS_PER_ZONE = 4096;
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKET_US.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        void record(long nanos) {
+            long us = nanos / 1_000L;
+            int i = 0;
+            while (i < BUCKET_US.length && us > BUCKET_US[i]) i++;
+            buckets[i].increment();
+            sumNanos.add(nanos);
+        }
+
+        /** Conteggi non cumulativi per bucket (ultimo = +Inf). */
+        public long[] counts() {
+            long[] out = new long[buckets.length];
+            for (int i = 0; i < out.length; i++) out[i] = buckets[i].sum();
+            return out;
+        }
+
+        public long count() {
+            long n = 0;
+            for (LongAdder b : buckets) n += b.sum();
+            return n;
+        }
+
+        public double sumSeconds() { return sumNanos.sum() / 1e9; }
+
+        /** Limite superiore (ms) del bucket che contiene il quantile q; +Inf oltre l'ultimo limite, NaN se vuoto. */
+        public double quantileMs(double q) {
+            long[] c = counts();
+            long total = 0;
+            for (long v : c) total += v;
+            if (total == 0) return Double.NaN;
+            long target = (long) Math.ceil(q * total);
+            long acc = 0;
+            for (int i = 0; i < c.length; i++) {
+                acc += c[i];
+                if (acc >= target) return i < BUCKET_US.length ? BUCKET_US[i] / 1000.0 : Double.POSITIVE_INFINITY;
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    public static final class ZoneStats {
+        private final LongAdder[] outcomes = new LongAdder[OUTCOMES.length];
+        private final Histogram prepare = new Histogram();
+        /** Latenza di avvio per esito (solo gli esiti prodotti da commitEncounter vengono popolati). */
+        private final Histogram[] start = new Histogram[OUTCOMES.length];
+        private final ConcurrentHashMap<Long, LongAdder> heat = new ConcurrentHashMap<>();
+
+        ZoneStats() {
+            for (int i = 0; i < OUTCOMES.length; i++) {
+                outcomes[i] = new LongAdder();
+                start[i] = new Histogram();
+            }
+        }
+
+        public long count(Outcome o) { return outcomes[o.ordinal()].sum(); }
+        public Histogram prepare() { return prepare; }
+        public Histogram start(Outcome o) { return start[o.ordinal()]; }
+
+        /** Latenza di avvio su tutti gli esiti. */
+        public Histogram startAll() {
+            Histogram h = new Histogram();
+            for (Histogram s : start) {
+                long[] c = s.counts();
+                for (int i = 0; i < c.length; i++) h.buckets[i].add(c[i]);
+                h.sumNanos.add(s.sumNanos.sum());
+            }
+            return h;
+        }
+
+        /** Celle della heatmap: chiave (cellX, cellZ) impacchettata, valore = incontri avviati. */
+        public Map<Long, Long> heat() {
+            Map<Long, Long> out = new HashMap<>(heat.size());
+            heat.forEach((k, v) -> out.put(k, v.sum()));
+            return out;
+        }
+    }
+
+    private static final ConcurrentHashMap<UUID, ZoneStats> ZONES = new ConcurrentHashMap<>();
+    /** Esiti senza zona nota (es. richieste perse): chiave fissa. */
+    private static final UUID NO_ZONE = new UUID(0L, 0L);
+
+    private static ExecutorService dumpExecutor;
+    private static long lastDumpTick = 0;
+    private static long prunedRevision = -1;
+
+    public static void register() {
+        // i tick ripartono da 0 nella prossima sessione (server integrato) e le zone sono di un altro mondo
+        ServerLifecycleEvents.SERVER_STOPPED.register(srv -> {
+            ZONES.clear();
+            lastDumpTick = 0;
+            prunedRevision = -1;
+        });
+    }
+
+    // ======== REGISTRAZIONE (qualsiasi thread) ========
+
+    public static void record(UUID zoneId, Outcome outcome) {
+        stats(zoneId).outcomes[outcome.ordinal()].increment();
+    }
+
+    public static void latency(UUID zoneId, Stage stage, Outcome outcome, long nanos) {
+        ZoneStats s = stats(zoneId);
+        if (stage == Stage.PREPARE) s.prepare.record(nanos);
+        else s.start[outcome.ordinal()].record(nanos);
+    }
+
+    public static void position(UUID zoneId, int x, int z) {
+        ZoneStats s = stats(zoneId);
+        long cell = pack(x >> CELL_SHIFT, z >> CELL_SHIFT);
+        LongAdder a = s.heat.get(cell);
+        if (a == null) {
+            if (s.heat.size() >= MAX_CELLS_PER_ZONE) return;
+            a = s.heat.computeIfAbsent(cell, k -> new LongAdder());
+        }
+        a.increment();
+    }
+
+    private static ZoneStats stats(UUID zoneId) {
+        return ZONES.computeIfAbsent(zoneId == null ? NO_ZONE : zoneId, k -> new ZoneStats());
+    }
+
+    // ======== LETTURA ========
+
+    public static Map<UUID, ZoneStats> zones() { return Collections.unmodifiableMap(ZONES); }
+
+    public static ZoneStats zone(UUID zoneId) { return ZONES.get(zoneId); }
+
+    public static long total(Outcome o) {
+        long n = 0;
+        for (ZoneStats s : ZONES.values()) n += s.count(o);
+        return n;
+    }
+
+    public static void reset() { ZONES.clear(); }
+
+    public static long pack(int cellX, int cellZ) { return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL); }
+    public static int cellX(long key) { return (int) (key >> 32); }
+    public static int cellZ(long key) { return (int) key; }
+
+    public static String zoneLabel(UUID id) {
+        if (NO_ZONE.equals(id)) return "(none)";
+        GrassZonesConfig.Zone z = GrassZonesConfig.get(id);
+        return z == null ? "(removed)" : z.name();
+    }
+
+    // ======== DUMP ========
+
+    /** Dump periodico (thread server, una volta per tick): la scrittura avviene sul thread di telemetria. */
+    static void tick(MinecraftServer server) {
+        if (prunedRevision != GrassZonesConfig.revision()) {
+            prunedRevision = GrassZonesConfig.revision();
+            pruneRemoved();
+        }
+        int seconds = GrassZonesSettings.getTelemetryDumpSeconds();
+        if (seconds <= 0) return;
+        long tick = server.getTicks();
+        if (tick - lastDumpTick < seconds * 20L) return;
+        lastDumpTick = tick;
+        pruneRemoved(); // esiti arrivati dai worker dopo la rimozione della zona
+        dumpExecutor().execute(GrassEncounterTelemetry::dumpNow);
+    }
+
+    /** Scarta le statistiche delle zone non più presenti. */
+    private static void pruneRemoved() {
+        ZONES.keySet().removeIf(id -> !NO_ZONE.equals(id) && GrassZonesConfig.get(id) == null);
+    }
+
+    /**
+     * Dump su richiesta (comando): passa dallo stesso thread del dump periodico, così le due scritture
+     * non si sovrappongono sul file .tmp; onDone riceve il file (o null) sul thread server.
+     */
+    public static void dump(MinecraftServer server, Consumer<File> onDone) {
+        dumpExecutor().execute(() -> {
+            File f = dumpNow();
+            server.execute(() -> onDone.accept(f));
+        });
+    }
+
+    /** Scrive il dump nel formato configurato; ritorna il file o null in caso di errore. Solo thread di telemetria. */
+    private static File dumpNow() {
+        boolean prom = GrassZonesSettings.isTelemetryPrometheus();
+        File target = new File(DUMP_DIR, prom ? "encounters.prom" : "encounters.json");
+        try {
+            if (!DUMP_DIR.exists() && !DUMP_DIR.mkdirs()) {
+                CobblemonMapKitMod.LOGGER.warn("[GrassEncounterTelemetry] Could not create dir: {}", DUMP_DIR.getAbsolutePath());
+            }
+            String text = prom ? toPrometheus() : GSON.toJson(toJson());
+            File tmp = new File(DUMP_DIR, target.getName() + ".tmp");
+            try (Writer w = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+                w.write(text);
+            }
+            try {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException atomicNotSupported) {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return target;
+        } catch (IOException e) {
+            CobblemonMapKitMod.LOGGER.error("[GrassEncounterTelemetry] Dump error: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    static JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("timestamp", System.currentTimeMillis());
+        JsonArray bounds = new JsonArray();
+        for (long b : BUCKET_US) bounds.add(b);
+        root.add("bucketUpperBoundsUs", bounds);
+        root.addProperty("cellSize", CELL_SIZE);
+
+        JsonArray zones = new JsonArray();
+        for (var e : ZONES.entrySet()) {
+            ZoneStats s = e.getValue();
+            JsonObject z = new JsonObject();
+            z.addProperty("id", e.getKey().toString());
+            z.addProperty("name", zoneLabel(e.getKey()));
+
+            JsonObject outcomes = new JsonObject();
+            for (Outcome o : OUTCOMES) outcomes.addProperty(o.label, s.count(o));
+            z.add("outcomes", outcomes);
+
+            z.add("prepare", histogramJson(s.prepare));
+            JsonObject start = new JsonObject();
+            for (Outcome o : OUTCOMES) {
+                if (s.start(o).count() > 0) start.add(o.label, histogramJson(s.start(o)));
+            }
+            z.add("start", start);
+
+            JsonArray heat = new JsonArray();
+            s.heat.forEach((k, v) -> {
+                JsonArray cell = new JsonArray();
+                cell.add(cellX(k));
+                cell.add(cellZ(k));
+                cell.add(v.sum());
+                heat.add(cell);
+            });
+            z.add("heat", heat);
+            zones.add(z);
+        }
+        root.add("zones", zones);
+        return root;
+    }
+
+    private static JsonObject histogramJson(Histogram h) {
+        JsonObject o = new JsonObject();
+        JsonArray counts = new JsonArray();
+        for (long c : h.counts()) counts.add(c);
+        o.add("counts", counts);
+        o.addProperty("sumSeconds", h.sumSeconds());
+        return o;
+    }
+
+    static String toPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("# HELP mapkit_encounter_outcomes_total Grass zone encounters by outcome.\n");
+        sb.append("# TYPE mapkit_encounter_outcomes_total counter\n");
+        for (var e : ZONES.entrySet()) {
+            String zl = zoneLabels(e.getKey());
+            for (Outcome o : OUTCOMES) {
+                sb.append("mapkit_encounter_outcomes_total{").append(zl).append(",outcome=\"").append(o.label).append("\"} ")
+                        .append(e.getValue().count(o)).append('\n');
+            }
+        }
+
+        sb.append("# HELP mapkit_encounter_prepare_seconds Time to build the wild Pokemon.\n");
+        sb.append("# TYPE mapkit_encounter_prepare_seconds histogram\n");
+        for (var e : ZONES.entrySet()) {
+            appendHistogram(sb, "mapkit_encounter_prepare_seconds", zoneLabels(e.getKey()), e.getValue().prepare);
+        }
+
+        sb.append("# HELP mapkit_encounter_start_seconds Time to send out the wild Pokemon and request the battle.\n");
+        sb.append("# TYPE mapkit_encounter_start_seconds histogram\n");
+        for (var e : ZONES.entrySet()) {
+            String zl = zoneLabels(e.getKey());
+            for (Outcome o : OUTCOMES) {
+                Histogram h = e.getValue().start(o);
+                if (h.count() == 0) continue;
+                appendHistogram(sb, "mapkit_encounter_start_seconds", zl + ",outcome=\"" + o.label + "\"", h);
+            }
+        }
+
+        sb.append("# HELP mapkit_encounter_cell_total Started encounters per ").append(CELL_SIZE).append("x").append(CELL_SIZE).append(" cell.\n");
+        sb.append("# TYPE mapkit_encounter_cell_total counter\n");
+        for (var e : ZONES.entrySet()) {
+            String zl = zoneLabels(e.getKey());
+            e.getValue().heat.forEach((k, v) -> sb.append("mapkit_encounter_cell_total{").append(zl)
+                    .append(",cell_x=\"").append(cellX(k)).append("\",cell_z=\"").append(cellZ(k)).append("\"} ")
+                    .append(v.sum()).append('\n'));
+        }
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, String labels, Histogram h) {
+        long[] c = h.counts();
+        long acc = 0;
+        for (int i = 0; i < c.length; i++) {
+            acc += c[i];
+            String le = i < BUCKET_US.length ? Double.toString(BUCKET_US[i] / 1e6) : "+Inf";
+            sb.append(name).append("_bucket{").append(labels).append(",le=\"").append(le).append("\"} ").append(acc).append('\n');
+        }
+        sb.append(name).append("_sum{").append(labels).append("} ").append(h.sumSeconds()).append('\n');
+        sb.append(name).append("_count{").append(labels).append("} ").append(acc).append('\n');
+    }
+
+    private static String zoneLabels(UUID id) {
+        return "zone=\"" + escape(zoneLabel(id)) + "\",zone_id=\"" + id + "\"";
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static synchronized ExecutorService dumpExecutor() {
+        if (dumpExecutor == null) {
+            dumpExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "MapKit-Telemetry");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return dumpExecutor;
+    }
+}
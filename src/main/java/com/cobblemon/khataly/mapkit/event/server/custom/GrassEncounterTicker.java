@@ -1,19 +1,17 @@
 package com.cobblemon.khataly.mapkit.event.server.custom;
 
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
 import com.cobblemon.khataly.mapkit.config.GrassZonesConfig;
+import com.cobblemon.khataly.mapkit.config.SpeciesResolver;
 import com.cobblemon.khataly.mapkit.util.PlayerUtils;
 import com.cobblemon.mod.common.Cobblemon;
-import com.cobblemon.mod.common.api.Priority;
-import com.cobblemon.mod.common.api.events.CobblemonEvents;
-import com.cobblemon.mod.common.api.events.battles.BattleFledEvent;
-import com.cobblemon.mod.common.api.pokemon.PokemonSpecies;
 import com.cobblemon.mod.common.battles.BattleBuilder;
 import com.cobblemon.mod.common.battles.BattleFormat;
-import com.cobblemon.mod.common.battles.actor.PlayerBattleActor;
 import com.cobblemon.mod.common.entity.pokemon.PokemonEntity;
 import com.cobblemon.mod.common.pokemon.Pokemon;
 import com.cobblemon.mod.common.pokemon.Species;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
@@ -25,12 +23,17 @@ import java.util.*;
 
 /**
  * Incontri “a passo” nelle Grass Zones (supporto minY..maxY):
- * - Cooldown per player, trigger su cambio blocco;
+ * - Passi rilevati dal mixin su onPlayerMove (solo player in movimento), cooldown come tick assoluto;
+ * - Zona corrente tramite GrassZoneTracker (nessuna ricerca finché si resta nella stessa zona);
  * - Filtro DAY/NIGHT/BOTH;
  * - Shiny odds per zona (1/N; -1 = default globale);
  * - Aspect opzionale per variante regionale (es. "alola");
+ * - Species e aspect pre-risolti da SpeciesResolver (nessun lookup per incontro);
+ * - Pokémon preparato fuori dal thread server se abilitato (GrassEncounterPipeline), commit sul thread server;
+ * - Avvii limitati per tick/secondo, eccedenze in coda equa per player (GrassEncounterAdmission);
  * - Non spawna se il player è già in battaglia;
- * - Se il player fugge dalla lotta, il selvatico viene despawnato.
+ * - Ciclo di vita del selvatico in WildEncounterTracker (despawn su fuga, disconnessione o scadenza);
+ * - Esiti, latenze e posizioni per zona in GrassEncounterTelemetry.
  */
 public class GrassEncounterTicker {
 
@@ -41,101 +44,97 @@ public class GrassEncounterTicker {
     // Default globale shiny 1/N (se zona mette -1 o non specifica)
     private static final int DEFAULT_GLOBAL_SHINY_ODDS = 4096;
 
-    private static final Map<UUID, Integer> COOLDOWN = new HashMap<>();
+    /** Tick server assoluto fino al quale il player è in cooldown (nessun decremento per tick). */
+    private static final Map<UUID, Long> COOLDOWN_UNTIL = new HashMap<>();
     private static final Map<UUID, BlockPos> LAST_BLOCK = new HashMap<>();
-    /** PlayerUUID -> WildEntityUUID (solo per incontri generati da questo ticker). */
-    private static final Map<UUID, UUID> ACTIVE_WILD = new HashMap<>();
-
-    private static volatile boolean EVENTS_HOOKED = false;
+    /** Player che hanno cambiato blocco dall'ultimo tick (dal mixin su onPlayerMove), senza duplicati. */
+    private static final Map<UUID, ServerPlayerEntity> PENDING_STEPS = new LinkedHashMap<>();
 
     public static void register() {
         ServerTickEvents.END_SERVER_TICK.register(GrassEncounterTicker::onServerTick);
-        hookBattleFleeDespawnOnce();
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            UUID id = handler.player.getUuid();
+            COOLDOWN_UNTIL.remove(id);
+            LAST_BLOCK.remove(id);
+            PENDING_STEPS.remove(id);
+            GrassEncounterPipeline.forget(id);
+            GrassEncounterAdmission.forget(id);
+        });
     }
 
-    /** Despawn del selvatico quando il player fugge dalla battaglia. */
-    private static void hookBattleFleeDespawnOnce() {
-        if (EVENTS_HOOKED) return;
-        EVENTS_HOOKED = true;
-
-        CobblemonEvents.BATTLE_FLED.subscribe(
-                Priority.NORMAL,
-                (BattleFledEvent event) -> {
-                    try {
-                        PlayerBattleActor actor = event.getPlayer();
-
-                        ServerPlayerEntity player = actor.getEntity();
-                        if (player == null) return kotlin.Unit.INSTANCE;
-
-                        UUID pid = player.getUuid();
-                        UUID wid = ACTIVE_WILD.remove(pid);
-                        if (wid == null) return kotlin.Unit.INSTANCE;
-
-                        var sw = (net.minecraft.server.world.ServerWorld) player.getWorld();
-                        var ent = sw.getEntity(wid);
-                        if (ent instanceof PokemonEntity pe && pe.isAlive() && !pe.isRemoved()) {
-                            pe.discard(); // despawn immediato del selvatico
-                        }
-                    } catch (Throwable ignored) {}
-                    return kotlin.Unit.INSTANCE;
-                }
-        );
+    /** Chiamato dal mixin dopo ogni pacchetto di movimento: accoda il passo solo se cambia il blocco. */
+    public static void onPlayerMoved(ServerPlayerEntity player) {
+        BlockPos now = player.getBlockPos();
+        BlockPos prev = LAST_BLOCK.put(player.getUuid(), now);
+        if (prev != null && prev.equals(now)) return;
+        PENDING_STEPS.put(player.getUuid(), player);
     }
 
+    /** Costo per tick proporzionale ai player che si sono mossi, non a quelli online. */
     private static void onServerTick(MinecraftServer server) {
-        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-            // scala il cooldown
-            COOLDOWN.computeIfPresent(player.getUuid(), (id, cd) -> Math.max(0, cd - 1));
-
-            if (!isValidStepState(player)) continue;
+        long tick = server.getTicks();
+        GrassEncounterPipeline.drain(tick);
+        GrassEncounterAdmission.tick(server, tick);
+        WildEncounterTracker.tick(server, tick);
+        GrassEncounterTelemetry.tick(server);
+        if (PENDING_STEPS.isEmpty()) return;
+        for (ServerPlayerEntity player : PENDING_STEPS.values()) {
+            if (player.isRemoved() || player.isDisconnected()) continue;
+            onStep(player, player.getBlockPos(), tick);
+        }
+        PENDING_STEPS.clear();
+    }
 
-            // controllo movimento a nuovo blocco
-            BlockPos now = player.getBlockPos();
-            BlockPos prev = LAST_BLOCK.put(player.getUuid(), now);
-            if (prev != null && prev.equals(now)) continue;
+    private static void onStep(ServerPlayerEntity player, BlockPos now, long tick) {
+        // zona corrente (cache per player + eventi enter/exit), aggiornata anche fuori dai passi validi
+        GrassZonesConfig.Zone zone = GrassZoneTracker.update(player, now);
+        if (zone == null) return;
 
-            // in cooldown?
-            if (COOLDOWN.getOrDefault(player.getUuid(), 0) > 0) continue;
+        if (!isValidStepState(player)) return;
 
-            var world = player.getWorld();
-            var wk = world.getRegistryKey();
+        // in cooldown?
+        if (tick < COOLDOWN_UNTIL.getOrDefault(player.getUuid(), 0L)) return;
 
-            // zone alla posizione esatta (X/Z nel box e Y nel range minY..maxY)
-            var zones = GrassZonesConfig.findAt(wk, now.getX(), now.getY(), now.getZ());
-            if (zones.isEmpty()) continue;
+        var world = player.getWorld();
 
-            // scegliamo la prima zona valida; si può randomizzare se serve
-            GrassZonesConfig.Zone zone = zones.getFirst();
-            // (Niente check su Y singolo: il match per Y è già garantito da findAt)
+        // già in battaglia? niente encounter
+        if (isInBattle(player)) return;
 
-            // già in battaglia? niente encounter
-            if (isInBattle(player)) continue;
+        // roll chance base per step
+        Random rng = player.getRandom();
+        if (rng.nextDouble() >= BASE_STEP_CHANCE) return;
 
-            // roll chance base per step
-            Random rng = player.getRandom();
-            if (rng.nextDouble() >= BASE_STEP_CHANCE) continue;
+        // scelta pesata sul campionatore precompilato della fascia oraria corrente
+        GrassZonesConfig.SpawnEntry choice = zone.sampler(currentBand(world)).sample(rng);
+        if (choice == null) return;
 
-            // filtra spawns per fascia oraria
-            List<GrassZonesConfig.SpawnEntry> pool = filterByTime(zone.spawns(), world);
-            if (pool.isEmpty()) continue;
+        int levelRange = Math.max(1, choice.maxLevel - choice.minLevel + 1);
+        int level = choice.minLevel + rng.nextInt(levelRange);
 
-            // scelta pesata
-            GrassZonesConfig.SpawnEntry choice = weightedRandom(pool, rng);
-            if (choice == null) continue;
+        // shiny roll per zona
+        int shinyOdds = getZoneShinyOddsOrDefault(zone);
+        boolean isShiny = rollShiny(rng, shinyOdds);
 
-            int levelRange = Math.max(1, choice.maxLevel - choice.minLevel + 1);
-            int level = choice.minLevel + rng.nextInt(levelRange);
+        // singles
+        BattleFormat format = BattleFormat.Companion.getGEN_9_SINGLES();
 
-            // shiny roll per zona
-            int shinyOdds = getZoneShinyOddsOrDefault(zone);
-            boolean isShiny = rollShiny(rng, shinyOdds);
+        // species/aspect già risolti al caricamento (specie non valide segnalate nel report di SpeciesResolver)
+        SpeciesResolver.Resolved resolved = SpeciesResolver.get(choice);
+        if (resolved == null || resolved.species() == null) {
+            GrassEncounterTelemetry.record(zone.id(), GrassEncounterTelemetry.Outcome.UNKNOWN_SPECIES);
+            return;
+        }
 
-            // singles
-            BattleFormat format = BattleFormat.Companion.getGEN_9_SINGLES();
+        // niente preparazione se il party non può combattere
+        if (!PlayerUtils.hasUsablePokemon(player)) {
+            GrassEncounterTelemetry.record(zone.id(), GrassEncounterTelemetry.Outcome.NO_USABLE_PARTY);
+            return;
+        }
 
-            if (startWildBattle(player, choice.species, level, format, isShiny, choice.aspect)) {
-                COOLDOWN.put(player.getUuid(), ENCOUNTER_COOLDOWN_TICKS);
-            }
+        switch (GrassEncounterPipeline.submit(player, zone.id(), resolved.species(), level, isShiny, resolved.aspects(), format, tick)) {
+            case QUEUED -> COOLDOWN_UNTIL.put(player.getUuid(), tick + ENCOUNTER_COOLDOWN_TICKS);
+            case ALREADY_QUEUED -> GrassEncounterTelemetry.record(zone.id(), GrassEncounterTelemetry.Outcome.BUSY);
+            case DROPPED -> { } // già registrato da GrassEncounterAdmission
         }
     }
 
@@ -157,42 +156,11 @@ public class GrassEncounterTicker {
         }
     }
 
-    /** Applica il filtro DAY/NIGHT/BOTH rispetto al ciclo vanilla. */
-    private static List<GrassZonesConfig.SpawnEntry> filterByTime(List<GrassZonesConfig.SpawnEntry> entries, net.minecraft.world.World world) {
-        if (entries == null || entries.isEmpty()) return Collections.emptyList();
-
-        // Dimensioni senza skylight => non filtriamo
-        if (!world.getDimension().hasSkyLight()) return entries;
-
+    /** Fascia oraria rispetto al ciclo vanilla; BOTH nelle dimensioni senza skylight (nessun filtro). */
+    private static GrassZonesConfig.TimeBand currentBand(net.minecraft.world.World world) {
+        if (!world.getDimension().hasSkyLight()) return GrassZonesConfig.TimeBand.BOTH;
         long dayTime = world.getTimeOfDay() % 24000L; // 0..23999
-        boolean isDay = dayTime < 12000L;             // 0..11999 = giorno
-
-        List<GrassZonesConfig.SpawnEntry> out = new ArrayList<>(entries.size());
-        for (GrassZonesConfig.SpawnEntry e : entries) {
-            if (e == null) continue;
-            switch (e.time) {
-                case BOTH -> out.add(e);
-                case DAY -> { if (isDay) out.add(e); }
-                case NIGHT -> { if (!isDay) out.add(e); }
-            }
-        }
-        return out;
-    }
-
-    /** Estrazione pesata classica. */
-    private static GrassZonesConfig.SpawnEntry weightedRandom(List<GrassZonesConfig.SpawnEntry> entries, Random r) {
-        if (entries == null || entries.isEmpty()) return null;
-        int total = 0;
-        for (var e : entries) total += Math.max(0, e.weight);
-        if (total <= 0) return null;
-
-        int roll = r.nextInt(total);
-        int acc = 0;
-        for (var e : entries) {
-            acc += Math.max(0, e.weight);
-            if (roll < acc) return e;
-        }
-        return null;
+        return dayTime < 12000L ? GrassZonesConfig.TimeBand.DAY : GrassZonesConfig.TimeBand.NIGHT;
     }
 
     /** Shiny odds della zona o default globale. */
@@ -207,33 +175,16 @@ public class GrassEncounterTicker {
     }
 
     /**
-     * Avvia una battle PvE 1v1; passa sempre il party; supporta shiny e aspect.
+     * Costruisce il Pokémon selvatico (shiny e aspect inclusi). Nessun accesso a mondo/player:
+     * può girare sui worker di GrassEncounterPipeline.
      */
-    private static boolean startWildBattle(ServerPlayerEntity player,
-                                           String speciesId,
-                                           int level,
-                                           BattleFormat format,
-                                           boolean shiny,
-                                           String aspect) {
-        var server = player.getServer();
-        if (server == null) return false;
-        if (!PlayerUtils.hasUsablePokemon(player)) return false;
-
-        // Non iniziare se già in battaglia
-        if (isInBattle(player)) return false;
-
-        String key = speciesId == null ? "" : speciesId.toLowerCase(Locale.ROOT);
-        if (key.contains(":")) key = key.substring(key.indexOf(':') + 1);
-
-        Species species = PokemonSpecies.getByName(key);
-        if (species == null) return false;
-
+    static Pokemon buildPokemon(Species species, int level, boolean shiny, Set<String> aspects) {
         Pokemon pokemon = new Pokemon();
         pokemon.setSpecies(species);
 
         // Aspect opzionale (variante regionale)
-        if (aspect != null && !aspect.isBlank()) {
-            pokemon.setForcedAspects(Collections.singleton(aspect.toLowerCase(Locale.ROOT)));
+        if (!aspects.isEmpty()) {
+            pokemon.setForcedAspects(aspects);
             try { pokemon.updateForm(); } catch (Throwable ignored) {}
         }
 
@@ -241,57 +192,56 @@ public class GrassEncounterTicker {
         pokemon.setShiny(shiny);
         pokemon.initializeMoveset(true);
         pokemon.heal();
+        return pokemon;
+    }
 
-        var sw = (ServerWorld) player.getWorld();
-
-        // -------- NUOVO: spawn alla stessa Y del player --------
-        // targetY = Y "reale" del player (non solo il BlockPos.getY()).
-        final double targetY = player.getY();
-
-        // proviamo alcuni offset vicino al player mantenendo la stessa Y
-        // ordine: +X, -X, +Z, -Z, +X+Z, -X-Z
-        Vec3d spawnPos = null;
-        Vec3d base = player.getPos(); // double-precision position
-        Vec3d[] candidates = new Vec3d[] {
-                new Vec3d(base.x + 1.0, targetY, base.z),
-                new Vec3d(base.x - 1.0, targetY, base.z),
-                new Vec3d(base.x, targetY, base.z + 1.0),
-                new Vec3d(base.x, targetY, base.z - 1.0),
-                new Vec3d(base.x + 1.0, targetY, base.z + 1.0),
-                new Vec3d(base.x - 1.0, targetY, base.z - 1.0)
-        };
-
-        for (Vec3d cand : candidates) {
-            // centro del blocco più vicino
-            BlockPos bp = BlockPos.ofFloored(cand.x, cand.y, cand.z);
-            // deve esserci aria nello spazio del Pokémon (grezzo: blocco target e quello sopra aria)
-            boolean airHere  = sw.isAir(bp);
-            boolean airAbove = sw.isAir(bp.up());
-            // e terreno solido sotto (per evitare di spawna­re sospesi)
-            boolean solidBelow = !sw.isAir(bp.down());
-            if (airHere && airAbove && solidBelow) {
-                spawnPos = new Vec3d(bp.getX() + 0.5, targetY, bp.getZ() + 0.5);
-                break;
-            }
+    /**
+     * Avvia una battle PvE 1v1 con un Pokémon già preparato; passa sempre il party. Solo thread server.
+     * Esito e durata vengono registrati nella telemetria della zona.
+     */
+    static GrassEncounterTelemetry.Outcome commitEncounter(ServerPlayerEntity player, Pokemon pokemon, BattleFormat format, UUID zoneId) {
+        long start = System.nanoTime();
+        GrassEncounterTelemetry.Outcome outcome;
+        try {
+            outcome = startEncounter(player, pokemon, format, zoneId);
+        } catch (RuntimeException e) {
+            CobblemonMapKitMod.LOGGER.warn("[GrassEncounterTicker] Encounter start failed for {}: {}", player.getName().getString(), e.toString());
+            outcome = GrassEncounterTelemetry.Outcome.ERROR;
         }
-
-        // fallback: comunque a +1 in X, stessa Y
-        if (spawnPos == null) {
-            spawnPos = new Vec3d(Math.floor(base.x) + 1.5, targetY, Math.floor(base.z) + 0.5);
+        GrassEncounterTelemetry.record(zoneId, outcome);
+        GrassEncounterTelemetry.latency(zoneId, GrassEncounterTelemetry.Stage.START, outcome, System.nanoTime() - start);
+        if (outcome == GrassEncounterTelemetry.Outcome.STARTED) {
+            GrassEncounterTelemetry.position(zoneId, player.getBlockX(), player.getBlockZ());
         }
-        // -------------------------------------------------------
+        return outcome;
+    }
+
+    private static GrassEncounterTelemetry.Outcome startEncounter(ServerPlayerEntity player, Pokemon pokemon, BattleFormat format, UUID zoneId) {
+        var server = player.getServer();
+        if (server == null) return GrassEncounterTelemetry.Outcome.ERROR;
+        if (!PlayerUtils.hasUsablePokemon(player)) return GrassEncounterTelemetry.Outcome.NO_USABLE_PARTY;
+
+        // Non iniziare se già in battaglia
+        if (isInBattle(player)) return GrassEncounterTelemetry.Outcome.IN_BATTLE;
+
+        var sw = (ServerWorld) player.getWorld();
+
+        // posizione libera vicino al player, in base all'hitbox (cache per zona)
+        Vec3d spawnPos = SpawnPositionSolver.solve(sw, player, pokemon, zoneId);
+        if (spawnPos == null) return GrassEncounterTelemetry.Outcome.SEND_OUT_FAILED;
 
         PokemonEntity entity = pokemon.sendOut(sw, spawnPos, null, e -> null);
-        if (entity == null) return false;
+        if (entity == null) return GrassEncounterTelemetry.Outcome.SEND_OUT_FAILED;
 
-        // Traccia selvatico per possibile despawn in caso di fuga
-        ACTIVE_WILD.put(player.getUuid(), entity.getUuid());
+        // Ciclo di vita del selvatico (despawn su fuga/disconnessione/scadenza)
+        WildEncounterTracker.spawned(player, entity);
 
         var party = Cobblemon.INSTANCE.getStorage().getParty(player);
 
         // Avvia la battle dopo 1–2 tick per sicurezza
         server.execute(() -> server.execute(() -> {
             if (!entity.isRemoved() && entity.isAlive() && !isInBattle(player)) {
+                WildEncounterTracker.battlePending(player.getUuid());
                 BattleBuilder.INSTANCE.pve(
                         player,
                         entity,
@@ -305,7 +255,7 @@ public class GrassEncounterTicker {
             }
         }));
 
-        return true;
+        return GrassEncounterTelemetry.Outcome.STARTED;
     }
 
 }
@@ -0,0 +1,112 @@
+package com.cobblemon.khataly.mapkit.event.server.custom;
+
+import com.cobblemon.khataly.mapkit.config.ChunkZoneStore;
+import com.cobblemon.khataly.mapkit.config.GrassZonesConfig;
+import com.cobblemon.khataly.mapkit.config.GrassZonesSettings;
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.EventFactory;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Zona corrente per giocatore, con eventi di ingresso/uscita:
+ * - Finché il player resta nel box della zona in cache (stessa dimensione, stesse zone) non si interroga l'indice;
+ * - Ricerca e appartenenza tramite ChunkZoneStore (indice globale o attachment del chunk, secondo la modalità);
+ * - ZONE_ENTER / ZONE_EXIT per altre feature o mod (uscita sempre prima dell'ingresso nella zona successiva);
+ * - Avviso in action bar all'ingresso ("Entered Route 3").
+ * Thread server.
+ */
+public final class GrassZoneTracker {
+    private GrassZoneTracker() {}
+
+    @FunctionalInterface
+    public interface ZoneEnter {
+        void onEnter(ServerPlayerEntity player, GrassZonesConfig.Zone zone);
+    }
+
+    @FunctionalInterface
+    public interface ZoneExit {
+        void onExit(ServerPlayerEntity player, GrassZonesConfig.Zone zone);
+    }
+
+    public static final Event<ZoneEnter> ZONE_ENTER = EventFactory.createArrayBacked(ZoneEnter.class,
+            listeners -> (player, zone) -> {
+                for (ZoneEnter l : listeners) l.onEnter(player, zone);
+            });
+
+    public static final Event<ZoneExit> ZONE_EXIT = EventFactory.createArrayBacked(ZoneExit.class,
+            listeners -> (player, zone) -> {
+                for (ZoneExit l : listeners) l.onExit(player, zone);
+            });
+
+    private static final class Tracked {
+        RegistryKey<World> world;
+        GrassZonesConfig.Zone zone; // null = fuori da ogni zona
+        long revision;
+    }
+
+    private static final Map<UUID, Tracked> TRACKED = new HashMap<>();
+
+    public static void register() {
+        // avviso in action bar solo se abilitato (GrassZonesSettings.zoneEnterNotice)
+        ZONE_ENTER.register((player, zone) -> {
+            if (GrassZonesSettings.isZoneEnterNotice()) player.sendMessage(Text.literal("§aEntered §e" + zone.name()), true);
+        });
+
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            Tracked t = TRACKED.remove(handler.player.getUuid());
+            if (t != null && t.zone != null) ZONE_EXIT.invoker().onExit(handler.player, t.zone);
+        });
+    }
+
+    /** Zona che contiene il player alla posizione data (null se nessuna); emette enter/exit se cambia. */
+    public static GrassZonesConfig.Zone update(ServerPlayerEntity player, BlockPos pos) {
+        ServerWorld world = player.getServerWorld();
+        RegistryKey<World> wk = world.getRegistryKey();
+        long revision = GrassZonesConfig.revision();
+        Tracked t = TRACKED.computeIfAbsent(player.getUuid(), id -> new Tracked());
+
+        GrassZonesConfig.Zone cached = t.zone;
+        if (cached != null && t.revision != revision) {
+            // zone modificate: la zona in cache potrebbe essere stata ridefinita o rimossa
+            cached = GrassZonesConfig.get(cached.id());
+        }
+        if (cached != null && wk.equals(t.world) && ChunkZoneStore.contains(world, cached, pos.getX(), pos.getY(), pos.getZ())) {
+            t.zone = cached;
+            t.revision = revision;
+            return cached;
+        }
+
+        List<GrassZonesConfig.Zone> zones = ChunkZoneStore.findAt(world, pos.getX(), pos.getY(), pos.getZ());
+        GrassZonesConfig.Zone now = zones.isEmpty() ? null : zones.getFirst();
+
+        GrassZonesConfig.Zone prev = t.zone;
+        t.world = wk;
+        t.zone = now;
+        t.revision = revision;
+
+        UUID prevId = prev == null ? null : prev.id();
+        UUID nowId = now == null ? null : now.id();
+        if (!java.util.Objects.equals(prevId, nowId)) {
+            if (prev != null) ZONE_EXIT.invoker().onExit(player, prev);
+            if (now != null) ZONE_ENTER.invoker().onEnter(player, now);
+        }
+        return now;
+    }
+
+    /** Zona corrente in cache (null se fuori o mai tracciato). */
+    public static GrassZonesConfig.Zone current(UUID playerId) {
+        Tracked t = TRACKED.get(playerId);
+        return t == null ? null : t.zone;
+    }
+}
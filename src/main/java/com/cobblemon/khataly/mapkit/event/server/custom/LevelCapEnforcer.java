@@ -1,6 +1,9 @@
 package com.cobblemon.khataly.mapkit.event.server.custom;
 
 import com.cobblemon.khataly.mapkit.config.LevelCapConfig;
+import com.cobblemon.khataly.mapkit.util.Accessors;
+import com.cobblemon.khataly.mapkit.util.ExperienceTables;
+import com.cobblemon.khataly.mapkit.util.ExpiringSet;
 import com.cobblemon.khataly.mapkit.util.LevelCapService;
 
 import com.cobblemon.mod.common.api.Priority;
@@ -11,18 +14,18 @@ import com.cobblemon.mod.common.api.events.pokemon.LevelUpEvent;
 import com.cobblemon.mod.common.api.events.pokemon.PokemonCapturedEvent;
 import com.cobblemon.mod.common.api.events.pokemon.PokemonGainedEvent;
 import com.cobblemon.mod.common.api.events.pokemon.interaction.ExperienceCandyUseEvent;
+import com.cobblemon.mod.common.entity.pokemon.PokemonEntity;
+import com.cobblemon.mod.common.pokemon.Pokemon;
 
 import kotlin.Unit;
-import net.minecraft.item.Item;
-import net.minecraft.item.ItemStack;
-import net.minecraft.registry.Registries;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.entity.Entity;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 
-import java.lang.reflect.Method;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Enforcement (partendo dalla tua versione) + fix:
@@ -40,21 +43,34 @@ public final class LevelCapEnforcer {
 
     private LevelCapEnforcer() {}
 
-    private static final long BYPASS_WINDOW_MS = 20000L;
+    /** Tabelle transitorie: scadenza (TTL) e limite da LevelCapConfig.stateTables, una wheel condivisa. */
+    private static final ExpiringSet.Group TABLES = new ExpiringSet.Group(512);
 
-    /** Fallback per consentire cattura con Master Ball */
-    private static final Map<UUID, Long> recentMasterBypass = new ConcurrentHashMap<>();
+    /** Fallback per consentire cattura con Master Ball (player nella finestra) */
+    private static final ExpiringSet<UUID> recentMasterBypass = TABLES.newSet("masterBypass",
+            () -> LevelCapConfig.getStateTables().masterBypass.ttlTicks(),
+            () -> LevelCapConfig.getStateTables().masterBypass.maxEntries);
     /** Tag per entità colpite e consentite sopra cap (serve solo per PRE) */
-    private static final Map<UUID, Set<UUID>> captureBypass = new ConcurrentHashMap<>();
+    private static final ExpiringSet<CaptureTag> captureBypass = TABLES.newSet("captureBypass",
+            () -> LevelCapConfig.getStateTables().captureBypass.ttlTicks(),
+            () -> LevelCapConfig.getStateTables().captureBypass.maxEntries);
 
     /** Hint: il prossimo ExperienceGainedPre di questo mon è da caramella */
-    private static final Set<UUID> nextExpFromCandy = ConcurrentHashMap.newKeySet();
+    private static final ExpiringSet<UUID> nextExpFromCandy = TABLES.newSet("candyHint",
+            () -> LevelCapConfig.getStateTables().candyHint.ttlTicks(),
+            () -> LevelCapConfig.getStateTables().candyHint.maxEntries);
 
     /** Whitelist: mon catturati sopra cap quando clampCapturedOverCap==false (evita safety clamp) */
-    private static final Set<UUID> allowedOverCap = ConcurrentHashMap.newKeySet();
+    private static final ExpiringSet<UUID> allowedOverCap = TABLES.newSet("allowedOverCap",
+            () -> LevelCapConfig.getStateTables().allowedOverCap.ttlTicks(),
+            () -> LevelCapConfig.getStateTables().allowedOverCap.maxEntries);
 
     /** Debounce: evita che la gestione del GAINED da cattura scatti due volte per lo stesso mon */
-    private static final Set<UUID> processedCaptureGain = ConcurrentHashMap.newKeySet();
+    private static final ExpiringSet<UUID> processedCaptureGain = TABLES.newSet("processedCaptureGain",
+            () -> LevelCapConfig.getStateTables().processedCaptureGain.ttlTicks(),
+            () -> LevelCapConfig.getStateTables().processedCaptureGain.maxEntries);
+
+    private record CaptureTag(UUID playerId, UUID monId) {}
 
     // =========================================================
     //                        REGISTER
@@ -68,8 +84,15 @@ public final class LevelCapEnforcer {
         CobblemonEvents.POKEMON_CAPTURED.subscribe(Priority.NORMAL, e -> { onPokemonCaptured(e); return Unit.INSTANCE; });
 
         CobblemonEvents.POKEMON_GAINED.subscribe(Priority.NORMAL, e -> { onPokemonGained(e); return Unit.INSTANCE; });
+
+        ServerTickEvents.END_SERVER_TICK.register(server -> TABLES.tick(server.getTicks()));
+        // bypass e debounce non sopravvivono alla sessione (server integrato: i tick ripartono da 0)
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> TABLES.reset());
     }
 
+    /** Tabelle transitorie (nome, dimensione, scadute, scartate per limite) per /levelcap stats. */
+    public static List<ExpiringSet<?>> stateTables() { return TABLES.sets(); }
+
     // =========================================================
     //                           EXP
     // =========================================================
@@ -125,7 +148,7 @@ public final class LevelCapEnforcer {
         int cap = LevelCapService.getEffectiveCap(owner);
 
         UUID monId = getPokemonUuid(pokemon);
-        if (monId != null) nextExpFromCandy.add(monId);
+        if (monId != null) nextExpFromCandy.touch(monId);
 
         if (LevelCapService.isAtOrOverCap(currentLevel, cap)) {
             cancel(event);
@@ -146,8 +169,9 @@ public final class LevelCapEnforcer {
 
         UUID monId = getPokemonUuid(pokemon);
         if (monId != null && allowedOverCap.contains(monId)) {
-            // se rientra entro il cap, ripulisci
+            // se rientra entro il cap, ripulisci; altrimenti rinnova la scadenza
             if (lvl <= cap) allowedOverCap.remove(monId);
+            else allowedOverCap.touch(monId);
             return; // non clampare catture consentite sopra cap
         }
 
@@ -180,28 +204,27 @@ public final class LevelCapEnforcer {
 
         int lvl = getPokemonLevel(targetEntity);
         int cap = LevelCapService.getEffectiveCap(player);
+        if (lvl <= cap) return; // sotto il cap: nessun bypass da valutare (niente riconoscimento della ball)
 
         boolean shinyAllowed  = LevelCapConfig.isBypassIfShiny() && isPokemonShiny(targetEntity);
         boolean masterAllowed = LevelCapConfig.isBypassOnMasterBall() && isMasterBall(pokeBall);
 
-        if (lvl > cap && !(shinyAllowed || masterAllowed)) {
+        if (!(shinyAllowed || masterAllowed)) {
             cancel(event);
             notify(player, "§cCapture blocked: level " + lvl + " above cap " + cap + ".");
             return;
         }
 
         // Tag solo per PRE: non influisce sul post-capture clamp
-        if (lvl > cap) {
-            UUID targetId = getEntityUuid(targetEntity);
-            if (targetId != null) {
-                captureBypass.computeIfAbsent(player.getUuid(), k -> ConcurrentHashMap.newKeySet()).add(targetId);
-            }
-            if (masterAllowed) {
-                recentMasterBypass.put(player.getUuid(), System.currentTimeMillis() + BYPASS_WINDOW_MS);
-                notify(player, "§aCapture bypass (Master Ball): level " + lvl + " allowed.");
-            } else {
-                notify(player, "§aCapture bypass (Shiny Pokémon): level " + lvl + " allowed.");
-            }
+        UUID targetId = getEntityUuid(targetEntity);
+        if (targetId != null) {
+            captureBypass.touch(new CaptureTag(player.getUuid(), targetId));
+        }
+        if (masterAllowed) {
+            recentMasterBypass.touch(player.getUuid());
+            notify(player, "§aCapture bypass (Master Ball): level " + lvl + " allowed.");
+        } else {
+            notify(player, "§aCapture bypass (Shiny Pokémon): level " + lvl + " allowed.");
         }
     }
 
@@ -235,11 +258,7 @@ public final class LevelCapEnforcer {
         if (!processedCaptureGain.add(monId)) return;
 
         // ripulisci tag PRE
-        Set<UUID> set = captureBypass.get(owner.getUuid());
-        if (set != null) {
-            set.remove(monId);
-            if (set.isEmpty()) captureBypass.remove(owner.getUuid());
-        }
+        captureBypass.remove(new CaptureTag(owner.getUuid(), monId));
         // chiudi eventuale finestra master
         recentMasterBypass.remove(owner.getUuid());
 
@@ -261,88 +280,97 @@ public final class LevelCapEnforcer {
                 allowedOverCap.remove(monId);
             } else {
                 // consentito sopra cap → whitelista per evitare safety clamp
-                allowedOverCap.add(monId);
+                allowedOverCap.touch(monId);
                 notify(owner, "§eCaptured Pokémon above cap allowed by config (no clamp).");
             }
         }
     }
 
+    // =========================================================
+    //                  ACCESSOR (risolti una volta)
+    // =========================================================
+    // Pokemon / PokemonEntity: chiamate dirette; eventi e altre classi: MethodHandle in cache per classe
+    // (cache negativa per i nomi che non esistono), nessun getMethod sui percorsi caldi.
+    private static final Accessors.Getter[] CAPTURE_FLAG = {
+            Accessors.getter("isFromCapture"), Accessors.getter("wasCapture"), Accessors.getter("isCapture")
+    };
+    private static final Accessors.Getter[] CAPTURE_SOURCE = {
+            Accessors.getter("getSource"), Accessors.getter("getCause"),
+            Accessors.getter("getReason"), Accessors.getter("getOrigin")
+    };
+    private static final Accessors.Getter[] EVENT_PLAYER = {
+            Accessors.getter("getPlayer"), Accessors.getter("getReceiver"), Accessors.getter("getOwner"),
+            Accessors.getter("getTrainer"), Accessors.getter("getServerPlayer")
+    };
+    private static final Accessors.Getter OWNER_PLAYER = Accessors.getter("getOwnerPlayer");
+    private static final Accessors.Getter UUID_GETTER = Accessors.getter("getUuid", "getUUID");
+    private static final Accessors.Getter UNWRAP = Accessors.getter("getPokemon");
+    private static final Accessors.Getter CANCEL = Accessors.getter("cancel");
+    private static final Accessors.BooleanSetter SET_CANCELED = Accessors.booleanSetter("setCanceled");
+    private static final Accessors.Getter IS_SHINY = Accessors.getter("isShiny", "getShiny");
+    private static final Accessors.Getter SHINY_FIELD = Accessors.field("shiny");
+    private static final Accessors.Getter LEVEL = Accessors.getter("getLevel");
+    private static final Accessors.Getter STATS = Accessors.getter("getStats");
+    private static final Accessors.IntSetter SET_LEVEL = Accessors.intSetter("setLevel");
+
+    private static final Accessors.Getter EXP_AMOUNT = Accessors.getter("getExperience", "getExp", "getAmount", "getExperienceAmount");
+    private static final Accessors.IntSetter SET_EXP_AMOUNT = Accessors.intSetter("setExperience", "setExp", "setAmount", "setExperienceAmount");
+    private static final Accessors.Getter MON_EXP = Accessors.getter("getExperience", "getExp", "getTotalExperience");
+    private static final Accessors.Getter STATS_EXP = Accessors.getter("getExperience");
+    private static final Accessors.IntArgGetter EXP_FOR_LEVEL = Accessors.intArgGetter("getExperienceForLevel", "getExpForLevel");
+    private static final Accessors.Getter EXP_TO_NEXT = Accessors.getter("getExperienceToNextLevel", "getExpToNextLevel");
+
     // =========================================================
     //                         UTIL
     // =========================================================
     private static boolean isFromCapture(PokemonGainedEvent event, Object pokemon, ServerPlayerEntity owner) {
         // Metodi diretti
-        for (String m : new String[]{"isFromCapture", "wasCapture", "isCapture"}) {
-            try {
-                Method mm = event.getClass().getMethod(m);
-                Object res = mm.invoke(event);
-                if (res instanceof Boolean b) return b;
-            } catch (ReflectiveOperationException ignored) {}
+        for (Accessors.Getter g : CAPTURE_FLAG) {
+            Boolean b = g.getBoolean(event);
+            if (b != null) return b;
         }
         // Sorgente/causa
-        Object src = firstNonNullObj(
-                tryObject(event, "getSource"),
-                tryObject(event, "getCause"),
-                tryObject(event, "getReason"),
-                tryObject(event, "getOrigin")
-        );
+        Object src = null;
+        for (Accessors.Getter g : CAPTURE_SOURCE) {
+            if (!g.supports(event.getClass())) continue;
+            src = g.get(event); // primo metodo esistente, come prima
+            break;
+        }
         if (src != null) {
             String s = String.valueOf(src).toUpperCase(Locale.ROOT);
             if (s.contains("CAPTURE")) return true;
         }
         // Fallback: tag PRE
         UUID monId = getPokemonUuid(pokemon);
-        if (monId != null) {
-            Set<UUID> set = captureBypass.get(owner.getUuid());
-            if (set != null && set.contains(monId)) return true;
-        }
+        if (monId != null && captureBypass.contains(new CaptureTag(owner.getUuid(), monId))) return true;
         // Fallback: finestra master (indicatore debole ma utile immediatamente dopo la cattura)
-        return recentMasterBypass.containsKey(owner.getUuid());
+        return recentMasterBypass.contains(owner.getUuid());
     }
 
     private static boolean consumeMasterWindow(UUID playerId) {
-        Long until = recentMasterBypass.get(playerId);
-        long now = System.currentTimeMillis();
-        if (until != null && now <= until) {
-            recentMasterBypass.remove(playerId);
-            return true;
-        }
-        if (until != null) recentMasterBypass.remove(playerId);
-        return false;
+        // le finestre scadute sono già state rimosse dalla wheel
+        return recentMasterBypass.remove(playerId);
     }
 
     private static UUID getEntityUuid(Object entity) {
         if (entity == null) return null;
-        try {
-            Object r = entity.getClass().getMethod("getUuid").invoke(entity);
-            if (r instanceof UUID u) return u;
-        } catch (ReflectiveOperationException ignored) {}
-        try {
-            Object r = entity.getClass().getMethod("getUUID").invoke(entity);
-            if (r instanceof UUID u) return u;
-        } catch (ReflectiveOperationException ignored) {}
-        return null;
+        if (entity instanceof Entity e) return e.getUuid();
+        return UUID_GETTER.get(entity) instanceof UUID u ? u : null;
     }
 
     private static UUID getPokemonUuid(Object obj) {
         Object mon = unwrapMon(obj);
         if (mon == null) return null;
-        try {
-            Object r = mon.getClass().getMethod("getUuid").invoke(mon);
-            if (r instanceof UUID u) return u;
-        } catch (ReflectiveOperationException ignored) {}
-        try {
-            Object r = mon.getClass().getMethod("getUUID").invoke(mon);
-            if (r instanceof UUID u) return u;
-        } catch (ReflectiveOperationException ignored) {}
-        return null;
+        if (mon instanceof Pokemon p) return p.getUuid();
+        return UUID_GETTER.get(mon) instanceof UUID u ? u : null;
     }
 
     private static void cancel(Object cancelableEvent) {
-        try { cancelableEvent.getClass().getMethod("cancel").invoke(cancelableEvent); return; }
-        catch (ReflectiveOperationException ignored) {}
-        try { cancelableEvent.getClass().getMethod("setCanceled", boolean.class).invoke(cancelableEvent, true); }
-        catch (ReflectiveOperationException ignored) {}
+        if (CANCEL.supports(cancelableEvent.getClass())) {
+            CANCEL.get(cancelableEvent);
+            return;
+        }
+        SET_CANCELED.set(cancelableEvent, true);
     }
 
     private static void notify(ServerPlayerEntity player, String msg) {
@@ -350,309 +378,97 @@ public final class LevelCapEnforcer {
     }
 
     private static ServerPlayerEntity eventPlayerOrOwner(Object event, Object pokemon) {
-        for (String name : new String[]{"getPlayer", "getReceiver", "getOwner", "getTrainer", "getServerPlayer"}) {
-            ServerPlayerEntity p = tryGetPlayer(event, name);
-            if (p != null) return p;
-        }
-        return tryGetPlayer(pokemon, "getOwnerPlayer");
-    }
-
-    private static ServerPlayerEntity tryGetPlayer(Object target, String methodName) {
-        try {
-            Method m = target.getClass().getMethod(methodName);
-            Object res = m.invoke(target);
-            return (res instanceof ServerPlayerEntity) ? (ServerPlayerEntity) res : null;
-        } catch (ReflectiveOperationException ignored) {
-            return null;
+        for (Accessors.Getter g : EVENT_PLAYER) {
+            if (g.get(event) instanceof ServerPlayerEntity p) return p;
         }
+        if (pokemon instanceof Pokemon p) return p.getOwnerPlayer();
+        return OWNER_PLAYER.get(pokemon) instanceof ServerPlayerEntity p ? p : null;
     }
 
     private static Object unwrapMon(Object obj) {
         if (obj == null) return null;
-        try {
-            Method m = obj.getClass().getMethod("getPokemon");
-            Object inner = m.invoke(obj);
-            if (inner != null) return inner;
-        } catch (ReflectiveOperationException ignored) {}
-        return obj;
+        if (obj instanceof Pokemon) return obj;
+        if (obj instanceof PokemonEntity pe) return pe.getPokemon();
+        Object inner = UNWRAP.get(obj);
+        return inner != null ? inner : obj;
     }
 
     private static boolean isPokemonShiny(Object obj) {
         Object mon = unwrapMon(obj);
         if (mon == null) return false;
+        if (mon instanceof Pokemon p) return p.getShiny();
 
-        try {
-            Object res = mon.getClass().getMethod("isShiny").invoke(mon);
-            if (res instanceof Boolean) return (Boolean) res;
-        } catch (ReflectiveOperationException ignored) {}
-
-        try {
-            var f = mon.getClass().getDeclaredField("shiny");
-            f.setAccessible(true);
-            Object v = f.get(mon);
-            if (v instanceof Boolean) return (Boolean) v;
-        } catch (ReflectiveOperationException ignored) {}
-
-        return false;
+        Boolean res = IS_SHINY.getBoolean(mon);
+        if (res != null) return res;
+        res = SHINY_FIELD.getBoolean(mon);
+        return res != null && res;
     }
 
     private static int getPokemonLevel(Object obj) {
         Object mon = unwrapMon(obj);
         if (mon == null) return 1;
+        if (mon instanceof Pokemon p) return p.getLevel();
 
-        try {
-            Object res = mon.getClass().getMethod("getLevel").invoke(mon);
-            if (res instanceof Integer) return (Integer) res;
-        } catch (ReflectiveOperationException ignored) {}
-
-        try {
-            Object stats = mon.getClass().getMethod("getStats").invoke(mon);
-            if (stats != null) {
-                Object res = stats.getClass().getMethod("getLevel").invoke(stats);
-                if (res instanceof Integer) return (Integer) res;
-            }
-        } catch (ReflectiveOperationException ignored) {}
-
-        return 1;
+        Integer res = LEVEL.getInt(mon);
+        if (res != null) return res;
+        res = LEVEL.getInt(STATS.get(mon));
+        return res != null ? res : 1;
     }
 
     private static boolean setPokemonLevel(Object obj, int level) {
         Object mon = unwrapMon(obj);
         if (mon == null) return false;
-
-        try {
-            mon.getClass().getMethod("setLevel", int.class).invoke(mon, level);
+        if (mon instanceof Pokemon p) {
+            p.setLevel(level);
             return true;
-        } catch (ReflectiveOperationException ignored) {}
-
-        try {
-            Object stats = mon.getClass().getMethod("getStats").invoke(mon);
-            if (stats != null) {
-                stats.getClass().getMethod("setLevel", int.class).invoke(stats, level);
-                return true;
-            }
-        } catch (ReflectiveOperationException ignored) {}
-
-        return false;
+        }
+        if (SET_LEVEL.set(mon, level)) return true;
+        return SET_LEVEL.set(STATS.get(mon), level);
     }
 
     // =========================================================
     //               Master Ball detection robusta
     // =========================================================
     private static boolean isMasterBall(Object pokeBallEntity) {
-        if (!LevelCapConfig.isBypassOnMasterBall() || pokeBallEntity == null) return false;
-
-        String quick = firstNonNull(
-                tryString(pokeBallEntity, "getBallId"),
-                tryString(pokeBallEntity, "getBallIdentifier"),
-                tryString(pokeBallEntity, "getPokeBallId"),
-                tryString(pokeBallEntity, "getIdentifier"),
-                tryString(pokeBallEntity, "getName")
-        );
-        if (isCobblemonMasterBallId(quick)) return true;
-
-        Object ballObj = firstNonNullObj(
-                tryObject(pokeBallEntity, "getBall"),
-                tryObject(pokeBallEntity, "getPokeBall"),
-                tryObject(pokeBallEntity, "getBallType"),
-                tryObject(pokeBallEntity, "getType")
-        );
-        if (ballObj != null) {
-            String bid = firstNonNull(
-                    tryString(ballObj, "getIdentifier"),
-                    tryString(ballObj, "getId"),
-                    tryString(ballObj, "getName"),
-                    String.valueOf(ballObj)
-            );
-            if (isCobblemonMasterBallId(bid)) return true;
-
-            if (ballObj instanceof Enum<?>) {
-                String en = ((Enum<?>) ballObj).name();
-                if (isCobblemonMasterBallId(en)) return true;
-            }
-
-            if (scanObjectForMasterBall(ballObj)) return true;
-        }
-
-        ItemStack stack = tryGetPokeballItemStack(pokeBallEntity);
-        if (stack != null && !stack.isEmpty()) {
-            String itemId = itemIdString(stack.getItem());
-            if (isCobblemonMasterBallId(itemId)) return true;
-            if (isCobblemonMasterBallId(String.valueOf(stack.getItem()))) return true;
-        }
-
-        String cls = pokeBallEntity.getClass().getName();
-        if (isCobblemonMasterBallId(cls)) return true;
-        String simple = pokeBallEntity.getClass().getSimpleName();
-        if (isCobblemonMasterBallId(simple)) return true;
-        String ts = String.valueOf(pokeBallEntity);
-        return isCobblemonMasterBallId(ts);
-    }
-
-    private static boolean isCobblemonMasterBallId(String s) {
-        if (s == null || s.isBlank()) return false;
-        String v = s.toLowerCase(Locale.ROOT).trim();
-        return v.equals("cobblemon:master_ball")
-                || v.endsWith(":master_ball")
-                || v.contains("master_ball")
-                || v.equals("master ball")
-                || v.endsWith(".master_ball")
-                || v.endsWith("$master_ball");
-    }
-
-    private static ItemStack tryGetPokeballItemStack(Object pokeBallEntity) {
-        if (pokeBallEntity == null) return null;
-        for (String mName : new String[]{"getItem", "getStack", "getItemStack", "getBallStack"}) {
-            try {
-                Method m = pokeBallEntity.getClass().getMethod(mName);
-                Object res = m.invoke(pokeBallEntity);
-                if (res instanceof ItemStack) return (ItemStack) res;
-            } catch (ReflectiveOperationException ignored) {}
-        }
-        return null;
-    }
-
-    private static boolean scanObjectForMasterBall(Object obj) {
-        try {
-            Class<?> c = obj.getClass();
-            for (var f : c.getDeclaredFields()) {
-                f.setAccessible(true);
-                Object v = f.get(obj);
-                switch (v) {
-                    case null -> { continue; }
-                    case CharSequence cs -> { if (isCobblemonMasterBallId(v.toString())) return true; }
-                    case Item item -> {
-                        String id = itemIdString(item);
-                        if (isCobblemonMasterBallId(id)) return true;
-                    }
-                    case ItemStack st -> {
-                        if (!st.isEmpty() && isCobblemonMasterBallId(itemIdString(st.getItem()))) return true;
-                    }
-                    case Enum<?> en -> { if (isCobblemonMasterBallId(en.name())) return true; }
-                    default -> { if (isCobblemonMasterBallId(String.valueOf(v))) return true; }
-                }
-            }
-        } catch (Throwable ignored) {}
-        return false;
-    }
-
-    private static String itemIdString(Item item) {
-        if (item == null) return "";
-        try {
-            return Registries.ITEM.getId(item).toString().toLowerCase(Locale.ROOT);
-        } catch (Exception ignored) {
-            return item.getClass().getName().toLowerCase(Locale.ROOT);
-        }
-    }
-
-    private static Object tryObject(Object target, String... methods) {
-        if (target == null) return null;
-        for (String name : methods) {
-            try {
-                Method m = target.getClass().getMethod(name);
-                return m.invoke(target);
-            } catch (ReflectiveOperationException ignored) {}
-        }
-        return null;
-    }
-
-    private static String tryString(Object target, String... methods) {
-        Object o = tryObject(target, methods);
-        return (o == null) ? null : String.valueOf(o);
+        if (!LevelCapConfig.isBypassOnMasterBall()) return false;
+        return MasterBallDetector.isMasterBall(pokeBallEntity);
     }
 
     // =========================================================
     //                       EXP helpers
     // =========================================================
     private static Integer getExpAmountFromAnyExpEvent(Object ev) {
-        for (String m : new String[]{"getExperience", "getExp", "getAmount", "getExperienceAmount"}) {
-            try {
-                Method mm = ev.getClass().getMethod(m);
-                Object val = mm.invoke(ev);
-                if (val instanceof Number) return ((Number) val).intValue();
-            } catch (ReflectiveOperationException ignored) {}
-        }
-        return null;
+        return EXP_AMOUNT.getInt(ev);
     }
 
     private static boolean setExpAmountOnAnyExpEvent(Object ev, int newAmount) {
-        for (String m : new String[]{"setExperience", "setExp", "setAmount", "setExperienceAmount"}) {
-            try {
-                Method mm = ev.getClass().getMethod(m, int.class);
-                mm.invoke(ev, newAmount);
-                return true;
-            } catch (ReflectiveOperationException ignored) {}
-        }
-        return false;
+        return SET_EXP_AMOUNT.set(ev, newAmount);
     }
 
     private static Integer getRemainingExpToReachLevel(Object pokemonObj, int targetLevel) {
         Object mon = unwrapMon(pokemonObj);
         if (mon == null) return null;
+        // caso normale: tabella della curva di crescita, una lettura + sottrazione
+        if (mon instanceof Pokemon p) return ExperienceTables.remainingTo(p, targetLevel);
 
-        Integer currentLevel = tryInt(mon, "getLevel");
-        if (currentLevel == null) {
-            Object stats = tryObject(mon, "getStats");
-            if (stats != null) currentLevel = tryInt(stats, "getLevel");
-        }
+        Object stats = STATS.get(mon);
+        Integer currentLevel = firstNonNull(LEVEL.getInt(mon), LEVEL.getInt(stats));
         if (currentLevel == null) return null;
         if (currentLevel >= targetLevel) return 0;
 
-        Integer currentExp = firstNonNull(
-                tryInt(mon, "getExperience"),
-                tryInt(mon, "getExp"),
-                tryInt(mon, "getTotalExperience"),
-                tryInt(tryObject(mon, "getStats"), "getExperience")
-        );
-
+        Integer currentExp = firstNonNull(MON_EXP.getInt(mon), STATS_EXP.getInt(stats));
         Integer expForTarget = firstNonNull(
-                tryInt(mon, "getExperienceForLevel", targetLevel),
-                tryInt(mon, "getExpForLevel", targetLevel),
-                tryInt(tryObject(mon, "getStats"), "getExperienceForLevel", targetLevel),
-                tryInt(tryObject(mon, "getStats"), "getExpForLevel", targetLevel)
+                EXP_FOR_LEVEL.getInt(mon, targetLevel),
+                EXP_FOR_LEVEL.getInt(stats, targetLevel)
         );
-
         if (currentExp != null && expForTarget != null) {
-            int diff = expForTarget - currentExp;
-            return Math.max(diff, 0);
+            return Math.max(expForTarget - currentExp, 0);
         }
 
-        int totalNeeded = 0;
-        int from = currentLevel;
-        while (from < targetLevel) {
-            Integer toNext = firstNonNull(
-                    tryInt(mon, "getExperienceToNextLevel"),
-                    tryInt(mon, "getExpToNextLevel"),
-                    tryInt(tryObject(mon, "getStats"), "getExperienceToNextLevel"),
-                    tryInt(tryObject(mon, "getStats"), "getExpToNextLevel")
-            );
-            if (toNext == null) return null;
-            totalNeeded += Math.max(0, toNext);
-            from++;
-        }
-        return totalNeeded;
-    }
-
-    private static Integer tryInt(Object target, String method) {
-        if (target == null) return null;
-        try {
-            Method m = target.getClass().getMethod(method);
-            Object res = m.invoke(target);
-            return (res instanceof Number) ? ((Number) res).intValue() : null;
-        } catch (ReflectiveOperationException ignored) {
-            return null;
-        }
-    }
-
-    private static Integer tryInt(Object target, String method, int arg) {
-        if (target == null) return null;
-        try {
-            Method m = target.getClass().getMethod(method, int.class);
-            Object res = m.invoke(target, arg);
-            return (res instanceof Number) ? ((Number) res).intValue() : null;
-        } catch (ReflectiveOperationException ignored) {
-            return null;
-        }
+        // "EXP al prossimo livello" è esatta solo se il target è il livello successivo
+        if (targetLevel != currentLevel + 1) return null;
+        Integer toNext = firstNonNull(EXP_TO_NEXT.getInt(mon), EXP_TO_NEXT.getInt(stats));
+        return toNext == null ? null : Math.max(0, toNext);
     }
 
     @SafeVarargs
@@ -660,9 +476,4 @@ public final class LevelCapEnforcer {
         for (T v : vals) if (v != null) return v;
         return null;
     }
-
-    private static Object firstNonNullObj(Object... arr) {
-        for (Object o : arr) if (o != null) return o;
-        return null;
-    }
 }
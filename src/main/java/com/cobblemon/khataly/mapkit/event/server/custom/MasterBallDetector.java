@@ -0,0 +1,194 @@
+package com.cobblemon.khataly.mapkit.event.server.custom;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.cobblemon.khataly.mapkit.util.Accessors;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Riconoscimento Master Ball compilato per classe:
+ * - alla prima hit di una classe di entità Poké Ball si decide COME leggerne l'identità
+ *   (id diretto, oggetto ball + suo id, ItemStack) e la strategia resta in cache (ClassValue);
+ * - stessa cosa per la classe dell'oggetto ball: se espone un id (o è un enum) basta leggere e confrontare;
+ * - solo le classi senza alcun identificatore usano il fallback lento (toString + scansione dei campi),
+ *   conteggiato in slowHits() / slowClasses() e loggato una volta per classe.
+ */
+public final class MasterBallDetector {
+    private MasterBallDetector() {}
+
+    /** Id della ball sull'entità; niente getName: esiste su ogni Entity e restituisce il nome (Text), non la ball. */
+    private static final Accessors.Getter[] BALL_ID = {
+            Accessors.getter("getBallId"), Accessors.getter("getBallIdentifier"), Accessors.getter("getPokeBallId"),
+            Accessors.getter("getIdentifier")
+    };
+    private static final Accessors.Getter[] BALL_OBJECT = {
+            Accessors.getter("getBall"), Accessors.getter("getPokeBall"),
+            Accessors.getter("getBallType"), Accessors.getter("getType")
+    };
+    private static final Accessors.Getter[] BALL_OBJECT_ID = {
+            Accessors.getter("getIdentifier"), Accessors.getter("getId"), Accessors.getter("getName")
+    };
+    private static final Accessors.Getter BALL_STACK = Accessors.getter("getItem", "getStack", "getItemStack", "getBallStack");
+
+    private static final MethodType FIELD_GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private static final Set<String> SLOW_CLASSES = ConcurrentHashMap.newKeySet();
+    private static final LongAdder SLOW_HITS = new LongAdder();
+    private static final LongAdder HITS = new LongAdder();
+
+    /** Strategia per la classe dell'entità Poké Ball. */
+    private record EntityStrategy(boolean byClassName, Accessors.Getter[] ids, Accessors.Getter[] balls, boolean stack) {
+        boolean slow() { return !byClassName && ids.length == 0 && balls.length == 0 && !stack; }
+    }
+
+    /** Strategia per la classe dell'oggetto ball; fields != null solo per il fallback lento. */
+    private record BallStrategy(Accessors.Getter[] ids, boolean isEnum, MethodHandle[] fields) {}
+
+    private static final ClassValue<EntityStrategy> ENTITIES = new ClassValue<>() {
+        @Override protected EntityStrategy computeValue(Class<?> type) {
+            boolean byName = isMasterBallId(type.getName()) || isMasterBallId(type.getSimpleName());
+            EntityStrategy s = new EntityStrategy(byName, supported(BALL_ID, type), supported(BALL_OBJECT, type),
+                    BALL_STACK.supports(type));
+            if (s.slow()) slowClass(type);
+            return s;
+        }
+    };
+
+    private static final ClassValue<BallStrategy> BALLS = new ClassValue<>() {
+        @Override protected BallStrategy computeValue(Class<?> type) {
+            Accessors.Getter[] ids = supported(BALL_OBJECT_ID, type);
+            boolean isEnum = Enum.class.isAssignableFrom(type);
+            if (ids.length > 0 || isEnum) return new BallStrategy(ids, isEnum, null);
+            slowClass(type);
+            return new BallStrategy(ids, false, fieldReaders(type));
+        }
+    };
+
+    static boolean isMasterBall(Object pokeBallEntity) {
+        if (pokeBallEntity == null) return false;
+        HITS.increment();
+        EntityStrategy s = ENTITIES.get(pokeBallEntity.getClass());
+        if (s.byClassName()) return true;
+
+        Object quick = first(s.ids(), pokeBallEntity);
+        if (quick != null && matches(quick)) return true;
+
+        Object ballObj = first(s.balls(), pokeBallEntity);
+        if (ballObj != null && isMasterBallObject(ballObj)) return true;
+
+        if (s.stack() && BALL_STACK.get(pokeBallEntity) instanceof ItemStack st && !st.isEmpty()) {
+            if (isMasterBallId(itemIdString(st.getItem()))) return true;
+        }
+
+        if (s.slow()) {
+            SLOW_HITS.increment();
+            return isMasterBallId(String.valueOf(pokeBallEntity));
+        }
+        return false;
+    }
+
+    private static boolean isMasterBallObject(Object ballObj) {
+        BallStrategy s = BALLS.get(ballObj.getClass());
+        if (s.fields() == null) {
+            Object id = first(s.ids(), ballObj);
+            if (id != null) return matches(id);
+            return s.isEnum() ? isMasterBallId(((Enum<?>) ballObj).name()) : isMasterBallId(String.valueOf(ballObj));
+        }
+
+        SLOW_HITS.increment();
+        if (isMasterBallId(String.valueOf(ballObj))) return true;
+        for (MethodHandle f : s.fields()) {
+            Object v;
+            try {
+                v = (Object) f.invokeExact(ballObj);
+            } catch (Throwable t) {
+                continue;
+            }
+            if (v != null && matches(v)) return true;
+        }
+        return false;
+    }
+
+    /** Confronto senza allocazioni per gli Identifier (già minuscoli), altrimenti sulla stringa. */
+    private static boolean matches(Object v) {
+        return switch (v) {
+            case Identifier id -> id.getPath().contains("master_ball");
+            case Item item -> isMasterBallId(itemIdString(item));
+            case ItemStack st -> !st.isEmpty() && isMasterBallId(itemIdString(st.getItem()));
+            case Enum<?> en -> isMasterBallId(en.name());
+            default -> isMasterBallId(String.valueOf(v));
+        };
+    }
+
+    static boolean isMasterBallId(String s) {
+        if (s == null || s.isBlank()) return false;
+        String v = s.toLowerCase(Locale.ROOT).trim();
+        return v.contains("master_ball") || v.equals("master ball");
+    }
+
+    // ======== Metriche ========
+
+    public static long hits() { return HITS.sum(); }
+    public static long slowHits() { return SLOW_HITS.sum(); }
+    public static Set<String> slowClasses() { return Set.copyOf(SLOW_CLASSES); }
+
+    // ======== Compilazione ========
+
+    private static Accessors.Getter[] supported(Accessors.Getter[] getters, Class<?> type) {
+        List<Accessors.Getter> out = new ArrayList<>(getters.length);
+        for (Accessors.Getter g : getters) if (g.supports(type)) out.add(g);
+        return out.toArray(new Accessors.Getter[0]);
+    }
+
+    private static Object first(Accessors.Getter[] getters, Object target) {
+        for (Accessors.Getter g : getters) {
+            Object v = g.get(target);
+            if (v != null) return v;
+        }
+        return null;
+    }
+
+    /** Campi di istanza dichiarati, resi accessibili una sola volta. */
+    private static MethodHandle[] fieldReaders(Class<?> type) {
+        List<MethodHandle> out = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Field f : type.getDeclaredFields()) {
+            if (Modifier.isStatic(f.getModifiers())) continue;
+            try {
+                f.setAccessible(true);
+                out.add(lookup.unreflectGetter(f).asType(FIELD_GETTER));
+            } catch (ReflectiveOperationException | RuntimeException ignored) {}
+        }
+        return out.toArray(new MethodHandle[0]);
+    }
+
+    private static void slowClass(Class<?> type) {
+        if (SLOW_CLASSES.add(type.getName())) {
+            CobblemonMapKitMod.LOGGER.info("[LevelCap] No ball identifier on {}: Master Ball detection uses the slow fallback.",
+                    type.getName());
+        }
+    }
+
+    private static String itemIdString(Item item) {
+        if (item == null) return "";
+        try {
+            return Registries.ITEM.getId(item).toString();
+        } catch (Exception ignored) {
+            return item.getClass().getName();
+        }
+    }
+}
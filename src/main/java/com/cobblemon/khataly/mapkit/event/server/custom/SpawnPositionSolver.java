@@ -0,0 +1,144 @@
+package com.cobblemon.khataly.mapkit.event.server.custom;
+
+import com.cobblemon.mod.common.pokemon.Pokemon;
+import net.minecraft.block.BlockState;
+import net.minecraft.entity.EntityDimensions;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.Heightmap;
+
+import java.util.*;
+
+/**
+ * Posizione di spawn del selvatico vicino al player, senza compenetrazioni col terreno:
+ * - offset candidati precalcolati a spirale (più vicini prima), uscita al primo valido;
+ * - quota dal heightmap MOTION_BLOCKING_NO_LEAVES se vicina alla quota del player (all'aperto),
+ *   altrimenti ricerca del pavimento attorno alla Y del player (zone coperte, grotte);
+ * - validazione con l'hitbox della forma (larghezza/altezza scalate): spazio libero, niente fluidi, appoggio solido;
+ * - per zona si ricordano le ultime posizioni valide (LRU, anche i riusi tornano in testa):
+ *   incontri ripetuti sullo stesso prato le riprovano per prime.
+ * Nessuna posizione valida: null, l'invio in campo viene annullato. Solo thread server.
+ */
+final class SpawnPositionSolver {
+    private SpawnPositionSolver() {}
+
+    private static final int MAX_RADIUS = 4;
+    /** Differenza massima tra heightmap e piedi del player per considerare il punto "allo stesso livello". */
+    private static final int MAX_STEP = 2;
+    /** Posizioni valide ricordate per zona e distanza massima dal player per riusarle. */
+    private static final int CACHE_PER_ZONE = 8;
+    private static final int CACHE_MAX_ZONES = 256;
+    private static final double CACHE_REUSE_DIST_SQ = 6.0 * 6.0;
+
+    /** Offset (dx, dz) ordinati per distanza, escluso il blocco del player. */
+    private static final int[][] SPIRAL = buildSpiral();
+    /** Quote provate attorno ai piedi del player quando l'heightmap è troppo lontana. */
+    private static final int[] FEET_DY = {0, 1, -1};
+
+    private static final LinkedHashMap<UUID, ArrayDeque<BlockPos>> RECENT = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, ArrayDeque<BlockPos>> eldest) {
+            return size() > CACHE_MAX_ZONES;
+        }
+    };
+
+    /** Centro del blocco di spawn, oppure null se nessun punto vicino ospita l'hitbox. */
+    static Vec3d solve(ServerWorld world, ServerPlayerEntity player, Pokemon pokemon, UUID zoneId) {
+        EntityDimensions dims = dimensionsOf(pokemon);
+        float width = dims.width(), height = dims.height();
+        BlockPos origin = player.getBlockPos();
+
+        // 1) posizioni già validate nella stessa zona
+        ArrayDeque<BlockPos> recent = zoneId == null ? null : RECENT.get(zoneId);
+        if (recent != null) {
+            for (BlockPos p : recent) {
+                if (p.getSquaredDistance(origin) > CACHE_REUSE_DIST_SQ) continue;
+                if (p.equals(origin)) continue;
+                if (fits(world, p, width, height)) {
+                    remember(zoneId, p);
+                    return center(p);
+                }
+            }
+        }
+
+        // 2) spirale di candidati
+        BlockPos.Mutable probe = new BlockPos.Mutable();
+        for (int[] off : SPIRAL) {
+            int x = origin.getX() + off[0], z = origin.getZ() + off[1];
+            BlockPos found = floorAt(world, probe, x, z, origin.getY(), width, height);
+            if (found != null) {
+                remember(zoneId, found);
+                return center(found);
+            }
+        }
+
+        // 3) nessuno spazio: non si sovrappone il selvatico al player
+        return null;
+    }
+
+    /** Pavimento valido nella colonna (x,z): heightmap se allo stesso livello, altrimenti Y del player ±1. */
+    private static BlockPos floorAt(ServerWorld world, BlockPos.Mutable probe, int x, int z, int feetY,
+                                    float width, float height) {
+        int top = world.getTopY(Heightmap.Type.MOTION_BLOCKING_NO_LEAVES, x, z);
+        if (Math.abs(top - feetY) <= MAX_STEP) {
+            probe.set(x, top, z);
+            if (fits(world, probe, width, height)) return probe.toImmutable();
+        }
+        for (int dy : FEET_DY) {
+            int y = feetY + dy;
+            if (y == top) continue; // già provato
+            probe.set(x, y, z);
+            if (fits(world, probe, width, height)) return probe.toImmutable();
+        }
+        return null;
+    }
+
+    private static boolean fits(ServerWorld world, BlockPos feet, float width, float height) {
+        if (!world.getFluidState(feet).isEmpty()) return false;
+        BlockPos below = feet.down();
+        BlockState ground = world.getBlockState(below);
+        if (ground.getCollisionShape(world, below).isEmpty() || !world.getFluidState(below).isEmpty()) return false;
+
+        double half = width / 2.0;
+        double cx = feet.getX() + 0.5, cz = feet.getZ() + 0.5;
+        Box box = new Box(cx - half, feet.getY(), cz - half, cx + half, feet.getY() + height, cz + half);
+        return world.isSpaceEmpty(box);
+    }
+
+    private static Vec3d center(BlockPos p) {
+        return new Vec3d(p.getX() + 0.5, p.getY(), p.getZ() + 0.5);
+    }
+
+    private static void remember(UUID zoneId, BlockPos pos) {
+        if (zoneId == null) return;
+        ArrayDeque<BlockPos> q = RECENT.computeIfAbsent(zoneId, k -> new ArrayDeque<>(CACHE_PER_ZONE));
+        q.remove(pos);
+        q.addFirst(pos);
+        if (q.size() > CACHE_PER_ZONE) q.removeLast();
+    }
+
+    /** Hitbox della forma scalata; 1x1 se la forma non espone dimensioni. */
+    private static EntityDimensions dimensionsOf(Pokemon pokemon) {
+        try {
+            var form = pokemon.getForm();
+            return form.getHitbox().scaled(form.getBaseScale() * pokemon.getScaleModifier());
+        } catch (Throwable t) {
+            return EntityDimensions.changing(1f, 1f);
+        }
+    }
+
+    private static int[][] buildSpiral() {
+        List<int[]> out = new ArrayList<>();
+        for (int dx = -MAX_RADIUS; dx <= MAX_RADIUS; dx++) {
+            for (int dz = -MAX_RADIUS; dz <= MAX_RADIUS; dz++) {
+                if (dx == 0 && dz == 0) continue; // non sopra/sotto al player
+                out.add(new int[] {dx, dz});
+            }
+        }
+        out.sort(Comparator.comparingInt(o -> o[0] * o[0] + o[1] * o[1]));
+        return out.toArray(new int[0][]);
+    }
+}
@@ -0,0 +1,194 @@
+package com.cobblemon.khataly.mapkit.event.server.custom;
+
+import com.cobblemon.khataly.mapkit.util.TimingWheel;
+import com.cobblemon.mod.common.Cobblemon;
+import com.cobblemon.mod.common.api.Priority;
+import com.cobblemon.mod.common.api.battles.model.PokemonBattle;
+import com.cobblemon.mod.common.api.events.CobblemonEvents;
+import com.cobblemon.mod.common.api.events.battles.BattleFaintedEvent;
+import com.cobblemon.mod.common.api.events.battles.BattleFledEvent;
+import com.cobblemon.mod.common.api.events.battles.BattleStartedPostEvent;
+import com.cobblemon.mod.common.api.events.battles.BattleVictoryEvent;
+import com.cobblemon.mod.common.entity.pokemon.PokemonEntity;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ciclo di vita dei selvatici generati dalle Grass Zones:
+ *   SPAWNED -> BATTLE_PENDING -> IN_BATTLE -> RESOLVED
+ * - BATTLE_STARTED_POST: IN_BATTLE; BATTLE_VICTORY / BATTLE_FAINTED (del selvatico): RESOLVED;
+ * - BATTLE_FLED e disconnessione: despawn immediato;
+ * - ogni stato ha una scadenza sulla timing wheel: alla scadenza il selvatico ancora vivo (e ancora selvatico,
+ *   quindi non catturato) viene rimosso insieme allo stato, così non restano entità orfane nei chunk caricati.
+ * Solo thread server.
+ */
+public final class WildEncounterTracker {
+    private WildEncounterTracker() {}
+
+    public enum State { SPAWNED, BATTLE_PENDING, IN_BATTLE, RESOLVED }
+
+    /** Battaglia non partita entro questo tempo: il selvatico viene rimosso. */
+    private static final int PENDING_TIMEOUT_TICKS = 100;
+    /** Sicurezza per battaglie che non emettono eventi di fine (ricontrollo periodico). */
+    private static final int IN_BATTLE_CHECK_TICKS = 20 * 60;
+    /** Margine dopo la fine della battaglia (animazioni di sconfitta/cattura). */
+    private static final int RESOLVED_GRACE_TICKS = 40;
+
+    private static final class Encounter {
+        final UUID playerId;
+        final UUID entityId;
+        final RegistryKey<World> world;
+        State state = State.SPAWNED;
+        TimingWheel.Timer<Encounter> timer;
+
+        Encounter(UUID playerId, UUID entityId, RegistryKey<World> world) {
+            this.playerId = playerId;
+            this.entityId = entityId;
+            this.world = world;
+        }
+    }
+
+    private static final Map<UUID, Encounter> BY_PLAYER = new HashMap<>();
+    private static final Map<UUID, Encounter> BY_ENTITY = new HashMap<>();
+    private static final TimingWheel<Encounter> SWEEPER = new TimingWheel<>(256);
+
+    private static MinecraftServer server;
+    private static long now;
+    private static boolean hooked = false;
+
+    public static void register() {
+        if (hooked) return;
+        hooked = true;
+
+        CobblemonEvents.BATTLE_STARTED_POST.subscribe(Priority.NORMAL, (BattleStartedPostEvent event) -> {
+            forPlayers(event.getBattle(), e -> transition(e, State.IN_BATTLE, IN_BATTLE_CHECK_TICKS));
+            return kotlin.Unit.INSTANCE;
+        });
+        CobblemonEvents.BATTLE_VICTORY.subscribe(Priority.NORMAL, (BattleVictoryEvent event) -> {
+            forPlayers(event.getBattle(), e -> transition(e, State.RESOLVED, RESOLVED_GRACE_TICKS));
+            return kotlin.Unit.INSTANCE;
+        });
+        CobblemonEvents.BATTLE_FAINTED.subscribe(Priority.NORMAL, (BattleFaintedEvent event) -> {
+            try {
+                PokemonEntity killed = event.getKilled().getEntity();
+                Encounter e = killed == null ? null : BY_ENTITY.get(killed.getUuid());
+                if (e != null) transition(e, State.RESOLVED, RESOLVED_GRACE_TICKS);
+            } catch (Throwable ignored) {}
+            return kotlin.Unit.INSTANCE;
+        });
+        CobblemonEvents.BATTLE_FLED.subscribe(Priority.NORMAL, (BattleFledEvent event) -> {
+            try {
+                ServerPlayerEntity player = event.getPlayer().getEntity();
+                Encounter e = player == null ? null : BY_PLAYER.get(player.getUuid());
+                if (e != null) despawn(e); // despawn immediato del selvatico
+            } catch (Throwable ignored) {}
+            return kotlin.Unit.INSTANCE;
+        });
+
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, srv) -> {
+            Encounter e = BY_PLAYER.get(handler.player.getUuid());
+            if (e != null) despawn(e);
+        });
+
+        // server.getTicks() riparte da 0 al prossimo avvio (server integrato): niente stato della sessione precedente
+        ServerLifecycleEvents.SERVER_STOPPED.register(srv -> reset());
+    }
+
+    private static void reset() {
+        BY_PLAYER.clear();
+        BY_ENTITY.clear();
+        SWEEPER.clear();
+        server = null;
+        now = 0;
+    }
+
+    /** Selvatico appena mandato in campo per il player. */
+    static void spawned(ServerPlayerEntity player, PokemonEntity entity) {
+        server = player.getServer();
+        Encounter old = BY_PLAYER.get(player.getUuid());
+        if (old != null) despawn(old);
+
+        Encounter e = new Encounter(player.getUuid(), entity.getUuid(), player.getWorld().getRegistryKey());
+        BY_PLAYER.put(e.playerId, e);
+        BY_ENTITY.put(e.entityId, e);
+        transition(e, State.SPAWNED, PENDING_TIMEOUT_TICKS);
+    }
+
+    /** Avvio della battaglia richiesto (BattleBuilder.pve); IN_BATTLE arriva con BATTLE_STARTED_POST. */
+    static void battlePending(UUID playerId) {
+        Encounter e = BY_PLAYER.get(playerId);
+        if (e != null && e.state == State.SPAWNED) transition(e, State.BATTLE_PENDING, PENDING_TIMEOUT_TICKS);
+    }
+
+    /** Avanza lo sweeper (una volta per tick). */
+    static void tick(MinecraftServer srv, long tick) {
+        server = srv;
+        now = tick;
+        SWEEPER.advance(tick, WildEncounterTracker::onDeadline);
+    }
+
+    public static State stateOf(UUID playerId) {
+        Encounter e = BY_PLAYER.get(playerId);
+        return e == null ? null : e.state;
+    }
+
+    public static int tracked() { return BY_PLAYER.size(); }
+
+    private static void onDeadline(Encounter e) {
+        if (BY_PLAYER.get(e.playerId) != e) return; // già sostituito/rimosso
+        if (e.state == State.IN_BATTLE && stillBattling(e)) {
+            transition(e, State.IN_BATTLE, IN_BATTLE_CHECK_TICKS);
+            return;
+        }
+        despawn(e);
+    }
+
+    private static void transition(Encounter e, State next, int timeoutTicks) {
+        if (e.state == State.RESOLVED && next != State.RESOLVED) return; // stato finale
+        e.state = next;
+        if (e.timer != null) e.timer.cancel();
+        e.timer = SWEEPER.schedule(e, now, timeoutTicks);
+    }
+
+    /** Rimuove stato e, se ancora selvatico e vivo, l'entità. */
+    private static void despawn(Encounter e) {
+        if (e.timer != null) e.timer.cancel();
+        BY_PLAYER.remove(e.playerId, e);
+        BY_ENTITY.remove(e.entityId, e);
+
+        if (server == null) return;
+        ServerWorld sw = server.getWorld(e.world);
+        if (sw == null) return;
+        if (sw.getEntity(e.entityId) instanceof PokemonEntity pe
+                && pe.isAlive() && !pe.isRemoved() && pe.getPokemon().isWild()) {
+            pe.discard();
+        }
+    }
+
+    private static boolean stillBattling(Encounter e) {
+        try {
+            ServerPlayerEntity p = server == null ? null : server.getPlayerManager().getPlayer(e.playerId);
+            return p != null && Cobblemon.INSTANCE.getBattleRegistry().getBattleByParticipatingPlayer(p) != null;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    private static void forPlayers(PokemonBattle battle, java.util.function.Consumer<Encounter> action) {
+        try {
+            for (ServerPlayerEntity p : battle.getPlayers()) {
+                Encounter e = BY_PLAYER.get(p.getUuid());
+                if (e != null) action.accept(e);
+            }
+        } catch (Throwable ignored) {}
+    }
+}
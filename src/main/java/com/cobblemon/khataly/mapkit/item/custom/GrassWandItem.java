@@ -19,6 +19,7 @@ public class GrassWandItem extends Item {
     public GrassWandItem(Settings settings) { super(settings); }
 
     private static final String NBT_MODE = "grass_mode"; // "tall" | "short"
+    private static final String NBT_SHAPE = "grass_shape"; // "box" | "mask"
 
     /** Shift + click destro su un blocco: toggla modalità e mostra feedback */
     @Override
@@ -67,4 +68,18 @@ public class GrassWandItem extends Item {
         tag.putString(NBT_MODE, tall ? "tall" : "short");
         stack.set(DataComponentTypes.CUSTOM_DATA, NbtComponent.of(tag));
     }
+
+    /** Forma della zona creata: "mask" = solo i blocchi d'erba posati, altrimenti l'intero box (default). */
+    public static boolean isMaskShape(ItemStack stack) {
+        NbtComponent data = stack.get(DataComponentTypes.CUSTOM_DATA);
+        if (data == null) return false; // default box
+        return "mask".equalsIgnoreCase(data.copyNbt().getString(NBT_SHAPE));
+    }
+
+    public static void setMaskShape(ItemStack stack, boolean mask) {
+        NbtComponent data = stack.get(DataComponentTypes.CUSTOM_DATA);
+        NbtCompound tag = (data != null) ? data.copyNbt() : new NbtCompound();
+        tag.putString(NBT_SHAPE, mask ? "mask" : "box");
+        stack.set(DataComponentTypes.CUSTOM_DATA, NbtComponent.of(tag));
+    }
 }
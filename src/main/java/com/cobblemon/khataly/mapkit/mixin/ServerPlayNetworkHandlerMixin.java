@@ -0,0 +1,23 @@
+package com.cobblemon.khataly.mapkit.mixin;
+
+import com.cobblemon.khataly.mapkit.event.server.custom.GrassEncounterTicker;
+import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/** Notifica i passi solo ai giocatori che si muovono (il TAIL si raggiunge solo sul thread server). */
+@Mixin(ServerPlayNetworkHandler.class)
+public abstract class ServerPlayNetworkHandlerMixin {
+
+    @Shadow public ServerPlayerEntity player;
+
+    @Inject(method = "onPlayerMove", at = @At("TAIL"))
+    private void mapkit$onPlayerMove(PlayerMoveC2SPacket packet, CallbackInfo ci) {
+        GrassEncounterTicker.onPlayerMoved(this.player);
+    }
+}
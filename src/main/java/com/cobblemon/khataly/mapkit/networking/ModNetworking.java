@@ -2,6 +2,7 @@ package com.cobblemon.khataly.mapkit.networking;
 
 import com.cobblemon.khataly.mapkit.entity.BicycleEntity;
 import com.cobblemon.khataly.mapkit.networking.handlers.*;
+import com.cobblemon.khataly.mapkit.networking.manager.GrassZoneSyncManager;
 import com.cobblemon.khataly.mapkit.networking.packet.*;
 import com.cobblemon.khataly.mapkit.networking.packet.badgebox.EjectBadgeC2SPacket;
 import com.cobblemon.khataly.mapkit.networking.packet.badgebox.OpenBadgeBoxS2CPacket;
@@ -29,6 +30,7 @@ import com.cobblemon.khataly.mapkit.networking.packet.ultrahole.UltraHoleMenuC2S
 import com.cobblemon.khataly.mapkit.networking.packet.ultrahole.UltraHoleMenuS2CPacket;
 import com.cobblemon.khataly.mapkit.networking.packet.ultrahole.UltraHolePacketC2S;
 import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 import net.minecraft.server.MinecraftServer;
 
@@ -93,14 +95,14 @@ public class ModNetworking {
                 }
         );
 
-        // Receiver server: risponde con lo snapshot
+        // Receiver server: risponde con le sole modifiche nell'area del giocatore (nessuna risposta = invariato)
         ServerPlayNetworking.registerGlobalReceiver(
                 RequestZonesC2SPacket.ID,
-                (payload, ctx) -> ctx.server().execute(() -> {
-                    var pkt = new GrassZonesSyncS2CPacket(GrassZonesSyncS2CPacket.buildDtos());
-                    ServerPlayNetworking.send(ctx.player(), pkt);
-                })
+                (payload, ctx) -> ctx.server().execute(() ->
+                        GrassZoneSyncManager.get().handleRequest(ctx.player(), payload.knownRevision()))
         );
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) ->
+                GrassZoneSyncManager.get().remove(handler.player.getUuid()));
 
 
         // ======= Handlers =======
@@ -1,6 +1,7 @@
 package com.cobblemon.khataly.mapkit.networking;
 
 import com.cobblemon.khataly.mapkit.networking.manager.ClimbManager;
+import com.cobblemon.khataly.mapkit.networking.manager.GrassEditJobManager;
 import com.cobblemon.khataly.mapkit.networking.manager.RestoreManager;
 import net.minecraft.server.MinecraftServer;
 
@@ -8,5 +9,6 @@ public class NetworkingTick {
     public static void tick(MinecraftServer server) {
         RestoreManager.get().tick(server);
         ClimbManager.get().tick();
+        GrassEditJobManager.get().tick(server);
     }
 }
@@ -1,19 +1,16 @@
 package com.cobblemon.khataly.mapkit.networking.handlers;
 
 import com.cobblemon.khataly.mapkit.config.GrassZonesConfig;
+import com.cobblemon.khataly.mapkit.config.ZoneMask;
 import com.cobblemon.khataly.mapkit.item.ModItems;
+import com.cobblemon.khataly.mapkit.item.custom.GrassWandItem;
+import com.cobblemon.khataly.mapkit.networking.manager.GrassEditJobManager;
 import com.cobblemon.khataly.mapkit.networking.packet.grasszones.PlaceGrassC2SPacket;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
-import net.minecraft.block.Block;
-import net.minecraft.block.BlockState;
-import net.minecraft.block.Blocks;
-import net.minecraft.block.TallPlantBlock;
 import net.minecraft.component.DataComponentTypes;
 import net.minecraft.component.type.NbtComponent;
-import net.minecraft.registry.Registries;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
-import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
@@ -21,7 +18,8 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 public class GrassWandHandler {
-    private static final int MAX_SIDE = 64;
+    /** Posa a lavori budgettati per tick (GrassEditJobManager): aree grandi non bloccano più il server. */
+    private static final int MAX_SIDE = 256;
     private static final String NBT_MODE = "grass_mode"; // "tall" | "short"
 
     public static void register() {
@@ -62,39 +60,8 @@ public class GrassWandHandler {
 
         // Read wand mode ("tall" or "short"), default = short
         boolean tallMode = readTallMode(player);
-
-        Block shortGrassBlock = resolveShortGrass();
-        int placed = 0;
-
-        // NUOVO: posizionamento erba su tutto il volume selezionato (scansione per-Y)
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-                for (int z = minZ; z <= maxZ; z++) {
-                    BlockPos pos   = new BlockPos(x, y, z);
-                    BlockPos below = pos.down();
-
-                    if (!world.isAir(pos)) continue;
-                    if (!world.getBlockState(below).isOf(Blocks.GRASS_BLOCK)) continue;
-
-                    if (tallMode) {
-                        // Tall grass richiede 2 blocchi d'aria (pos e pos.up())
-                        if (!world.isAir(pos.up())) continue;
-                        BlockState tall = Blocks.TALL_GRASS.getDefaultState();
-                        if (tall.canPlaceAt(world, pos)) {
-                            TallPlantBlock.placeAt(world, tall, pos, 3);
-                            placed++;
-                        }
-                    } else {
-                        if (shortGrassBlock == null) continue;
-                        BlockState st = shortGrassBlock.getDefaultState();
-                        if (st.canPlaceAt(world, pos)) {
-                            world.setBlockState(pos, st, 3);
-                            placed++;
-                        }
-                    }
-                }
-            }
-        }
+        // Forma: box intero (default) o mask dei soli blocchi d'erba posati/già presenti
+        boolean maskShape = readMaskShape(player);
 
         // Default spawns (examples)
         List<GrassZonesConfig.SpawnEntry> defaultSpawns = List.of(
@@ -107,7 +74,7 @@ public class GrassWandHandler {
         // New: human-friendly incremental name (Zone1, Zone2, ...)
         String zoneName = nextAvailableZoneName();
 
-        // NUOVO: creazione zona con range verticale minY..maxY
+        // NUOVO: creazione zona con range verticale minY..maxY (subito, così l'overlap blocca selezioni concorrenti)
         UUID id = GrassZonesConfig.addZone(
                 zoneName,
                 world.getRegistryKey(),
@@ -116,7 +83,19 @@ public class GrassWandHandler {
                 defaultSpawns
         );
 
-        player.sendMessage(Text.literal("Grass zone created: " + zoneName + " (" + id + "). Blocks placed: " + placed), false);
+        // Posa dell'erba su tutto il volume selezionato, a section per tick
+        ZoneMask.Builder shape = maskShape ? new ZoneMask.Builder() : null;
+        GrassEditJobManager.get().submit(world,
+                tallMode ? GrassEditJobManager.Mode.PLACE_TALL : GrassEditJobManager.Mode.PLACE_SHORT,
+                minX, minY, minZ, maxX, maxY, maxZ,
+                null, shape,
+                placed -> {
+                    // mask vuota (nessuna erba): la zona resta un box
+                    if (shape != null && !shape.isEmpty()) GrassZonesConfig.setZoneMask(id, shape.build());
+                    player.sendMessage(Text.literal(
+                            "Grass zone created: " + zoneName + " (" + id + "). Blocks placed: " + placed
+                                    + (shape != null && !shape.isEmpty() ? " [mask]" : "")), false);
+                });
     }
 
     /** Builds next free name: Zone1, Zone2, ... */
@@ -149,11 +128,12 @@ public class GrassWandHandler {
         return false; // not holding the wand -> default short
     }
 
-    /** SHORT_GRASS (new mappings) or legacy GRASS. */
-    private static Block resolveShortGrass() {
-        Optional<Block> a = Registries.BLOCK.getOrEmpty(Identifier.of("minecraft", "short_grass"));
-        if (a.isPresent()) return a.get();
-        Optional<Block> b = Registries.BLOCK.getOrEmpty(Identifier.of("minecraft", "grass")); // legacy id
-        return b.orElse(null);
+    /** Reads "grass_shape" from the wand (main/offhand). Default box=false. */
+    private static boolean readMaskShape(ServerPlayerEntity player) {
+        var main = player.getMainHandStack();
+        if (!main.isEmpty() && main.getItem() == ModItems.GRASS_WAND) return GrassWandItem.isMaskShape(main);
+        var off = player.getOffHandStack();
+        if (!off.isEmpty() && off.getItem() == ModItems.GRASS_WAND) return GrassWandItem.isMaskShape(off);
+        return false;
     }
 }
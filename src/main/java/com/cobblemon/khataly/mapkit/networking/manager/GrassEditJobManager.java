@@ -0,0 +1,276 @@
+package com.cobblemon.khataly.mapkit.networking.manager;
+
+import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.cobblemon.khataly.mapkit.config.GrassZonesSettings;
+import com.cobblemon.khataly.mapkit.config.ZoneMask;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.TallPlantBlock;
+import net.minecraft.block.enums.DoubleBlockHalf;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.state.property.Properties;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Lavori di world-edit per le Grass Zones (posa/rimozione erba) eseguiti a blocchi di chunk section:
+ * - Ogni tick si processano section finché non si esaurisce il budget (GrassZonesSettings.editBudgetMs)
+ * - Le section senza blocchi utili (palette senza grass_block / erba) vengono saltate senza leggere i blocchi
+ * - setBlockState con flag ridotti (niente neighbor update): i cambi vengono inviati ai client dal ChunkHolder
+ *   come un unico delta per section a fine tick, la luce viene aggiornata dal light engine in batch
+ * - Con una ZoneMask si toccano solo i voxel della mask (le section senza voxel vengono saltate);
+ *   in alternativa la forma può essere letta chunk per chunk quando il job lo raggiunge (forme salvate nei chunk);
+ *   con un ZoneMask.Builder di raccolta si registrano le piante posate o già presenti (forma "a pennello")
+ * I lavori sono eseguiti in ordine di arrivo; al termine viene chiamato il callback con il numero di blocchi.
+ * Un lavoro che lancia un'eccezione viene scartato (senza callback) e loggato; allo stop del server la coda viene svuotata.
+ */
+public final class GrassEditJobManager {
+    private static final GrassEditJobManager INSTANCE = new GrassEditJobManager();
+    public static GrassEditJobManager get() { return INSTANCE; }
+    private GrassEditJobManager() {}
+
+    /** Aggiorna i client ma non i vicini; FORCE_STATE evita drop/side effect della rimozione. */
+    public static final int FLAGS = Block.NOTIFY_LISTENERS | Block.FORCE_STATE;
+
+    public enum Mode { PLACE_SHORT, PLACE_TALL, CLEAR }
+
+    private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+
+    /** Accoda un lavoro sul volume (estremi inclusi). Da chiamare sul thread server. */
+    public void submit(World world, Mode mode, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                       IntConsumer onDone) {
+        submit(world, mode, minX, minY, minZ, maxX, maxY, maxZ, null, null, onDone);
+    }
+
+    /**
+     * Come sopra, limitato ai voxel di mask (null = tutto il volume); collect (opzionale) riceve
+     * le posizioni delle piante posate o già presenti nel volume, entrambe le metà per l'erba alta.
+     */
+    public void submit(World world, Mode mode, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                       ZoneMask mask, ZoneMask.Builder collect, IntConsumer onDone) {
+        jobs.addLast(new Job(world, mode, minX, minY, minZ, maxX, maxY, maxZ, mask, null, collect, onDone));
+    }
+
+    /**
+     * Forma letta per chunk: shape riceve il chunk appena caricato dal job e ne restituisce
+     * la porzione di mask (null = tutto il volume nel chunk, mask vuota = chunk saltato).
+     */
+    public void submit(World world, Mode mode, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                       Function<WorldChunk, ZoneMask> shape, IntConsumer onDone) {
+        jobs.addLast(new Job(world, mode, minX, minY, minZ, maxX, maxY, maxZ, null, shape, null, onDone));
+    }
+
+    public int pending() { return jobs.size(); }
+
+    /** Scarta i lavori in coda (stop del server: i World referenziati non sono più validi). */
+    public void clear() {
+        if (!jobs.isEmpty()) {
+            CobblemonMapKitMod.LOGGER.info("[GrassEditJobManager] Server stopping: {} grass edit job(s) discarded.", jobs.size());
+        }
+        jobs.clear();
+    }
+
+    public void tick(MinecraftServer server) {
+        if (jobs.isEmpty()) return;
+        long deadline = System.nanoTime() + GrassZonesSettings.getEditBudgetMs() * 1_000_000L;
+        do {
+            Job job = jobs.peekFirst();
+            boolean more;
+            try {
+                more = job.step();
+            } catch (RuntimeException e) {
+                jobs.pollFirst();
+                CobblemonMapKitMod.LOGGER.error("[GrassEditJobManager] {} job at chunk {},{} failed, discarded: {}",
+                        job.mode, job.cx, job.cz, e.getMessage(), e);
+                continue;
+            }
+            if (!more) {
+                jobs.pollFirst();
+                job.onDone.accept(job.count);
+            }
+        } while (!jobs.isEmpty() && System.nanoTime() < deadline);
+    }
+
+    private static final class Job {
+        final World world;
+        final Mode mode;
+        final int minX, minY, minZ, maxX, maxY, maxZ;
+        final ZoneMask mask;
+        final Function<WorldChunk, ZoneMask> shape;
+        final ZoneMask.Builder collect;
+        final IntConsumer onDone;
+        final Block shortGrass = resolveShortGrass();
+        final BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        // cursore sulle section: X chunk -> Z chunk -> Y section (Y crescente, come la scansione originale)
+        final int cMinX, cMaxX, cMinZ, cMaxZ, sMinY, sMaxY;
+        int cx, cz, sy;
+        int count;
+
+        // forma del chunk corrente (solo con shape)
+        ZoneMask chunkMask;
+        long shapeChunk = Long.MIN_VALUE;
+
+        Job(World world, Mode mode, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+            ZoneMask mask, Function<WorldChunk, ZoneMask> shape, ZoneMask.Builder collect, IntConsumer onDone) {
+            this.world = world;
+            this.mask = mask;
+            this.shape = shape;
+            this.collect = collect;
+            this.mode = mode;
+            this.minX = minX; this.minY = minY; this.minZ = minZ;
+            this.maxX = maxX; this.maxY = maxY; this.maxZ = maxZ;
+            this.onDone = onDone;
+            this.cMinX = minX >> 4; this.cMaxX = maxX >> 4;
+            this.cMinZ = minZ >> 4; this.cMaxZ = maxZ >> 4;
+            this.sMinY = minY >> 4; this.sMaxY = maxY >> 4;
+            this.cx = cMinX; this.cz = cMinZ; this.sy = sMinY;
+        }
+
+        /** Processa una section; false quando il volume è finito. */
+        boolean step() {
+            if (cx > cMaxX) return false;
+            WorldChunk chunk = world.getChunk(cx, cz);
+            if (shape != null && shapeChunk != chunk.getPos().toLong()) {
+                shapeChunk = chunk.getPos().toLong();
+                chunkMask = shape.apply(chunk);
+            }
+            processSection(chunk, sy);
+
+            if (++sy > sMaxY) {
+                sy = sMinY;
+                if (++cz > cMaxZ) {
+                    cz = cMinZ;
+                    cx++;
+                }
+            }
+            return cx <= cMaxX;
+        }
+
+        private void processSection(WorldChunk chunk, int sectionY) {
+            ChunkSection[] sections = chunk.getSectionArray();
+            int idx = chunk.sectionCoordToIndex(sectionY);
+            if (idx < 0 || idx >= sections.length) return;
+            ZoneMask mask = this.mask != null ? this.mask : chunkMask;
+            if (mask != null && !mask.hasSection(cx, sectionY, cz)) return;
+            ChunkSection sec = sections[idx];
+            ChunkSection below = idx > 0 ? sections[idx - 1] : null;
+            if (skip(sec, below)) return;
+
+            int x0 = Math.max(minX, cx << 4), x1 = Math.min(maxX, (cx << 4) + 15);
+            int z0 = Math.max(minZ, cz << 4), z1 = Math.min(maxZ, (cz << 4) + 15);
+            int y0 = Math.max(minY, sectionY << 4), y1 = Math.min(maxY, (sectionY << 4) + 15);
+
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    for (int z = z0; z <= z1; z++) {
+                        if (mask != null && !mask.contains(x, y, z)) continue;
+                        pos.set(x, y, z);
+                        if (mode == Mode.CLEAR) clearAt(chunk);
+                        else placeAt(chunk);
+                    }
+                }
+            }
+        }
+
+        /** Palette check: la section (o quella sotto, per il blocco di appoggio) deve contenere un blocco utile. */
+        private boolean skip(ChunkSection sec, ChunkSection below) {
+            if (mode == Mode.CLEAR) {
+                return !hasGrassPlant(sec) && !(below != null && below.hasAny(st -> st.isOf(Blocks.TALL_GRASS)));
+            }
+            return !sec.hasAny(st -> st.isOf(Blocks.GRASS_BLOCK))
+                    && !(below != null && below.hasAny(st -> st.isOf(Blocks.GRASS_BLOCK)));
+        }
+
+        private boolean hasGrassPlant(ChunkSection sec) {
+            return sec.hasAny(st -> st.isOf(Blocks.TALL_GRASS) || (shortGrass != null && st.isOf(shortGrass)));
+        }
+
+        private void placeAt(WorldChunk chunk) {
+            BlockState current = chunk.getBlockState(pos);
+            if (collect != null && isGrassPlant(current)) {
+                collect.add(pos.getX(), pos.getY(), pos.getZ()); // pianta già presente: fa parte della forma
+                return;
+            }
+            if (!current.isAir()) return;
+            if (!chunk.getBlockState(pos.down()).isOf(Blocks.GRASS_BLOCK)) return;
+
+            BlockPos at = pos.toImmutable();
+            if (mode == Mode.PLACE_TALL) {
+                // Tall grass richiede 2 blocchi d'aria (pos e pos.up())
+                if (!world.isAir(at.up())) return;
+                BlockState tall = Blocks.TALL_GRASS.getDefaultState();
+                if (tall.canPlaceAt(world, at)) {
+                    TallPlantBlock.placeAt(world, tall, at, FLAGS);
+                    if (collect != null) {
+                        collect.add(at.getX(), at.getY(), at.getZ());
+                        collect.add(at.getX(), at.getY() + 1, at.getZ());
+                    }
+                    count++;
+                }
+            } else {
+                if (shortGrass == null) return;
+                BlockState st = shortGrass.getDefaultState();
+                if (st.canPlaceAt(world, at)) {
+                    world.setBlockState(at, st, FLAGS);
+                    if (collect != null) collect.add(at.getX(), at.getY(), at.getZ());
+                    count++;
+                }
+            }
+        }
+
+        private boolean isGrassPlant(BlockState st) {
+            return st.isOf(Blocks.TALL_GRASS) || (shortGrass != null && st.isOf(shortGrass));
+        }
+
+        private void clearAt(WorldChunk chunk) {
+            BlockState st = chunk.getBlockState(pos);
+            BlockState air = Blocks.AIR.getDefaultState();
+
+            // Short grass (o legacy grass)
+            if (shortGrass != null && st.isOf(shortGrass)) {
+                world.setBlockState(pos.toImmutable(), air, FLAGS);
+                count++;
+                return;
+            }
+
+            // Tall grass: gestisce upper/lower e rimuove entrambe le metà
+            if (st.isOf(Blocks.TALL_GRASS)) {
+                BlockPos at = pos.toImmutable();
+                BlockPos other = st.get(Properties.DOUBLE_BLOCK_HALF) == DoubleBlockHalf.LOWER ? at.up() : at.down();
+                if (world.getBlockState(other).isOf(Blocks.TALL_GRASS)) {
+                    world.setBlockState(other, air, FLAGS);
+                }
+                world.setBlockState(at, air, FLAGS);
+                count++;
+                return;
+            }
+
+            // Caso edge: tall_grass sotto (rimozione a coppia)
+            BlockPos down = pos.down();
+            if (chunk.getBlockState(down).isOf(Blocks.TALL_GRASS)) {
+                world.setBlockState(pos.toImmutable(), air, FLAGS);
+                world.setBlockState(down, air, FLAGS);
+                count++;
+            }
+        }
+    }
+
+    /** SHORT_GRASS (new mappings) or legacy GRASS. */
+    private static Block resolveShortGrass() {
+        Optional<Block> a = Registries.BLOCK.getOrEmpty(Identifier.of("minecraft", "short_grass"));
+        if (a.isPresent()) return a.get();
+        Optional<Block> b = Registries.BLOCK.getOrEmpty(Identifier.of("minecraft", "grass")); // legacy id
+        return b.orElse(null);
+    }
+}
@@ -0,0 +1,108 @@
+package com.cobblemon.khataly.mapkit.networking.manager;
+
+import com.cobblemon.khataly.mapkit.config.GrassZonesConfig;
+import com.cobblemon.khataly.mapkit.networking.packet.grasszones.GrassZonesSyncS2CPacket;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sync delle Grass Zones filtrata per interesse (per giocatore):
+ * - Il client riceve solo le zone della sua dimensione entro la view distance del server
+ * - Per ogni giocatore si ricorda cosa è stato inviato (id -> istanza Zone): invariate = stessa istanza
+ * - Cambio dimensione o revisione client non allineata => reset (nuovo snapshot dell'area)
+ * - Spostandosi, le zone entrano/escono dall'area come upsert/removed
+ * Chiamato sul thread server.
+ */
+public final class GrassZoneSyncManager {
+    private static final GrassZoneSyncManager INSTANCE = new GrassZoneSyncManager();
+    public static GrassZoneSyncManager get() { return INSTANCE; }
+    private GrassZoneSyncManager() {}
+
+    private static final class Session {
+        final RegistryKey<World> world;
+        int centerX, centerZ, radius;
+        long revision = -1;
+        /** Zone attualmente presenti sul client. */
+        Map<UUID, GrassZonesConfig.Zone> sent = new HashMap<>();
+
+        Session(RegistryKey<World> world) { this.world = world; }
+
+        boolean inView(GrassZonesConfig.Zone z) {
+            return z.worldKey().equals(world)
+                    && (z.maxX() >> 4) >= centerX - radius && (z.minX() >> 4) <= centerX + radius
+                    && (z.maxZ() >> 4) >= centerZ - radius && (z.minZ() >> 4) <= centerZ + radius;
+        }
+    }
+
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+
+    public void handleRequest(ServerPlayerEntity player, long knownRevision) {
+        RegistryKey<World> wk = player.getWorld().getRegistryKey();
+        ChunkPos cp = player.getChunkPos();
+        int radius = Objects.requireNonNull(player.getServer()).getPlayerManager().getViewDistance();
+        long revision = GrassZonesConfig.revision();
+
+        Session s = sessions.get(player.getUuid());
+        boolean reset = s == null || !s.world.equals(wk) || s.revision != knownRevision;
+        boolean moved = !reset && (s.centerX != cp.x || s.centerZ != cp.z || s.radius != radius);
+        if (!reset && !moved && s.revision == revision) return; // invariato
+
+        if (reset) {
+            s = new Session(wk);
+            sessions.put(player.getUuid(), s);
+        }
+        s.centerX = cp.x;
+        s.centerZ = cp.z;
+        s.radius = radius;
+
+        List<GrassZonesConfig.Zone> upserts = new ArrayList<>();
+        List<UUID> removed = new ArrayList<>();
+        GrassZonesConfig.Delta changes = (reset || moved) ? null : GrassZonesConfig.changesSince(s.revision);
+
+        if (changes != null && !changes.reset()) {
+            // fermo: basta controllare le zone modificate dall'ultima sync
+            revision = changes.revision();
+            for (GrassZonesConfig.Zone z : changes.upserts()) {
+                if (s.inView(z)) {
+                    s.sent.put(z.id(), z);
+                    upserts.add(z);
+                } else if (s.sent.remove(z.id()) != null) {
+                    removed.add(z.id());
+                }
+            }
+            for (UUID id : changes.removed()) {
+                if (s.sent.remove(id) != null) removed.add(id);
+            }
+        } else {
+            // reset o spostamento: ricalcola l'area e confronta con quanto già inviato
+            Map<UUID, GrassZonesConfig.Zone> visible = new HashMap<>();
+            for (GrassZonesConfig.Zone z : GrassZonesConfig.findInChunks(wk,
+                    cp.x - radius, cp.z - radius, cp.x + radius, cp.z + radius)) {
+                visible.put(z.id(), z);
+                if (s.sent.get(z.id()) != z) upserts.add(z);
+            }
+            for (UUID id : s.sent.keySet()) {
+                if (!visible.containsKey(id)) removed.add(id);
+            }
+            s.sent = visible;
+        }
+        s.revision = revision;
+
+        // nessuna modifica visibile: si invia comunque un delta vuoto se il client deve adottare la nuova revisione
+        if (!reset && upserts.isEmpty() && removed.isEmpty() && knownRevision == revision) return;
+        var delta = new GrassZonesConfig.Delta(revision, reset, upserts, removed);
+        for (var pkt : GrassZonesSyncS2CPacket.paginate(delta, wk.getValue().toString())) {
+            ServerPlayNetworking.send(player, pkt);
+        }
+    }
+
+    public void remove(UUID playerId) {
+        sessions.remove(playerId);
+    }
+}
@@ -1,6 +1,7 @@
 package com.cobblemon.khataly.mapkit.networking.packet.grasszones;
 
 import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
+import com.cobblemon.khataly.mapkit.config.GrassZonesConfig;
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.network.codec.PacketCodecs;
@@ -12,9 +13,29 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-public record GrassZonesSyncS2CPacket(List<GrassZonesSyncS2CPacket.ZoneDto> zones)
+/**
+ * Sync delta delle zone verso il client.
+ *  - worldKey: dimensione a cui appartengono tutte le zone del pacchetto (il client riceve solo la propria);
+ *  - revision: revisione del server a cui il client arriva applicando la sequenza di pagine;
+ *  - reset: prima pagina di uno snapshot completo, il client scarta la propria copia;
+ *  - last: ultima pagina, il client applica le modifiche e adotta la revisione;
+ *  - upserts: zone aggiunte/modificate; removed: id eliminati (solo sull'ultima pagina).
+ * Gli snapshot grandi sono divisi in pagine da al più PAGE_SIZE zone e PAGE_BYTES byte (le mask pesano)
+ * per restare sotto il limite dei payload.
+ */
+public record GrassZonesSyncS2CPacket(String worldKey, long revision, boolean reset, boolean last,
+                                      List<GrassZonesSyncS2CPacket.ZoneDto> upserts, List<UUID> removed)
         implements CustomPayload {
 
+    /** ~70 byte per zona senza mask: 256 zone stanno ampiamente sotto il limite dei custom payload. */
+    public static final int PAGE_SIZE = 256;
+    /** Budget stimato per pagina (limite S2C 1 MiB); una zona più grande viaggia comunque da sola. */
+    public static final int PAGE_BYTES = 256 * 1024;
+    /** Base per zona nella stima (uuid + varint). */
+    private static final int DTO_BASE_BYTES = 48;
+    /** Rifiuta mask più grandi del limite dei payload. */
+    private static final int MAX_MASK_BYTES = 1 << 20;
+
     public static final CustomPayload.Id<GrassZonesSyncS2CPacket> ID =
             new CustomPayload.Id<>(Identifier.of(CobblemonMapKitMod.MOD_ID, "zones_sync_s2c"));
 
@@ -30,36 +51,56 @@ public record GrassZonesSyncS2CPacket(List<GrassZonesSyncS2CPacket.ZoneDto> zone
     private static final PacketCodec<RegistryByteBuf, UUID>    UUID_CODEC   = lift(Uuids.PACKET_CODEC);
     private static final PacketCodec<RegistryByteBuf, String>  STRING_CODEC = lift(PacketCodecs.STRING);
     private static final PacketCodec<RegistryByteBuf, Integer> VARINT_CODEC = lift(PacketCodecs.VAR_INT);
+    private static final PacketCodec<RegistryByteBuf, Long>    VARLONG_CODEC = lift(PacketCodecs.VAR_LONG);
+    private static final PacketCodec<RegistryByteBuf, Boolean> BOOL_CODEC   = lift(PacketCodecs.BOOL);
+    private static final PacketCodec<RegistryByteBuf, List<UUID>> UUID_LIST_CODEC = UUID_CODEC.collect(PacketCodecs.toList());
 
     public static final PacketCodec<RegistryByteBuf, GrassZonesSyncS2CPacket> CODEC =
-            PacketCodec.tuple(ZoneDto.LIST_CODEC, GrassZonesSyncS2CPacket::zones, GrassZonesSyncS2CPacket::new);
+            PacketCodec.tuple(
+                    STRING_CODEC,       GrassZonesSyncS2CPacket::worldKey,
+                    VARLONG_CODEC,      GrassZonesSyncS2CPacket::revision,
+                    BOOL_CODEC,         GrassZonesSyncS2CPacket::reset,
+                    BOOL_CODEC,         GrassZonesSyncS2CPacket::last,
+                    ZoneDto.LIST_CODEC, GrassZonesSyncS2CPacket::upserts,
+                    UUID_LIST_CODEC,    GrassZonesSyncS2CPacket::removed,
+                    GrassZonesSyncS2CPacket::new
+            );
 
-    /** NUOVO: include minY e maxY (range verticale) */
-    public static record ZoneDto(UUID id, String worldKey,
+    /** NUOVO: include minY e maxY (range verticale); la dimensione è a livello di pacchetto.
+     *  mask: ZoneMask.encode() o null per le zone a box (sul filo: lunghezza varint, 0 = box). */
+    public static record ZoneDto(UUID id,
                                  int minX, int minZ, int maxX, int maxZ,
-                                 int minY, int maxY) {
+                                 int minY, int maxY, byte[] mask) {
 
         public static final PacketCodec<RegistryByteBuf, ZoneDto> CODEC = new PacketCodec<>() {
             @Override public ZoneDto decode(RegistryByteBuf buf) {
                 UUID id       = UUID_CODEC.decode(buf);
-                String worldKey = STRING_CODEC.decode(buf);
                 int minX      = VARINT_CODEC.decode(buf);
                 int minZ      = VARINT_CODEC.decode(buf);
                 int maxX      = VARINT_CODEC.decode(buf);
                 int maxZ      = VARINT_CODEC.decode(buf);
                 int minY      = VARINT_CODEC.decode(buf);
                 int maxY      = VARINT_CODEC.decode(buf);
-                return new ZoneDto(id, worldKey, minX, minZ, maxX, maxZ, minY, maxY);
+                int maskLen   = VARINT_CODEC.decode(buf);
+                if (maskLen < 0 || maskLen > MAX_MASK_BYTES) throw new IllegalArgumentException("bad mask length " + maskLen);
+                byte[] mask = null;
+                if (maskLen > 0) {
+                    mask = new byte[maskLen];
+                    buf.readBytes(mask);
+                }
+                return new ZoneDto(id, minX, minZ, maxX, maxZ, minY, maxY, mask);
             }
             @Override public void encode(RegistryByteBuf buf, ZoneDto z) {
                 UUID_CODEC.encode(buf, z.id());
-                STRING_CODEC.encode(buf, z.worldKey());
                 VARINT_CODEC.encode(buf, z.minX());
                 VARINT_CODEC.encode(buf, z.minZ());
                 VARINT_CODEC.encode(buf, z.maxX());
                 VARINT_CODEC.encode(buf, z.maxZ());
                 VARINT_CODEC.encode(buf, z.minY());
                 VARINT_CODEC.encode(buf, z.maxY());
+                byte[] mask = z.mask();
+                VARINT_CODEC.encode(buf, mask == null ? 0 : mask.length);
+                if (mask != null) buf.writeBytes(mask);
             }
         };
 
@@ -67,15 +108,43 @@ public record GrassZonesSyncS2CPacket(List<GrassZonesSyncS2CPacket.ZoneDto> zone
                 CODEC.collect(PacketCodecs.toList());
     }
 
-    /** Costruisce i DTO leggendo dal config aggiornato (minY/maxY). */
-    public static List<ZoneDto> buildDtos() {
-        List<ZoneDto> out = new ArrayList<>();
-        for (var z : com.cobblemon.khataly.mapkit.config.GrassZonesConfig.getAll()) {
-            out.add(new ZoneDto(
-                    z.id(),
-                    z.worldKey().getValue().toString(),
-                    z.minX(), z.minZ(), z.maxX(), z.maxZ(),
-                    z.minY(), z.maxY()
+    public static ZoneDto toDto(GrassZonesConfig.Zone z) {
+        return new ZoneDto(
+                z.id(),
+                z.minX(), z.minZ(), z.maxX(), z.maxZ(),
+                z.minY(), z.maxY(),
+                z.mask() == null ? null : z.mask().encode()
+        );
+    }
+
+    /** Divide un delta in pagine (per numero di zone e byte stimati); almeno una pagina (anche vuota, es. solo rimozioni). */
+    public static List<GrassZonesSyncS2CPacket> paginate(GrassZonesConfig.Delta delta, String worldKey) {
+        List<List<ZoneDto>> pages = new ArrayList<>();
+        List<ZoneDto> page = new ArrayList<>();
+        int pageBytes = 0;
+        for (GrassZonesConfig.Zone z : delta.upserts()) {
+            ZoneDto dto = toDto(z);
+            int bytes = DTO_BASE_BYTES + (dto.mask() == null ? 0 : dto.mask().length);
+            if (!page.isEmpty() && (page.size() >= PAGE_SIZE || pageBytes + bytes > PAGE_BYTES)) {
+                pages.add(page);
+                page = new ArrayList<>();
+                pageBytes = 0;
+            }
+            page.add(dto);
+            pageBytes += bytes;
+        }
+        pages.add(page);
+
+        List<GrassZonesSyncS2CPacket> out = new ArrayList<>(pages.size());
+        for (int p = 0; p < pages.size(); p++) {
+            boolean last = p == pages.size() - 1;
+            out.add(new GrassZonesSyncS2CPacket(
+                    worldKey,
+                    delta.revision(),
+                    delta.reset() && p == 0,
+                    last,
+                    pages.get(p),
+                    last ? delta.removed() : List.of()
             ));
         }
         return out;
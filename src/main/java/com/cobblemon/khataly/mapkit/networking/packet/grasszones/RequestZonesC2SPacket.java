@@ -3,15 +3,17 @@ package com.cobblemon.khataly.mapkit.networking.packet.grasszones;
 import com.cobblemon.khataly.mapkit.CobblemonMapKitMod;
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
 import net.minecraft.network.packet.CustomPayload;
 import net.minecraft.util.Identifier;
 
-public record RequestZonesC2SPacket() implements CustomPayload {
+/** knownRevision: revisione delle zone già in cache sul client (-1 = nessuna). */
+public record RequestZonesC2SPacket(long knownRevision) implements CustomPayload {
     public static final CustomPayload.Id<RequestZonesC2SPacket> ID =
             new CustomPayload.Id<>(Identifier.of(CobblemonMapKitMod.MOD_ID, "zones_request_c2s")); // <-- Id<T>
 
     @Override public Id<? extends CustomPayload> getId() { return ID; }
 
     public static final PacketCodec<RegistryByteBuf, RequestZonesC2SPacket> CODEC =
-            PacketCodec.unit(new RequestZonesC2SPacket());
+            PacketCodec.tuple(PacketCodecs.VAR_LONG, RequestZonesC2SPacket::knownRevision, RequestZonesC2SPacket::new);
 }
@@ -2,6 +2,7 @@ package com.cobblemon.khataly.mapkit.networking.util;
 
 import com.cobblemon.khataly.mapkit.networking.packet.grasszones.GrassZonesSyncS2CPacket;
 import com.cobblemon.khataly.mapkit.util.GrassZonesClientCache;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
 
 public class GrassNetworkingInit {
@@ -10,7 +11,9 @@ public class GrassNetworkingInit {
         ClientPlayNetworking.registerGlobalReceiver(
                 GrassZonesSyncS2CPacket.ID,
                 (payload, ctx) -> ctx.client().execute(() ->
-                        GrassZonesClientCache.setZones(payload.zones()))
+                        GrassZonesClientCache.apply(payload))
         );
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) ->
+                client.execute(GrassZonesClientCache::clear));
     }
 }
@@ -0,0 +1,198 @@
+package com.cobblemon.khataly.mapkit.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Accessor riflessivi risolti una volta per classe e poi invocati come MethodHandle:
+ * - ogni accessor ha una lista di nomi candidati (il primo metodo pubblico esistente vince, come getMethod);
+ * - la risoluzione avviene alla prima chiamata per ogni classe concreta (ClassValue) ed è memorizzata,
+ *   anche quando nessun candidato esiste (cache negativa): a regime nessun getMethod/lookup;
+ * - le eccezioni del metodo invocato vengono assorbite (null / false), come i vecchi try/catch.
+ * Da dichiarare come costanti static final accanto a chi le usa.
+ */
+public final class Accessors {
+    private Accessors() {}
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /** Sentinella della cache negativa. */
+    private static final MethodHandle NONE = MethodHandles.constant(Object.class, null);
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType INT_ARG_GETTER = MethodType.methodType(Object.class, Object.class, int.class);
+    private static final MethodType INT_SETTER = MethodType.methodType(void.class, Object.class, int.class);
+    private static final MethodType BOOLEAN_SETTER = MethodType.methodType(void.class, Object.class, boolean.class);
+
+    /** Metodo senza argomenti: target.name(). */
+    public static Getter getter(String... names) { return new Getter(names); }
+
+    /** Campo dichiarato (anche privato) della classe concreta. */
+    public static Getter field(String name) { return new Getter(name); }
+
+    /** Metodo con un argomento int: target.name(int). */
+    public static IntArgGetter intArgGetter(String... names) { return new IntArgGetter(names); }
+
+    /** Setter con argomento int: target.name(int), risultato ignorato. */
+    public static IntSetter intSetter(String... names) { return new IntSetter(names); }
+
+    /** Setter con argomento boolean: target.name(boolean), risultato ignorato. */
+    public static BooleanSetter booleanSetter(String... names) { return new BooleanSetter(names); }
+
+    public static final class Getter {
+        private final ClassValue<MethodHandle> handles;
+
+        private Getter(String[] names) {
+            handles = new ClassValue<>() {
+                @Override protected MethodHandle computeValue(Class<?> type) {
+                    return resolve(type, names, GETTER);
+                }
+            };
+        }
+
+        /** Accessor di campo (un solo nome). */
+        private Getter(String fieldName) {
+            handles = new ClassValue<>() {
+                @Override protected MethodHandle computeValue(Class<?> type) {
+                    return resolveField(type, fieldName);
+                }
+            };
+        }
+
+        /** true se la classe espone l'accessor (risultato in cache). */
+        public boolean supports(Class<?> type) { return handles.get(type) != NONE; }
+
+        public Object get(Object target) {
+            if (target == null) return null;
+            MethodHandle mh = handles.get(target.getClass());
+            if (mh == NONE) return null;
+            try {
+                return (Object) mh.invokeExact(target);
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+
+        public Integer getInt(Object target) {
+            return get(target) instanceof Number n ? n.intValue() : null;
+        }
+
+        public Boolean getBoolean(Object target) {
+            return get(target) instanceof Boolean b ? b : null;
+        }
+
+        public String getString(Object target) {
+            Object o = get(target);
+            return o == null ? null : String.valueOf(o);
+        }
+    }
+
+    public static final class IntArgGetter {
+        private final ClassValue<MethodHandle> handles;
+
+        private IntArgGetter(String[] names) {
+            handles = new ClassValue<>() {
+                @Override protected MethodHandle computeValue(Class<?> type) {
+                    return resolve(type, names, INT_ARG_GETTER);
+                }
+            };
+        }
+
+        public Integer getInt(Object target, int arg) {
+            if (target == null) return null;
+            MethodHandle mh = handles.get(target.getClass());
+            if (mh == NONE) return null;
+            try {
+                return (Object) mh.invokeExact(target, arg) instanceof Number n ? n.intValue() : null;
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+    }
+
+    public static final class IntSetter {
+        private final ClassValue<MethodHandle> handles;
+
+        private IntSetter(String[] names) {
+            handles = new ClassValue<>() {
+                @Override protected MethodHandle computeValue(Class<?> type) {
+                    return resolve(type, names, INT_SETTER);
+                }
+            };
+        }
+
+        /** false se nessun candidato esiste o il metodo lancia. */
+        public boolean set(Object target, int value) {
+            if (target == null) return false;
+            MethodHandle mh = handles.get(target.getClass());
+            if (mh == NONE) return false;
+            try {
+                mh.invokeExact(target, value);
+                return true;
+            } catch (Throwable t) {
+                return false;
+            }
+        }
+    }
+
+    public static final class BooleanSetter {
+        private final ClassValue<MethodHandle> handles;
+
+        private BooleanSetter(String[] names) {
+            handles = new ClassValue<>() {
+                @Override protected MethodHandle computeValue(Class<?> type) {
+                    return resolve(type, names, BOOLEAN_SETTER);
+                }
+            };
+        }
+
+        /** false se nessun candidato esiste o il metodo lancia. */
+        public boolean set(Object target, boolean value) {
+            if (target == null) return false;
+            MethodHandle mh = handles.get(target.getClass());
+            if (mh == NONE) return false;
+            try {
+                mh.invokeExact(target, value);
+                return true;
+            } catch (Throwable t) {
+                return false;
+            }
+        }
+    }
+
+    // ======== Risoluzione (una volta per classe) ========
+
+    /** Primo metodo pubblico tra i candidati con i parametri di type (escluso il receiver), adattato a type. */
+    private static MethodHandle resolve(Class<?> owner, String[] names, MethodType type) {
+        Class<?>[] params = type.dropParameterTypes(0, 1).parameterArray();
+        for (String name : names) {
+            Method m;
+            try {
+                m = owner.getMethod(name, params);
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+            try {
+                m.setAccessible(true); // classi non pubbliche (es. implementazioni Kotlin interne)
+            } catch (RuntimeException ignored) {}
+            try {
+                return LOOKUP.unreflect(m).asType(type);
+            } catch (IllegalAccessException | RuntimeException e) {
+                // inaccessibile: come getMethod().invoke() fallito, si prova il candidato successivo
+            }
+        }
+        return NONE;
+    }
+
+    private static MethodHandle resolveField(Class<?> owner, String name) {
+        try {
+            Field f = owner.getDeclaredField(name);
+            f.setAccessible(true);
+            return LOOKUP.unreflectGetter(f).asType(GETTER);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return NONE;
+        }
+    }
+}
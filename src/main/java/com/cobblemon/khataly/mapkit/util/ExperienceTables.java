@@ -0,0 +1,45 @@
+package com.cobblemon.khataly.mapkit.util;
+
+import com.cobblemon.mod.common.Cobblemon;
+import com.cobblemon.mod.common.api.pokemon.experience.ExperienceGroup;
+import com.cobblemon.mod.common.pokemon.Pokemon;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * EXP totale per livello, una tabella int[] per experience group (curva di crescita) di Cobblemon:
+ * - costruita una sola volta per gruppo, alla prima richiesta, fino a maxPokemonLevel;
+ * - "EXP per arrivare al livello X" = lettura della tabella - EXP attuale del Pokémon;
+ * - livelli oltre la tabella (config cambiata a runtime) chiedono direttamente al gruppo.
+ */
+public final class ExperienceTables {
+    private ExperienceTables() {}
+
+    private static final Map<ExperienceGroup, int[]> TABLES = new ConcurrentHashMap<>();
+
+    /** EXP totale richiesta per il livello (level >= 1). */
+    public static int experienceAt(ExperienceGroup group, int level) {
+        int[] table = TABLES.computeIfAbsent(group, ExperienceTables::build);
+        if (level < 1) level = 1;
+        return level < table.length ? table[level] : group.getExperience(level);
+    }
+
+    /** EXP mancante perché il Pokémon raggiunga targetLevel (0 se già al livello o oltre). */
+    public static int remainingTo(Pokemon pokemon, int targetLevel) {
+        if (pokemon.getLevel() >= targetLevel) return 0;
+        ExperienceGroup group = pokemon.getForm().getExperienceGroup();
+        return Math.max(0, experienceAt(group, targetLevel) - pokemon.getExperience());
+    }
+
+    public static int tableCount() { return TABLES.size(); }
+
+    private static int[] build(ExperienceGroup group) {
+        int maxLevel = Math.max(1, Cobblemon.INSTANCE.getConfig().getMaxPokemonLevel());
+        int[] table = new int[maxLevel + 1];
+        for (int level = 1; level <= maxLevel; level++) {
+            table[level] = group.getExperience(level);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,165 @@
+package com.cobblemon.khataly.mapkit.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Set con scadenza (TTL) e dimensione massima, per stati transitori (bypass, debounce, hint):
+ * - ogni voce scade dopo ttlTicks dall'inserimento (o dall'ultimo touch), tramite il TimingWheel del Group;
+ * - oltre maxEntries viene scartata la voce più vecchia (ordine di inserimento/touch);
+ * - TTL e limite sono letti a ogni inserimento (un reload della config vale per le nuove voci).
+ * I set di uno stesso Group condividono wheel e lock: thread-safe, pensati per pochi accessi per evento.
+ */
+public final class ExpiringSet<K> {
+
+    /** Wheel, tick corrente e registro dei set; advance una volta per tick server. */
+    public static final class Group {
+        private final TimingWheel<Node<?>> wheel;
+        private final List<ExpiringSet<?>> sets = new ArrayList<>();
+        private long now;
+
+        public Group(int slotCount) {
+            this.wheel = new TimingWheel<>(slotCount);
+        }
+
+        public <K> ExpiringSet<K> newSet(String name, IntSupplier ttlTicks, IntSupplier maxEntries) {
+            ExpiringSet<K> set = new ExpiringSet<>(this, name, ttlTicks, maxEntries);
+            synchronized (this) {
+                sets.add(set);
+            }
+            return set;
+        }
+
+        public synchronized void tick(long tick) {
+            if (tick < now) reset(); // tick del server ripartiti (nuova sessione senza reset esplicito)
+            now = tick;
+            wheel.advance(tick, Node::expire);
+        }
+
+        /** Svuota tutti i set e la wheel (allo stop del server: i tick ripartono da 0). */
+        public synchronized void reset() {
+            for (ExpiringSet<?> set : sets) set.entries.clear();
+            wheel.clear();
+            now = 0;
+        }
+
+        public synchronized List<ExpiringSet<?>> sets() { return List.copyOf(sets); }
+
+        /** Timer pianificati (incluse voci rimosse non ancora ripulite dalla wheel). */
+        public synchronized int scheduled() { return wheel.size(); }
+    }
+
+    private static final class Node<K> {
+        final ExpiringSet<K> owner;
+        final K key;
+        TimingWheel.Timer<Node<?>> timer;
+
+        Node(ExpiringSet<K> owner, K key) {
+            this.owner = owner;
+            this.key = key;
+        }
+
+        void expire() {
+            // la voce può essere stata sostituita da un touch: scade solo il nodo corrente
+            if (owner.entries.get(key) == this) {
+                owner.entries.remove(key);
+                owner.expired++;
+            }
+        }
+    }
+
+    private final Group group;
+    private final String name;
+    private final IntSupplier ttlTicks;
+    private final IntSupplier maxEntries;
+    private final LinkedHashMap<K, Node<K>> entries = new LinkedHashMap<>();
+    private long expired;
+    private long evicted;
+
+    private ExpiringSet(Group group, String name, IntSupplier ttlTicks, IntSupplier maxEntries) {
+        this.group = group;
+        this.name = name;
+        this.ttlTicks = ttlTicks;
+        this.maxEntries = maxEntries;
+    }
+
+    /** Aggiunge se assente; true se la voce è nuova (la scadenza di una voce esistente non cambia). */
+    public boolean add(K key) {
+        synchronized (group) {
+            if (entries.containsKey(key)) return false;
+            insert(key);
+            return true;
+        }
+    }
+
+    /** Inserisce o rinnova la scadenza della voce. */
+    public void touch(K key) {
+        synchronized (group) {
+            Node<K> old = entries.remove(key);
+            if (old != null) old.timer.cancel();
+            insert(key);
+        }
+    }
+
+    public boolean contains(K key) {
+        synchronized (group) {
+            return entries.containsKey(key);
+        }
+    }
+
+    public boolean remove(K key) {
+        synchronized (group) {
+            Node<K> old = entries.remove(key);
+            if (old == null) return false;
+            old.timer.cancel();
+            return true;
+        }
+    }
+
+    public void clear() {
+        synchronized (group) {
+            for (Node<K> n : entries.values()) n.timer.cancel();
+            entries.clear();
+        }
+    }
+
+    public String name() { return name; }
+
+    public int size() {
+        synchronized (group) {
+            return entries.size();
+        }
+    }
+
+    public long expiredTotal() {
+        synchronized (group) {
+            return expired;
+        }
+    }
+
+    public long evictedTotal() {
+        synchronized (group) {
+            return evicted;
+        }
+    }
+
+    private void insert(K key) {
+        Node<K> n = new Node<>(this, key);
+        n.timer = group.wheel.schedule(n, group.now, ttlTicks.getAsInt());
+        entries.put(key, n);
+
+        int max = Math.max(1, maxEntries.getAsInt());
+        if (entries.size() > max) {
+            Iterator<Node<K>> it = entries.values().iterator();
+            while (entries.size() > max && it.hasNext()) {
+                Node<K> eldest = it.next();
+                it.remove();
+                eldest.timer.cancel();
+                evicted++;
+            }
+        }
+    }
+}
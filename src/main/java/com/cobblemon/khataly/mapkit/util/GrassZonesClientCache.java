@@ -1,18 +1,58 @@
 package com.cobblemon.khataly.mapkit.util;
 import com.cobblemon.khataly.mapkit.networking.packet.grasszones.GrassZonesSyncS2CPacket;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.UUID;
 
+/**
+ * Copia client delle zone (solo dimensione corrente, area di interesse) + revisione del server a cui corrisponde.
+ * Le pagine di un delta si accumulano in "pending" e diventano visibili solo all'ultima pagina.
+ * Accesso dal thread client (receiver eseguiti con client.execute).
+ */
 public final class GrassZonesClientCache {
     private GrassZonesClientCache() {}
-    private static final AtomicReference<List<GrassZonesSyncS2CPacket.ZoneDto>> ZONES =
-            new AtomicReference<>(List.of());
 
-    public static void setZones(List<GrassZonesSyncS2CPacket.ZoneDto> zones) {
-        ZONES.set(zones == null ? List.of() : List.copyOf(zones));
+    private static final LinkedHashMap<UUID, GrassZonesSyncS2CPacket.ZoneDto> ZONES = new LinkedHashMap<>();
+    private static volatile List<GrassZonesSyncS2CPacket.ZoneDto> view = List.of();
+    private static long revision = -1;
+    private static volatile String worldKey = "";
+
+    /** Modifiche in arrivo (delta paginato non ancora completo). */
+    private static LinkedHashMap<UUID, GrassZonesSyncS2CPacket.ZoneDto> pending;
+    private static boolean pendingReset;
+
+    public static void apply(GrassZonesSyncS2CPacket pkt) {
+        if (pkt.reset() || pending == null) {
+            pending = new LinkedHashMap<>();
+            pendingReset = pkt.reset();
+        }
+        for (var z : pkt.upserts()) pending.put(z.id(), z);
+        if (!pkt.last()) return;
+
+        if (pendingReset) {
+            ZONES.clear();
+            worldKey = pkt.worldKey();
+        }
+        ZONES.putAll(pending);
+        for (UUID id : pkt.removed()) ZONES.remove(id);
+        pending = null;
+        revision = pkt.revision();
+        view = List.copyOf(ZONES.values());
     }
+
+    /** Disconnessione: la revisione appartiene al server, non va riusata altrove. */
+    public static void clear() {
+        ZONES.clear();
+        pending = null;
+        revision = -1;
+        worldKey = "";
+        view = List.of();
+    }
+
+    public static long getRevision() { return revision; }
+    public static String getWorldKey() { return worldKey; }
+
     public static List<GrassZonesSyncS2CPacket.ZoneDto> getZones() {
-        return Collections.unmodifiableList(ZONES.get());
+        return view;
     }
 }
@@ -2,21 +2,68 @@ package com.cobblemon.khataly.mapkit.util;
 
 import com.cobblemon.khataly.mapkit.config.LevelCapConfig;
 import com.cobblemon.khataly.mapkit.config.PlayerLevelCapProgress;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
+/**
+ * Cap effettivo per player, in cache come int primitivo:
+ * - calcolato alla prima richiesta, poi una lookup per UUID (chiamabile liberamente da EXP/caramelle/ball/level-up);
+ * - invalidato per player quando PlayerLevelCapProgress cambia le sue label (apply/remove/applyAll/clearAll);
+ * - svuotato quando cambia la revisione dei cap di LevelCapConfig (reload, baseCap, label aggiunte/rimosse).
+ * Solo thread server (come PlayerLevelCapProgress).
+ */
 public final class LevelCapService {
     private LevelCapService() {}
 
+    private static final int MISSING = -1;
+    private static final Object2IntOpenHashMap<UUID> CAPS = new Object2IntOpenHashMap<>();
+    private static int cachedRevision = LevelCapConfig.getCapsRevision();
+
+    static {
+        CAPS.defaultReturnValue(MISSING);
+        PlayerLevelCapProgress.addChangeListener(LevelCapService::invalidate);
+    }
+
     /** Effective cap = max(baseCap, qualsiasi cap sbloccato dal player via LABEL). */
     public static int getEffectiveCap(ServerPlayerEntity player) {
+        return getEffectiveCap(player.getUuid());
+    }
+
+    public static int getEffectiveCap(UUID playerId) {
+        int revision = LevelCapConfig.getCapsRevision();
+        if (revision != cachedRevision) {
+            CAPS.clear();
+            cachedRevision = revision;
+        }
+        int cap = CAPS.getInt(playerId);
+        if (cap == MISSING) {
+            cap = computeEffectiveCap(playerId);
+            CAPS.put(playerId, cap);
+        }
+        return cap;
+    }
+
+    /** Scarta il cap in cache di un player (ricalcolato alla prossima lettura). */
+    public static void invalidate(UUID playerId) {
+        CAPS.removeInt(playerId);
+    }
+
+    public static void invalidateAll() {
+        CAPS.clear();
+    }
+
+    public static int cachedCount() { return CAPS.size(); }
+
+    private static int computeEffectiveCap(UUID playerId) {
         int cap = LevelCapConfig.getBaseCap();
         // labelLower -> cap
         Map<String, Integer> labelsCaps = LevelCapConfig.getAllLabelsWithCaps();
         // set di labelLower applicate al player
-        Set<String> applied = PlayerLevelCapProgress.getApplied(player.getUuid());
+        Set<String> applied = PlayerLevelCapProgress.getApplied(playerId);
 
         for (String labelLower : applied) {
             Integer v = labelsCaps.get(labelLower);
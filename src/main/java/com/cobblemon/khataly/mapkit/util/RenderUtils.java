@@ -40,9 +40,16 @@ public class RenderUtils {
         int b = (int)(bf * 255f);
         int a = (int)(af * 255f);
 
-        float x1 = (float) box.minX, y1 = (float) box.minY, z1 = (float) box.minZ;
-        float x2 = (float) box.maxX, y2 = (float) box.maxY, z2 = (float) box.maxZ;
+        emitFilledBox(vc, m,
+                (float) box.minX, (float) box.minY, (float) box.minZ,
+                (float) box.maxX, (float) box.maxY, (float) box.maxZ,
+                r, g, b, a);
+    }
 
+    /** Emette i 6 quad di un box su un consumer già aperto (per disegnare molti box in un unico batch). */
+    public static void emitFilledBox(VertexConsumer vc, Matrix4f m,
+                                     float x1, float y1, float z1, float x2, float y2, float z2,
+                                     int r, int g, int b, int a) {
         // Ogni faccia: 4 vertici in senso orario
 
         // BOTTOM
@@ -0,0 +1,102 @@
+package com.cobblemon.khataly.mapkit.util;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Timing wheel a tick di gioco per scadenze numerose e spesso annullate (despawn, TTL di cache):
+ * - schedule/cancel O(1), nessuna scansione di tutte le voci a ogni tick;
+ * - advance() visita solo gli slot dei tick trascorsi; le voci con scadenza oltre un giro restano nello slot.
+ * Non thread-safe: usare da un solo thread (thread server).
+ */
+public final class TimingWheel<T> {
+
+    public static final class Timer<T> {
+        private final T value;
+        private final long deadline;
+        private boolean cancelled;
+
+        private Timer(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        public T value() { return value; }
+        public long deadline() { return deadline; }
+        public boolean isCancelled() { return cancelled; }
+        /** La voce viene rimossa pigramente quando il suo slot viene visitato. */
+        public void cancel() { cancelled = true; }
+    }
+
+    private final ArrayList<Timer<T>>[] slots;
+    private long lastTick = Long.MIN_VALUE;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int slotCount) {
+        if (slotCount <= 0) throw new IllegalArgumentException("slotCount must be > 0");
+        slots = new ArrayList[slotCount];
+        for (int i = 0; i < slotCount; i++) slots[i] = new ArrayList<>();
+    }
+
+    /** Pianifica la scadenza di value dopo delayTicks (minimo 1) rispetto a now. */
+    public Timer<T> schedule(T value, long now, long delayTicks) {
+        long deadline = now + Math.max(1L, delayTicks);
+        Timer<T> t = new Timer<>(value, deadline);
+        slots[slotOf(deadline)].add(t);
+        size++;
+        if (lastTick == Long.MIN_VALUE) lastTick = now;
+        return t;
+    }
+
+    /** Avanza fino a now: chiama expired per ogni voce scaduta e non annullata. */
+    public void advance(long now, Consumer<T> expired) {
+        if (lastTick == Long.MIN_VALUE || now <= lastTick) {
+            if (lastTick == Long.MIN_VALUE) lastTick = now;
+            return;
+        }
+        // oltre un giro completo basta visitare ogni slot una volta
+        long from = Math.max(lastTick + 1, now - slots.length + 1);
+        lastTick = now;
+        for (long tick = from; tick <= now; tick++) {
+            ArrayList<Timer<T>> slot = slots[slotOf(tick)];
+            if (slot.isEmpty()) continue;
+            ArrayList<Timer<T>> fired = null;
+            int w = 0;
+            for (int r = 0; r < slot.size(); r++) {
+                Timer<T> t = slot.get(r);
+                if (t.cancelled) {
+                    size--;
+                } else if (t.deadline <= now) {
+                    size--;
+                    if (fired == null) fired = new ArrayList<>();
+                    fired.add(t);
+                } else {
+                    slot.set(w++, t);
+                }
+            }
+            slot.subList(w, slot.size()).clear();
+            // callback dopo la compattazione: possono ripianificare nello stesso slot
+            if (fired != null) {
+                for (Timer<T> t : fired) expired.accept(t.value);
+            }
+        }
+    }
+
+    /** Svuota la wheel e ne azzera il tempo (es. allo stop del server: i tick ripartono da 0). */
+    public void clear() {
+        for (ArrayList<Timer<T>> slot : slots) {
+            for (Timer<T> t : slot) t.cancelled = true;
+            slot.clear();
+        }
+        size = 0;
+        lastTick = Long.MIN_VALUE;
+    }
+
+    /** Voci pianificate (incluse quelle annullate non ancora rimosse). */
+    public int size() { return size; }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.length);
+    }
+}